@@ -13,6 +13,8 @@ import org.example.sortingvisualizer.algorithm.impl.CountingSort;
 import org.example.sortingvisualizer.algorithm.impl.HeapSort;
 import org.example.sortingvisualizer.algorithm.impl.InsertionSort;
 import org.example.sortingvisualizer.algorithm.impl.MergeSort;
+import org.example.sortingvisualizer.algorithm.impl.ParallelMergeSort;
+import org.example.sortingvisualizer.algorithm.impl.PdqSort;
 import org.example.sortingvisualizer.algorithm.impl.QuickSort;
 import org.example.sortingvisualizer.algorithm.impl.RadixSort;
 import org.example.sortingvisualizer.algorithm.impl.SelectionSort;
@@ -30,8 +32,10 @@ public class AlgorithmRegistry {
 
     static {
         register(new BubbleSort(), new AlgorithmInfo("冒泡排序", "O(n)", "O(n²)", "O(n²)", "O(1)", true));
-        register(new QuickSort(), new AlgorithmInfo("快速排序", "O(n log n)", "O(n log n)", "O(n²)", "O(log n)", false));
-        register(new MergeSort(), new AlgorithmInfo("归并排序", "O(n log n)", "O(n log n)", "O(n log n)", "O(n)", true));
+        register(new QuickSort(), new AlgorithmInfo("快速排序", "O(n)", "O(n log n)", "O(n log n)", "O(log n)", false));
+        register(new PdqSort(), new AlgorithmInfo("模式消除快速排序", "O(n)", "O(n log n)", "O(n log n)", "O(log n)", false));
+        register(new MergeSort(), new AlgorithmInfo("归并排序", "O(n)", "O(n log n)", "O(n log n)", "O(n)", true));
+        register(new ParallelMergeSort(), new AlgorithmInfo("并行归并排序", "O(n)", "O(n log n)", "O(n log n)", "O(n)", true));
         register(new HeapSort(), new AlgorithmInfo("堆排序", "O(n log n)", "O(n log n)", "O(n log n)", "O(1)", false));
         register(new InsertionSort(), new AlgorithmInfo("插入排序", "O(n)", "O(n²)", "O(n²)", "O(1)", true));
         register(new ShellSort(), new AlgorithmInfo("希尔排序", "O(n log n)", "O(n^1.5)", "O(n²)", "O(1)", false));
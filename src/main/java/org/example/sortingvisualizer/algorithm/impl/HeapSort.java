@@ -10,56 +10,64 @@ public class HeapSort implements Sorter {
 
     @Override
     public void sort(int[] array, SortStepListener listener) {
-        int n = array.length;
+        sortRange(array, 0, array.length - 1, listener);
+    }
+
+    /**
+     * 只对区间 [low, high] 做堆排序（例如快速排序递归过深时的兜底）。
+     * 堆按区间内的相对下标组织，回调给出的是数组中的绝对下标。
+     */
+    public void sortRange(int[] array, int low, int high, SortStepListener listener) {
+        int n = high - low + 1;
 
         // 构建堆 (重新排列数组)
         for (int i = n / 2 - 1; i >= 0; i--)
-            heapify(array, n, i, listener);
+            heapify(array, low, n, i, listener);
 
         // 逐个从堆中提取元素
         for (int i = n - 1; i > 0; i--) {
             // 将当前根节点移至末尾
-            int temp = array[0];
-            array[0] = array[i];
-            array[i] = temp;
+            int temp = array[low];
+            array[low] = array[low + i];
+            array[low + i] = temp;
 
-            if (listener != null) listener.onSwap(0, i);
+            if (listener != null) listener.onSwap(low, low + i);
 
             // 在缩减后的堆上调用 max heapify
-            heapify(array, i, 0, listener);
+            heapify(array, low, i, 0, listener);
         }
     }
 
-    // 将以节点 i 为根的子树堆化，n 是堆的大小
-    void heapify(int[] array, int n, int i, SortStepListener listener) {
+    // 将以节点 i 为根的子树堆化，n 是堆的大小，堆从数组下标 low 开始
+    void heapify(int[] array, int low, int n, int i, SortStepListener listener) {
         int largest = i; // 初始化 largest 为根
         int l = 2 * i + 1; // left = 2*i + 1
         int r = 2 * i + 2; // right = 2*i + 2
 
         // 如果左子节点大于根
         if (l < n) {
-            if (listener != null) listener.onCompare(l, largest);
-            if (array[l] > array[largest])
+            if (listener != null) listener.onCompare(low + l, low + largest);
+            if (array[low + l] > array[low + largest])
                 largest = l;
         }
 
         // 如果右子节点大于目前最大的
         if (r < n) {
-            if (listener != null) listener.onCompare(r, largest);
-            if (array[r] > array[largest])
+            if (listener != null) listener.onCompare(low + r, low + largest);
+            if (array[low + r] > array[low + largest])
                 largest = r;
         }
 
         // 如果 largest 不是根
         if (largest != i) {
-            int swap = array[i];
-            array[i] = array[largest];
-            array[largest] = swap;
+            int swap = array[low + i];
+            array[low + i] = array[low + largest];
+            array[low + largest] = swap;
 
-            if (listener != null) listener.onSwap(i, largest);
+            if (listener != null) listener.onSwap(low + i, low + largest);
 
             // 递归地堆化受影响的子树
-            heapify(array, n, largest, listener);
+            heapify(array, low, n, largest, listener);
         }
     }
 
@@ -68,4 +76,3 @@ public class HeapSort implements Sorter {
         return "Heap Sort";
     }
 }
-
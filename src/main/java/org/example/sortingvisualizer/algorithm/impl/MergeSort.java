@@ -5,78 +5,139 @@ import org.example.sortingvisualizer.algorithm.Sorter;
 
 /**
  * 归并排序实现
- * 采用递归方式
+ * 采用自底向上（迭代）方式：先把长度为 {@value #RUN} 的小段用插入排序排好，再逐轮把相邻两段合并，段长每轮翻倍。
+ * <p>
+ * 整个排序只分配一次长度为 n 的辅助数组：
+ * <ul>
+ *   <li>无监听器时在原数组与辅助数组之间来回归并（ping-pong），每轮只写一遍数据，最后必要时再拷回原数组</li>
+ *   <li>有监听器时每次只把左段拷进辅助数组、直接归并回原数组，使每次 onSet 都对应原数组上的真实写入，便于录制/回放</li>
+ * </ul>
+ * 相邻两段本来就有序（左段末尾 &lt;= 右段开头）时跳过这次归并。
  */
 public class MergeSort implements Sorter {
 
+    /** 插入排序处理的初始段长。 */
+    private static final int RUN = 32;
+
     @Override
     public void sort(int[] array, SortStepListener listener) {
-        mergeSort(array, 0, array.length - 1, listener);
-    }
-
-    private void mergeSort(int[] array, int l, int r, SortStepListener listener) {
-        if (l < r) {
-            int m = l + (r - l) / 2;
+        int n = array.length;
+        if (n < 2) return;
 
-            mergeSort(array, l, m, listener);
-            mergeSort(array, m + 1, r, listener);
+        if (listener == null) {
+            sortRange(array, new int[n], 0, n);
+            return;
+        }
 
-            merge(array, l, m, r, listener);
+        // 1) 初始段：每 RUN 个元素做一次插入排序
+        for (int lo = 0; lo < n; lo += RUN) {
+            insertionSort(array, lo, Math.min(lo + RUN, n), listener);
         }
+        if (n <= RUN) return;
+        mergeInPlace(array, new int[n], listener);
     }
 
-    private void merge(int[] array, int l, int m, int r, SortStepListener listener) {
-        // 找出两个子数组的大小
-        int n1 = m - l + 1;
-        int n2 = r - m;
-
-        // 创建临时数组
-        int[] L = new int[n1];
-        int[] R = new int[n2];
-
-        // 复制数据到临时数组
-        for (int i = 0; i < n1; ++i)
-            L[i] = array[l + i];
-        for (int j = 0; j < n2; ++j)
-            R[j] = array[m + 1 + j];
-
-        // 合并临时数组
+    /**
+     * 无监听器地排序区间 [lo, hi)，结果留在 array 中。
+     * buffer 只使用同一区间 [lo, hi)，因此多个线程可以共用同一个辅助数组处理互不重叠的区间（见 {@link ParallelMergeSort}）。
+     */
+    static void sortRange(int[] array, int[] buffer, int lo, int hi) {
+        // 1) 初始段：每 RUN 个元素做一次插入排序
+        for (int start = lo; start < hi; start += RUN) {
+            insertionSort(array, start, Math.min(start + RUN, hi), null);
+        }
 
-        int i = 0, j = 0;
-        int k = l;
-        while (i < n1 && j < n2) {
-            // 触发比较事件 (注意：这里比较的是临时数组的值，但在UI上我们可能想高亮原始数组对应的位置)
-            // 为了简化动画逻辑，我们这里只触发 onSet，因为归并排序本质上是覆盖原数组
-            if (listener != null) {
-                listener.onCompare(l + i, m + 1 + j); // 近似位置高亮
+        // 2) 在原数组与辅助数组之间来回归并
+        int[] src = array;
+        int[] dst = buffer;
+        for (int width = RUN; width < hi - lo; width *= 2) {
+            for (int start = lo; start < hi; start += 2 * width) {
+                int mid = Math.min(start + width, hi);
+                int end = Math.min(start + 2 * width, hi);
+                if (mid >= end || src[mid - 1] <= src[mid]) {
+                    // 只有一段，或两段本来就有序：不必归并，整段搬到目标数组
+                    System.arraycopy(src, start, dst, start, end - start);
+                } else {
+                    merge(src, dst, start, mid, end);
+                }
             }
+            // 交换角色：本轮的目标数组就是下一轮的来源
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        // 最后一轮写进了辅助数组：拷回原数组
+        if (src != array) {
+            System.arraycopy(src, lo, array, lo, hi - lo);
+        }
+    }
 
-            if (L[i] <= R[j]) {
-                array[k] = L[i];
-                if (listener != null) listener.onSet(k, L[i]);
-                i++;
-            } else {
-                array[k] = R[j];
-                if (listener != null) listener.onSet(k, R[j]);
-                j++;
-            }
-            k++;
+    static void merge(int[] src, int[] dst, int lo, int mid, int hi) {
+        // 把 src[lo, mid) 与 src[mid, hi) 归并到 dst[lo, hi)
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            dst[k++] = (src[i] <= src[j]) ? src[i++] : src[j++];
         }
+        if (i < mid) System.arraycopy(src, i, dst, k, mid - i);
+        if (j < hi) System.arraycopy(src, j, dst, k, hi - j);
+    }
 
-        // 复制 L[] 的剩余元素
-        while (i < n1) {
-            array[k] = L[i];
-            if (listener != null) listener.onSet(k, L[i]);
-            i++;
-            k++;
+    private void mergeInPlace(int[] array, int[] buffer, SortStepListener listener) {
+        int n = array.length;
+        for (int width = RUN; width < n; width *= 2) {
+            for (int lo = 0; lo + width < n; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+
+                // 两段本来就有序：跳过
+                listener.onCompare(mid - 1, mid);
+                if (array[mid - 1] <= array[mid]) continue;
+
+                // 只拷左段；右段留在原位，归并时写指针永远不会越过右段读指针
+                System.arraycopy(array, lo, buffer, lo, mid - lo);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    // 左段的值此时在辅助数组中，高亮用它原来的位置近似
+                    listener.onCompare(i, j);
+                    int value = (buffer[i] <= array[j]) ? buffer[i++] : array[j++];
+                    array[k] = value;
+                    listener.onSet(k, value);
+                    k++;
+                }
+                // 左段剩余元素放回；右段剩余元素已经在正确位置
+                while (i < mid) {
+                    array[k] = buffer[i];
+                    listener.onSet(k, buffer[i]);
+                    i++;
+                    k++;
+                }
+            }
         }
+    }
 
-        // 复制 R[] 的剩余元素
-        while (j < n2) {
-            array[k] = R[j];
-            if (listener != null) listener.onSet(k, R[j]);
-            j++;
-            k++;
+    private static void insertionSort(int[] array, int lo, int hi, SortStepListener listener) {
+        // 与 InsertionSort 相同的“后移 + 放入”写法，只作用于 [lo, hi)
+        for (int i = lo + 1; i < hi; i++) {
+            int key = array[i];
+            int j = i - 1;
+            while (j >= lo) {
+                if (listener != null) listener.onCompare(i, j);
+                if (array[j] > key) {
+                    array[j + 1] = array[j];
+                    if (listener != null) listener.onSet(j + 1, array[j]);
+                    j--;
+                } else {
+                    break;
+                }
+            }
+            if (j + 1 != i) {
+                array[j + 1] = key;
+                if (listener != null) listener.onSet(j + 1, key);
+            }
         }
     }
 
@@ -85,4 +146,3 @@ public class MergeSort implements Sorter {
         return "Merge Sort";
     }
 }
-
@@ -0,0 +1,201 @@
+package org.example.sortingvisualizer.algorithm.impl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.example.sortingvisualizer.algorithm.SortStepListener;
+import org.example.sortingvisualizer.algorithm.Sorter;
+
+/**
+ * 并行归并排序（Fork/Join）
+ * <p>
+ * 数组二分后两半各自作为 {@link RecursiveAction} 并行排序，区间不超过 {@value #SORT_CUTOFF} 时改用顺序的 {@link MergeSort}。
+ * 归并本身也是并行的：取较长一段的中点，在另一段中二分查找分界位置，把一次大归并拆成两次互不相关的小归并。
+ * 这样最顶层几次归并也能用满所有线程，而不是退化为单线程扫描。
+ * <p>
+ * 各层在原数组与辅助数组之间交替写入（ping-pong），整个排序只分配一次长度为 n 的辅助数组。
+ * <p>
+ * 带监听器时直接交给顺序的 {@link MergeSort}：回调必须按顺序在单个线程上发生，录制/回放才有意义。
+ */
+public class ParallelMergeSort implements Sorter, AutoCloseable {
+
+    /** 区间长度不超过该值时顺序排序。 */
+    private static final int SORT_CUTOFF = 1 << 13;
+    /** 两段总长度不超过该值时顺序归并。 */
+    private static final int MERGE_CUTOFF = 1 << 13;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final MergeSort sequential = new MergeSort();
+
+    /** 使用全部可用处理器。 */
+    public ParallelMergeSort() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 并行度（工作线程数），至少为 1
+     */
+    public ParallelMergeSort(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须 >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        // 工作线程按需创建，空闲一段时间后自行退出，因此注册表中的共享实例不必显式关闭
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void sort(int[] array, SortStepListener listener) {
+        int n = array.length;
+        if (listener != null || n <= SORT_CUTOFF) {
+            sequential.sort(array, listener);
+            return;
+        }
+        pool.invoke(new SortTask(array, new int[n], 0, n, false));
+    }
+
+    /** 关闭内部线程池（例如基准测试里临时创建的实例）。 */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * 排序 array[lo, hi)，结果写到 toBuffer ? buffer : array 的同一区间。
+     * 两个子任务把结果写到“另一个”数组，再由本层归并回目标数组。
+     */
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] buffer;
+        private final int lo;
+        private final int hi;
+        private final boolean toBuffer;
+
+        SortTask(int[] array, int[] buffer, int lo, int hi, boolean toBuffer) {
+            this.array = array;
+            this.buffer = buffer;
+            this.lo = lo;
+            this.hi = hi;
+            this.toBuffer = toBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= SORT_CUTOFF) {
+                MergeSort.sortRange(array, buffer, lo, hi);
+                if (toBuffer) System.arraycopy(array, lo, buffer, lo, hi - lo);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(
+                    new SortTask(array, buffer, lo, mid, !toBuffer),
+                    new SortTask(array, buffer, mid, hi, !toBuffer));
+
+            int[] src = toBuffer ? array : buffer;
+            int[] dst = toBuffer ? buffer : array;
+            if (src[mid - 1] <= src[mid]) {
+                // 两半本来就有序：不必归并，整段搬到目标数组
+                System.arraycopy(src, lo, dst, lo, hi - lo);
+            } else {
+                new MergeTask(src, dst, lo, mid, mid, hi, lo).compute();
+            }
+        }
+    }
+
+    /**
+     * 把 src[lo1, hi1) 与 src[lo2, hi2) 归并到 dst[out, ...)。
+     * 保持稳定：相等元素中来自第一段的排在前面。
+     */
+    private static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] src;
+        private final int[] dst;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final int out;
+
+        MergeTask(int[] src, int[] dst, int lo1, int hi1, int lo2, int hi2, int out) {
+            this.src = src;
+            this.dst = dst;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            int len1 = hi1 - lo1;
+            int len2 = hi2 - lo2;
+            if (len1 + len2 <= MERGE_CUTOFF || len1 == 0 || len2 == 0) {
+                mergeSequential();
+                return;
+            }
+
+            // 在较长一段上取中点，另一段二分出分界：两边各自的“前半”都不大于“后半”
+            int split1;
+            int split2;
+            if (len1 >= len2) {
+                split1 = (lo1 + hi1) >>> 1;
+                // 第二段中严格小于 src[split1] 的元素排在它前面（相等的留在后面，保证稳定）
+                split2 = lowerBound(src, lo2, hi2, src[split1]);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                // 第一段中小于等于 src[split2] 的元素排在它前面
+                split1 = upperBound(src, lo1, hi1, src[split2]);
+            }
+            int outMid = out + (split1 - lo1) + (split2 - lo2);
+            invokeAll(
+                    new MergeTask(src, dst, lo1, split1, lo2, split2, out),
+                    new MergeTask(src, dst, split1, hi1, split2, hi2, outMid));
+        }
+
+        private void mergeSequential() {
+            int i = lo1;
+            int j = lo2;
+            int k = out;
+            while (i < hi1 && j < hi2) {
+                dst[k++] = (src[i] <= src[j]) ? src[i++] : src[j++];
+            }
+            if (i < hi1) System.arraycopy(src, i, dst, k, hi1 - i);
+            if (j < hi2) System.arraycopy(src, j, dst, k, hi2 - j);
+        }
+    }
+
+    /** [lo, hi) 中第一个 >= key 的位置。 */
+    private static int lowerBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** [lo, hi) 中第一个 > key 的位置。 */
+    private static int upperBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel Merge Sort";
+    }
+}
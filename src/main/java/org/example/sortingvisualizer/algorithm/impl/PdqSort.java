@@ -0,0 +1,389 @@
+package org.example.sortingvisualizer.algorithm.impl;
+
+import org.example.sortingvisualizer.algorithm.SortStepListener;
+import org.example.sortingvisualizer.algorithm.Sorter;
+
+/**
+ * 模式消除快速排序（pattern-defeating quicksort, pdqsort）实现
+ * <p>
+ * 在内省式快速排序的基础上：
+ * <ul>
+ *   <li>块划分（BlockQuicksort）：先把一整块元素“是否放错边”的结果写进偏移缓冲（无分支累加），
+ *       再成批交换，随机数据上几乎没有分支预测失败</li>
+ *   <li>划分时若发现区间本来就已划分好，用有限步数的插入排序尝试直接收尾：有序/近乎有序数据接近 O(n)</li>
+ *   <li>与前一个基准相等的区间整体归到左侧（partition_left），大量重复元素时迅速收敛</li>
+ *   <li>划分严重失衡时打乱几个固定位置的元素，破坏对抗性输入的模式；失衡次数过多则改用堆排序</li>
+ * </ul>
+ * 比较回调给出的是 (元素, 基准所在位置)；块交换中的循环移位按 onSet 回调。
+ */
+public class PdqSort implements Sorter {
+
+    /** 区间长度小于该值时改用插入排序。 */
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+    /** 区间长度超过该值时用九数取中选基准。 */
+    private static final int NINTHER_THRESHOLD = 128;
+    /** “已划分好”时尝试插入排序收尾，最多允许移动这么多个位置。 */
+    private static final int PARTIAL_INSERTION_SORT_LIMIT = 8;
+    /** 块划分的块大小。 */
+    private static final int BLOCK_SIZE = 64;
+
+    private final HeapSort heapSort = new HeapSort();
+
+    @Override
+    public void sort(int[] array, SortStepListener listener) {
+        if (array.length < 2) return;
+        // 偏移缓冲每次排序单独分配：注册表里的 Sorter 是共享实例，可能被多个线程同时使用
+        new Run(array, listener).loop(0, array.length, 31 - Integer.numberOfLeadingZeros(array.length), true);
+    }
+
+    /**
+     * 一次排序的上下文：数组、监听器与块划分的偏移缓冲。区间一律为左闭右开 [begin, end)。
+     */
+    private final class Run {
+        private final int[] a;
+        private final SortStepListener listener;
+        private final int[] offsetsL = new int[BLOCK_SIZE];
+        private final int[] offsetsR = new int[BLOCK_SIZE];
+
+        private Run(int[] array, SortStepListener listener) {
+            this.a = array;
+            this.listener = listener;
+        }
+
+        private void loop(int begin, int end, int badAllowed, boolean leftmost) {
+            while (true) {
+                int size = end - begin;
+
+                // 短区间：插入排序。不是最左侧区间时，begin-1 处的元素不大于区间内任何元素，可以省掉边界检查
+                if (size < INSERTION_SORT_THRESHOLD) {
+                    if (leftmost) {
+                        insertionSort(begin, end);
+                    } else {
+                        unguardedInsertionSort(begin, end);
+                    }
+                    return;
+                }
+
+                // 选基准并放到 begin
+                int s2 = size / 2;
+                if (size > NINTHER_THRESHOLD) {
+                    sort3(begin, begin + s2, end - 1);
+                    sort3(begin + 1, begin + (s2 - 1), end - 2);
+                    sort3(begin + 2, begin + (s2 + 1), end - 3);
+                    sort3(begin + (s2 - 1), begin + s2, begin + (s2 + 1));
+                    swap(begin, begin + s2);
+                } else {
+                    sort3(begin + s2, begin, end - 1);
+                }
+
+                // 基准与左邻（上一次的基准）相等：区间内没有更小的元素，把等于基准的都归到左边后只处理右侧
+                if (!leftmost && !less(begin - 1, begin)) {
+                    begin = partitionLeft(begin, end) + 1;
+                    continue;
+                }
+
+                long partitioned = partitionRight(begin, end);
+                int pivotPos = (int) (partitioned >>> 1);
+                boolean alreadyPartitioned = (partitioned & 1) != 0;
+
+                int lSize = pivotPos - begin;
+                int rSize = end - (pivotPos + 1);
+                boolean highlyUnbalanced = lSize < size / 8 || rSize < size / 8;
+
+                if (highlyUnbalanced) {
+                    // 失衡次数用完：改用堆排序，保证最坏 O(n log n)
+                    if (--badAllowed == 0) {
+                        heapSort.sortRange(a, begin, end - 1, listener);
+                        return;
+                    }
+                    // 打乱几个固定位置，破坏导致失衡的输入模式
+                    if (lSize >= INSERTION_SORT_THRESHOLD) {
+                        swap(begin, begin + lSize / 4);
+                        swap(pivotPos - 1, pivotPos - lSize / 4);
+                        if (lSize > NINTHER_THRESHOLD) {
+                            swap(begin + 1, begin + (lSize / 4 + 1));
+                            swap(begin + 2, begin + (lSize / 4 + 2));
+                            swap(pivotPos - 2, pivotPos - (lSize / 4 + 1));
+                            swap(pivotPos - 3, pivotPos - (lSize / 4 + 2));
+                        }
+                    }
+                    if (rSize >= INSERTION_SORT_THRESHOLD) {
+                        swap(pivotPos + 1, pivotPos + (1 + rSize / 4));
+                        swap(end - 1, end - rSize / 4);
+                        if (rSize > NINTHER_THRESHOLD) {
+                            swap(pivotPos + 2, pivotPos + (2 + rSize / 4));
+                            swap(pivotPos + 3, pivotPos + (3 + rSize / 4));
+                            swap(end - 2, end - (1 + rSize / 4));
+                            swap(end - 3, end - (2 + rSize / 4));
+                        }
+                    }
+                } else if (alreadyPartitioned
+                        && partialInsertionSort(begin, pivotPos)
+                        && partialInsertionSort(pivotPos + 1, end)) {
+                    // 本来就已划分好，且两侧只需少量移动即有序：直接结束
+                    return;
+                }
+
+                // 左侧递归，右侧在循环中继续
+                loop(begin, pivotPos, badAllowed, leftmost);
+                begin = pivotPos + 1;
+                leftmost = false;
+            }
+        }
+
+        /**
+         * 以 a[begin] 为基准划分：左侧 &lt; 基准，右侧 &gt;= 基准。
+         * 返回 (基准最终位置 &lt;&lt; 1) | 是否本来就已划分好。
+         */
+        private long partitionRight(int begin, int end) {
+            int pivot = a[begin];
+            int first = begin;
+            int last = end;
+
+            // 第一个 >= 基准的元素（三数取中保证存在）
+            do {
+                first++;
+            } while (lessThanPivot(first, begin, pivot));
+
+            // 最后一个 < 基准的元素；first 紧挨着 begin 时左侧没有哨兵，需要检查边界
+            if (first - 1 == begin) {
+                while (first < last && !lessThanPivot(--last, begin, pivot)) {
+                }
+            } else {
+                while (!lessThanPivot(--last, begin, pivot)) {
+                }
+            }
+
+            boolean alreadyPartitioned = first >= last;
+            if (!alreadyPartitioned) {
+                swap(first, last);
+                first++;
+
+                // 块划分：偏移缓冲记录放错边的元素，左右各攒一块后成批交换
+                int offsetsLBase = first;
+                int offsetsRBase = last;
+                int numL = 0;
+                int numR = 0;
+                int startL = 0;
+                int startR = 0;
+
+                while (first < last) {
+                    // 本轮每侧扫描多少个元素：某侧缓冲还有剩余时该侧本轮不扫描
+                    int numUnknown = last - first;
+                    int leftSplit = (numL == 0) ? ((numR == 0) ? numUnknown / 2 : numUnknown) : 0;
+                    int rightSplit = (numR == 0) ? (numUnknown - leftSplit) : 0;
+
+                    // 无分支填充：每个元素都写入偏移，只有放错边时计数才加一
+                    int leftCount = Math.min(leftSplit, BLOCK_SIZE);
+                    for (int i = 0; i < leftCount; i++) {
+                        if (listener != null) listener.onCompare(first, begin);
+                        offsetsL[numL] = i;
+                        numL += (a[first] >= pivot) ? 1 : 0;
+                        first++;
+                    }
+                    int rightCount = Math.min(rightSplit, BLOCK_SIZE);
+                    for (int i = 1; i <= rightCount; i++) {
+                        last--;
+                        if (listener != null) listener.onCompare(last, begin);
+                        offsetsR[numR] = i;
+                        numR += (a[last] < pivot) ? 1 : 0;
+                    }
+
+                    // 成对交换两侧放错边的元素
+                    int num = Math.min(numL, numR);
+                    swapOffsets(offsetsLBase, offsetsRBase, startL, startR, num, numL == numR);
+                    numL -= num;
+                    numR -= num;
+                    startL += num;
+                    startR += num;
+
+                    if (numL == 0) {
+                        startL = 0;
+                        offsetsLBase = first;
+                    }
+                    if (numR == 0) {
+                        startR = 0;
+                        offsetsRBase = last;
+                    }
+                }
+
+                // 扫描结束：把某一侧剩下的放错元素换到分界处
+                if (numL != 0) {
+                    while (numL-- > 0) {
+                        swap(offsetsLBase + offsetsL[startL + numL], --last);
+                    }
+                    first = last;
+                }
+                if (numR != 0) {
+                    while (numR-- > 0) {
+                        swap(offsetsRBase - offsetsR[startR + numR], first);
+                        first++;
+                    }
+                }
+            }
+
+            // 基准归位
+            int pivotPos = first - 1;
+            set(begin, a[pivotPos]);
+            set(pivotPos, pivot);
+            return ((long) pivotPos << 1) | (alreadyPartitioned ? 1 : 0);
+        }
+
+        /**
+         * 交换 num 对放错边的元素。两侧个数相同时逐对交换；否则用一次循环移位（每个元素只写一次）。
+         */
+        private void swapOffsets(int leftBase, int rightBase, int startL, int startR, int num, boolean useSwaps) {
+            if (useSwaps) {
+                for (int i = 0; i < num; i++) {
+                    swap(leftBase + offsetsL[startL + i], rightBase - offsetsR[startR + i]);
+                }
+            } else if (num > 0) {
+                int l = leftBase + offsetsL[startL];
+                int r = rightBase - offsetsR[startR];
+                int tmp = a[l];
+                set(l, a[r]);
+                for (int i = 1; i < num; i++) {
+                    l = leftBase + offsetsL[startL + i];
+                    set(r, a[l]);
+                    r = rightBase - offsetsR[startR + i];
+                    set(l, a[r]);
+                }
+                set(r, tmp);
+            }
+        }
+
+        /**
+         * 以 a[begin] 为基准划分：左侧 &lt;= 基准，右侧 &gt; 基准。用于“基准与左邻相等”的区间。
+         */
+        private int partitionLeft(int begin, int end) {
+            int pivot = a[begin];
+            int first = begin;
+            int last = end;
+
+            do {
+                last--;
+            } while (pivotLess(last, begin, pivot));
+
+            if (last + 1 == end) {
+                while (first < last && !pivotLess(++first, begin, pivot)) {
+                }
+            } else {
+                while (!pivotLess(++first, begin, pivot)) {
+                }
+            }
+
+            while (first < last) {
+                swap(first, last);
+                do {
+                    last--;
+                } while (pivotLess(last, begin, pivot));
+                do {
+                    first++;
+                } while (!pivotLess(first, begin, pivot));
+            }
+
+            int pivotPos = last;
+            set(begin, a[pivotPos]);
+            set(pivotPos, pivot);
+            return pivotPos;
+        }
+
+        private void insertionSort(int begin, int end) {
+            for (int cur = begin + 1; cur < end; cur++) {
+                if (less(cur, cur - 1)) {
+                    int tmp = a[cur];
+                    int sift = cur;
+                    do {
+                        set(sift, a[sift - 1]);
+                        sift--;
+                    } while (sift != begin && heldLess(tmp, sift - 1, sift));
+                    set(sift, tmp);
+                }
+            }
+        }
+
+        private void unguardedInsertionSort(int begin, int end) {
+            // begin-1 处是不大于区间内任何元素的哨兵，向左移动时不必检查边界
+            for (int cur = begin + 1; cur < end; cur++) {
+                if (less(cur, cur - 1)) {
+                    int tmp = a[cur];
+                    int sift = cur;
+                    do {
+                        set(sift, a[sift - 1]);
+                        sift--;
+                    } while (heldLess(tmp, sift - 1, sift));
+                    set(sift, tmp);
+                }
+            }
+        }
+
+        private boolean partialInsertionSort(int begin, int end) {
+            // 与插入排序相同，但累计移动超过上限就放弃（返回 false），把区间留给快速排序
+            int limit = 0;
+            for (int cur = begin + 1; cur < end; cur++) {
+                if (less(cur, cur - 1)) {
+                    int tmp = a[cur];
+                    int sift = cur;
+                    do {
+                        set(sift, a[sift - 1]);
+                        sift--;
+                    } while (sift != begin && heldLess(tmp, sift - 1, sift));
+                    set(sift, tmp);
+                    limit += cur - sift;
+                }
+                if (limit > PARTIAL_INSERTION_SORT_LIMIT) return false;
+            }
+            return true;
+        }
+
+        private void sort3(int i, int j, int k) {
+            sort2(i, j);
+            sort2(j, k);
+            sort2(i, j);
+        }
+
+        private void sort2(int i, int j) {
+            if (less(j, i)) swap(i, j);
+        }
+
+        private boolean less(int i, int j) {
+            if (listener != null) listener.onCompare(i, j);
+            return a[i] < a[j];
+        }
+
+        /** a[i] &lt; pivot；基准值存放在 pivotIndex。 */
+        private boolean lessThanPivot(int i, int pivotIndex, int pivot) {
+            if (listener != null) listener.onCompare(i, pivotIndex);
+            return a[i] < pivot;
+        }
+
+        /** value &lt; a[i]：插入排序中手上的值与数组元素比较，holeIndex 为它当前的空位。 */
+        private boolean heldLess(int value, int i, int holeIndex) {
+            if (listener != null) listener.onCompare(holeIndex, i);
+            return value < a[i];
+        }
+
+        /** pivot &lt; a[i]；基准值存放在 pivotIndex。 */
+        private boolean pivotLess(int i, int pivotIndex, int pivot) {
+            if (listener != null) listener.onCompare(pivotIndex, i);
+            return pivot < a[i];
+        }
+
+        private void swap(int i, int j) {
+            int temp = a[i];
+            a[i] = a[j];
+            a[j] = temp;
+            if (listener != null) listener.onSwap(i, j);
+        }
+
+        private void set(int i, int value) {
+            a[i] = value;
+            if (listener != null) listener.onSet(i, value);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Pdq Sort";
+    }
+}
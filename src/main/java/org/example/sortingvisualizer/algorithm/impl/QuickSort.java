@@ -4,72 +4,134 @@ import org.example.sortingvisualizer.algorithm.SortStepListener;
 import org.example.sortingvisualizer.algorithm.Sorter;
 
 /**
- * 快速排序实现
- * 采用递归方式和标准 Partition 操作
+ * 快速排序实现（内省式）
+ * <p>
+ * 在标准快速排序基础上做了几处加固，避免有序/逆序/大量重复数据上退化为 O(n²)：
+ * <ul>
+ *   <li>基准：三数取中；区间较大时用“九数取中”（Tukey ninther）</li>
+ *   <li>三路划分（荷兰国旗）：与基准相等的元素一次性归位，重复元素多时区间迅速缩小</li>
+ *   <li>只递归较短的一侧，较长的一侧在循环中继续：递归深度不超过 O(log n)</li>
+ *   <li>划分层数超过 2·log₂n 时改用堆排序，最坏情况也是 O(n log n)</li>
+ *   <li>短区间改用插入排序</li>
+ * </ul>
  */
 public class QuickSort implements Sorter {
 
+    /** 区间长度不超过该值时改用插入排序。 */
+    private static final int INSERTION_CUTOFF = 16;
+    /** 区间长度超过该值时用九数取中选基准。 */
+    private static final int NINTHER_THRESHOLD = 128;
+
+    private final HeapSort heapSort = new HeapSort();
+
     @Override
     public void sort(int[] array, SortStepListener listener) {
         // 对整个数组区间 [0, n-1] 进行快速排序；listener 用于把关键步骤回调给“录制/可视化”
-        quickSort(array, 0, array.length - 1, listener);
+        if (array.length < 2) return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(array.length));
+        quickSort(array, 0, array.length - 1, depthLimit, listener);
     }
 
-    private void quickSort(int[] array, int low, int high, SortStepListener listener) {
-        // 递归终止条件：当区间长度 <= 1 时已天然有序
-        if (low < high) {
-            // partition 会把 pivot 放到最终位置，并返回 pivot 下标
-            int pi = partition(array, low, high, listener);
-
-            // 递归处理 pivot 左侧子区间
-            quickSort(array, low, pi - 1, listener);
-            // 递归处理 pivot 右侧子区间
-            quickSort(array, pi + 1, high, listener);
-        }
-    }
+    private void quickSort(int[] array, int low, int high, int depthLimit, SortStepListener listener) {
+        while (high - low + 1 > INSERTION_CUTOFF) {
+            // 划分层数用完：说明基准一直选得很差，剩余区间交给堆排序
+            if (depthLimit-- == 0) {
+                heapSort.sortRange(array, low, high, listener);
+                return;
+            }
 
-    private int partition(int[] array, int low, int high, SortStepListener listener) {
-        // 选择最后一个元素作为 pivot（基准值）
-        int pivot = array[high];
-        // i 指向“已发现的小于 pivot 的最后位置”（初始为 low-1，表示尚未发现）
-        int i = (low - 1); // index of smaller element
+            // 选好的基准先换到区间开头
+            int p = choosePivot(array, low, high, listener);
+            swap(array, low, p, listener);
 
-        for (int j = low; j < high; j++) {
-            // j 扫描 [low, high-1] 区间的每个元素，逐个与 pivot 比较
-            // 触发比较事件（供录制/可视化高亮）
-            if (listener != null) {
-                listener.onCompare(j, high); // 把 j 与 pivot(在 high 位置) 的比较回调出去
+            // 三路划分：[low, lt) < pivot，[lt, i) == pivot，(gt, high] > pivot
+            // array[lt] 始终等于基准值，因此比较回调给出 (i, lt)
+            int lt = low;
+            int i = low + 1;
+            int gt = high;
+            while (i <= gt) {
+                if (listener != null) listener.onCompare(i, lt);
+                if (array[i] < array[lt]) {
+                    swap(array, lt, i, listener);
+                    lt++;
+                    i++;
+                } else if (array[i] > array[lt]) {
+                    swap(array, i, gt, listener);
+                    gt--;
+                } else {
+                    i++;
+                }
             }
 
-            // 如果当前元素 < pivot，则它应该被放到“左侧小元素区”
-            if (array[j] < pivot) {
-                i++; // 扩大左侧小元素区边界
+            // 递归处理较短的一侧，较长的一侧留在循环里继续（尾递归消除）
+            if (lt - low < high - gt) {
+                quickSort(array, low, lt - 1, depthLimit, listener);
+                low = gt + 1;
+            } else {
+                quickSort(array, gt + 1, high, depthLimit, listener);
+                high = lt - 1;
+            }
+        }
+        insertionSort(array, low, high, listener);
+    }
 
-                // 交换 array[i] 和 array[j]：把这个小元素放到左侧区间末尾
-                int temp = array[i];
-                array[i] = array[j];
-                array[j] = temp;
+    private int choosePivot(int[] array, int low, int high, SortStepListener listener) {
+        int size = high - low + 1;
+        int mid = low + (size >>> 1);
+        if (size > NINTHER_THRESHOLD) {
+            // 九数取中：三组各取中位数，再取三者的中位数
+            int step = size / 8;
+            int a = median3(array, low, low + step, low + 2 * step, listener);
+            int b = median3(array, mid - step, mid, mid + step, listener);
+            int c = median3(array, high - 2 * step, high - step, high, listener);
+            return median3(array, a, b, c, listener);
+        }
+        return median3(array, low, mid, high, listener);
+    }
 
-                // 触发交换事件（供录制/可视化）
-                if (listener != null) {
-                    listener.onSwap(i, j);
-                }
-            }
+    private static int median3(int[] array, int a, int b, int c, SortStepListener listener) {
+        // 返回三个下标中“值居中”的那个下标（只比较，不移动元素）
+        if (less(array, a, b, listener)) {
+            if (less(array, b, c, listener)) return b;
+            return less(array, a, c, listener) ? c : a;
         }
+        if (less(array, a, c, listener)) return a;
+        return less(array, b, c, listener) ? c : b;
+    }
 
-        // 扫描结束后：i 指向最后一个“小于 pivot”的位置
-        // 把 pivot 放到 i+1（pivot 的最终位置）
-        int temp = array[i + 1];
-        array[i + 1] = array[high];
-        array[high] = temp;
+    private static boolean less(int[] array, int i, int j, SortStepListener listener) {
+        if (listener != null) listener.onCompare(i, j);
+        return array[i] < array[j];
+    }
 
-        // 触发 pivot 最终交换事件
-        if (listener != null) {
-            listener.onSwap(i + 1, high);
+    private static void insertionSort(int[] array, int low, int high, SortStepListener listener) {
+        // 短区间：与 InsertionSort 相同的“后移 + 放入”写法
+        for (int i = low + 1; i <= high; i++) {
+            int key = array[i];
+            int j = i - 1;
+            while (j >= low) {
+                if (listener != null) listener.onCompare(i, j);
+                if (array[j] > key) {
+                    array[j + 1] = array[j];
+                    if (listener != null) listener.onSet(j + 1, array[j]);
+                    j--;
+                } else {
+                    break;
+                }
+            }
+            if (j + 1 != i) {
+                array[j + 1] = key;
+                if (listener != null) listener.onSet(j + 1, key);
+            }
         }
+    }
 
-        // 返回 pivot 下标：左边都 < pivot，右边都 >= pivot
-        return i + 1;
+    private static void swap(int[] array, int i, int j, SortStepListener listener) {
+        if (i == j) return;
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+        if (listener != null) listener.onSwap(i, j);
     }
 
     @Override
@@ -78,4 +140,3 @@ public class QuickSort implements Sorter {
         return "Quick Sort";
     }
 }
-
@@ -1,59 +1,225 @@
 package org.example.sortingvisualizer.algorithm.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
 import org.example.sortingvisualizer.algorithm.SortStepListener;
 import org.example.sortingvisualizer.algorithm.Sorter;
-import java.util.Arrays;
 
 /**
  * 基数排序实现 (LSD)
+ * <p>
+ * 以字节为一位（基数 256），int 最多 4 趟；取位只需移位和掩码，不做除法。
+ * <ul>
+ *   <li>负数：取位前先翻转符号位，使有符号顺序变成无符号顺序，负数自然排在前面</li>
+ *   <li>第一次读数组时同时统计 4 个位的直方图；某一位上所有元素都相同（某个桶计数等于 n）时跳过这一趟</li>
+ *   <li>无监听器且数据量较大时分块并行：每个线程统计自己那块的直方图，再按“桶序 + 线程序”算出各线程的写入起点并行分发，结果仍然稳定</li>
+ * </ul>
+ * 各趟在原数组与辅助数组之间交替写入，整个排序只分配一次长度为 n 的辅助数组。
+ * 带监听器时顺序执行，每趟分发后把结果逐个写回原数组并回调 onSet。
  */
-public class RadixSort implements Sorter {
+public class RadixSort implements Sorter, AutoCloseable {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int MASK = RADIX - 1;
+    private static final int PASSES = Integer.SIZE / RADIX_BITS;
+    /** 每个线程至少处理的元素数：块太小时线程调度的开销比收益大。 */
+    private static final int MIN_CHUNK = 1 << 15;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    /** 使用全部可用处理器。 */
+    public RadixSort() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 并行度（工作线程数），至少为 1
+     */
+    public RadixSort(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须 >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        // 工作线程按需创建，空闲一段时间后自行退出，因此注册表中的共享实例不必显式关闭
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
 
     @Override
     public void sort(int[] array, SortStepListener listener) {
         int n = array.length;
-        if (n == 0) return;
+        if (n < 2) return;
 
-        // 寻找最大值以确定位数
-        int max = array[0];
-        for (int i = 1; i < n; i++) {
-            if (listener != null) listener.onCompare(i, 0);
-            if (array[i] > max) max = array[i];
+        if (listener != null) {
+            sortWithListener(array, listener);
+            return;
         }
+        int chunks = Math.max(1, Math.min(parallelism, n / MIN_CHUNK));
+        sortChunked(array, chunks);
+    }
 
-        // 对每一位进行计数排序
-        for (int exp = 1; max / exp > 0; exp *= 10) {
-            countSort(array, n, exp, listener);
-        }
+    /** 关闭内部线程池（例如基准测试里临时创建的实例）。 */
+    @Override
+    public void close() {
+        pool.shutdown();
     }
 
-    private void countSort(int[] array, int n, int exp, SortStepListener listener) {
-        int[] output = new int[n];
-        int[] count = new int[10];
-        Arrays.fill(count, 0);
+    private void sortWithListener(int[] array, SortStepListener listener) {
+        int n = array.length;
 
-        // 统计频率
+        // 一次读完统计全部 4 个位的直方图（整体直方图与元素顺序无关，后面每趟都能直接用）
+        int[] counts = new int[PASSES * RADIX];
         for (int i = 0; i < n; i++) {
-            count[(array[i] / exp) % 10]++;
-            if (listener != null) listener.onCompare(i, i); // 视觉反馈
+            listener.onCompare(i, i); // 视觉反馈
+            countAllDigits(array[i], counts);
+        }
+
+        int[] buffer = new int[n];
+        int[] offsets = new int[RADIX];
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * RADIX;
+            if (isTrivialPass(counts, base, n)) continue;
+
+            // 桶的起始位置 = 前面所有桶的计数之和
+            int sum = 0;
+            for (int b = 0; b < RADIX; b++) {
+                offsets[b] = sum;
+                sum += counts[base + b];
+            }
+
+            // 从前往后分发到辅助数组（保持稳定）
+            int shift = pass * RADIX_BITS;
+            for (int i = 0; i < n; i++) {
+                buffer[offsets[digit(array[i], shift)]++] = array[i];
+            }
+
+            // 复制回原数组
+            for (int i = 0; i < n; i++) {
+                array[i] = buffer[i];
+                listener.onSet(i, array[i]);
+            }
+        }
+    }
+
+    private void sortChunked(int[] array, int chunks) {
+        int n = array.length;
+
+        // 1) 每块统计自己的 4 个位的直方图
+        int[][] counts = new int[chunks][PASSES * RADIX];
+        runChunks(chunks, t -> {
+            int[] local = counts[t];
+            for (int i = chunkStart(t, chunks, n), end = chunkStart(t + 1, chunks, n); i < end; i++) {
+                countAllDigits(array[i], local);
+            }
+        });
+
+        // 各块相加得到整体直方图，用于判断哪些趟可以跳过
+        int[] totals = new int[PASSES * RADIX];
+        for (int[] local : counts) {
+            for (int k = 0; k < totals.length; k++) totals[k] += local[k];
         }
 
-        // 累加
-        for (int i = 1; i < 10; i++) {
-            count[i] += count[i - 1];
+        int[] src = array;
+        int[] dst = new int[n];
+        boolean firstPass = true;
+        int[][] offsets = new int[chunks][RADIX];
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * RADIX;
+            if (isTrivialPass(totals, base, n)) continue;
+
+            int shift = pass * RADIX_BITS;
+            final int[] from = src;
+            final int[] to = dst;
+
+            // 2) 第一趟读的就是原数组，直接沿用上面的分块直方图；之后元素已经换了位置，需要按块重新统计这一位
+            if (!firstPass) {
+                runChunks(chunks, t -> {
+                    int[] local = counts[t];
+                    Arrays.fill(local, base, base + RADIX, 0);
+                    for (int i = chunkStart(t, chunks, n), end = chunkStart(t + 1, chunks, n); i < end; i++) {
+                        local[base + digit(from[i], shift)]++;
+                    }
+                });
+            }
+            firstPass = false;
+
+            // 3) 写入起点：先按桶、桶内再按块的顺序累加，块 t 的元素排在块 t-1 之后，保证稳定
+            int sum = 0;
+            for (int b = 0; b < RADIX; b++) {
+                for (int t = 0; t < chunks; t++) {
+                    offsets[t][b] = sum;
+                    sum += counts[t][base + b];
+                }
+            }
+
+            // 4) 各块并行分发，写入区间互不重叠
+            runChunks(chunks, t -> {
+                int[] next = offsets[t];
+                for (int i = chunkStart(t, chunks, n), end = chunkStart(t + 1, chunks, n); i < end; i++) {
+                    int value = from[i];
+                    to[next[digit(value, shift)]++] = value;
+                }
+            });
+
+            // 交换角色：本趟的目标数组就是下一趟的来源
+            src = to;
+            dst = from;
         }
 
-        // 构建输出
-        for (int i = n - 1; i >= 0; i--) {
-            output[count[(array[i] / exp) % 10] - 1] = array[i];
-            count[(array[i] / exp) % 10]--;
+        // 最后一趟写进了辅助数组：拷回原数组
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, n);
         }
+    }
 
-        // 复制回原数组
-        for (int i = 0; i < n; i++) {
-            array[i] = output[i];
-            if (listener != null) listener.onSet(i, array[i]);
+    /** 对每个块执行 body；只有一块时直接在当前线程执行。 */
+    private void runChunks(int chunks, IntConsumer body) {
+        if (chunks == 1) {
+            body.accept(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int t = 0; t < chunks; t++) {
+            final int chunk = t;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(chunk)));
         }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private static int chunkStart(int chunk, int chunks, int n) {
+        return (int) ((long) chunk * n / chunks);
+    }
+
+    private static void countAllDigits(int value, int[] counts) {
+        int key = value ^ Integer.MIN_VALUE;
+        for (int pass = 0; pass < PASSES; pass++) {
+            counts[pass * RADIX + ((key >>> (pass * RADIX_BITS)) & MASK)]++;
+        }
+    }
+
+    private static int digit(int value, int shift) {
+        // 翻转符号位：有符号顺序 → 无符号顺序（只影响最高字节）
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & MASK;
+    }
+
+    private static boolean isTrivialPass(int[] counts, int base, int n) {
+        // 所有元素在这一位上相同：分发不会改变顺序
+        for (int b = 0; b < RADIX; b++) {
+            int c = counts[base + b];
+            if (c == n) return true;
+            if (c != 0) return false;
+        }
+        return false;
     }
 
     @Override
@@ -61,4 +227,3 @@ public class RadixSort implements Sorter {
         return "Radix Sort";
     }
 }
-
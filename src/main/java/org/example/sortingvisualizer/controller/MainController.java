@@ -1,23 +1,44 @@
 package org.example.sortingvisualizer.controller;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 import org.example.sortingvisualizer.algorithm.AlgorithmRegistry;
 import org.example.sortingvisualizer.algorithm.Sorter;
 import org.example.sortingvisualizer.model.PerformanceMetrics;
+import org.example.sortingvisualizer.model.SpeedupMetrics;
 import org.example.sortingvisualizer.playback.PlaybackController;
 import org.example.sortingvisualizer.playback.PlaybackSnapshot;
+import org.example.sortingvisualizer.playback.RaceController;
 import org.example.sortingvisualizer.service.BenchmarkService;
 import org.example.sortingvisualizer.service.DataInputService;
+import org.example.sortingvisualizer.service.RaceService;
+import org.example.sortingvisualizer.service.RecordingCache;
+import org.example.sortingvisualizer.service.RecordingFileService;
+import org.example.sortingvisualizer.service.RecordingPolicy;
 import org.example.sortingvisualizer.service.StepRecordingService;
+import org.example.sortingvisualizer.step.AccessHeatmap;
+import org.example.sortingvisualizer.step.CompactOperationLog;
+import org.example.sortingvisualizer.step.OperationBuffer;
+import org.example.sortingvisualizer.step.OperationCompactor;
+import org.example.sortingvisualizer.step.OperationLog;
 import org.example.sortingvisualizer.step.RecordedSort;
+import org.example.sortingvisualizer.step.RecordingFile;
+import org.example.sortingvisualizer.step.SampledOperationLog;
+import org.example.sortingvisualizer.step.SpillingOperationLog;
 import org.example.sortingvisualizer.step.SortOperation;
 import org.example.sortingvisualizer.step.SortOperationType;
+import org.example.sortingvisualizer.step.TouchIndex;
 import org.example.sortingvisualizer.util.DataGenerator;
 import org.example.sortingvisualizer.view.BenchmarkViewBuilder;
+import org.example.sortingvisualizer.view.HeatmapView;
+import org.example.sortingvisualizer.view.RaceView;
 import org.example.sortingvisualizer.view.VisualizerPane;
 
 import javafx.concurrent.Task;
@@ -47,6 +68,7 @@ import javafx.stage.Window;
  *   <li>排序步骤录制与回放：由 {@link StepRecordingService} 与 {@link org.example.sortingvisualizer.playback.PlaybackController} 负责</li>
  *   <li>性能比较与统计：由 {@link BenchmarkService} 负责</li>
  *   <li>数据解析（字符串/文件）：由 {@link DataInputService} 负责</li>
+ *   <li>录制文件保存/打开：由 {@link RecordingFileService} 负责</li>
  *   <li>绘制与动画表现：由 {@link VisualizerPane} 负责</li>
  * </ul>
  * Controller 只传递“算法名/数据/速度/是否显示标签”等参数，不在这里写任何排序逻辑。
@@ -56,6 +78,7 @@ import javafx.stage.Window;
  *   <li>可视化模式：{@code rootPane.center = visualizerPane}</li>
  *   <li>基准测试结果模式：{@code rootPane.center = TabPane(时间/内存/表格)}</li>
  * </ul>
+ * 录制完成后，访问热力图显示在 {@code rootPane.right}（{@link HeatmapView}）。
  */
 public class MainController {
 
@@ -63,6 +86,9 @@ public class MainController {
 
     private final BenchmarkViewBuilder benchmarkViewBuilder = new BenchmarkViewBuilder();
 
+    /** 访问热力图视图：录制完成后放到主界面右侧，回放卸载时移除。 */
+    private final HeatmapView heatmapView = new HeatmapView();
+
     /** 回放控制器：封装 next/prev/start/pause + 定时逻辑。 */
     private final PlaybackController playbackController = new PlaybackController();
 
@@ -122,14 +148,38 @@ public class MainController {
     @FXML
     private Button loadFileButton;
 
+    /** 保存录制：把当前（已录制完成的）回放保存为 *.svrec 文件。 */
+    @FXML
+    private Button saveRecordingButton;
+
+    /** 打开录制：直接回放录制文件，不重新运行排序算法。 */
+    @FXML
+    private Button openRecordingButton;
+
+    /** 录制策略：大数据量时可以只抽样/不录制比较，统计次数仍保持精确。 */
+    @FXML
+    private ComboBox<RecordingPolicy> recordingPolicyComboBox;
+
     /** 是否显示柱子上的数值标签（只影响绘制，不影响排序）。 */
     @FXML
     private CheckBox showValuesCheckbox;
 
-    /** 速度滑块：值越大，动画越快（控制 delay）。 */
+    /** 渲染方式：节点 / 画布（只影响绘制）。 */
+    @FXML
+    private ComboBox<VisualizerPane.RenderMode> renderModeComboBox;
+
+    /** 速度滑块：值越大，动画越快（控制每秒回放步数）。 */
     @FXML
     private Slider speedSlider;
 
+    /** 定时播完开关：勾选后忽略速度滑块，整段录制在指定秒数内放完。 */
+    @FXML
+    private CheckBox timeLapseCheckbox;
+
+    /** 定时播完的目标秒数。 */
+    @FXML
+    private TextField timeLapseSecondsField;
+
     /** 底部状态提示：用于显示当前模式、进度、错误信息。 */
     @FXML
     private Label statusLabel;
@@ -138,10 +188,42 @@ public class MainController {
     @FXML
     private Label stepLabel;
 
+    /** 时间轴：拖动可直接跳到任意一步（由 StepPlayer 的关键帧支撑随机跳转）。 */
+    @FXML
+    private Slider timelineSlider;
+
     /** 当前操作回显：例如“交换 a[3]=4 与 a[5]=7”。 */
     @FXML
     private Label operationLabel;
 
+    /** 定位输入：单个下标（例如 5）或闭区间（例如 3-8）。 */
+    @FXML
+    private TextField touchIndexField;
+
+    /** 跳到上一次访问该下标的步。 */
+    @FXML
+    private Button prevTouchButton;
+
+    /** 跳到下一次访问该下标的步。 */
+    @FXML
+    private Button nextTouchButton;
+
+    /** 跳到该下标的元素归位的步。 */
+    @FXML
+    private Button settledButton;
+
+    /** 跳到区间第一次有序的步。 */
+    @FXML
+    private Button rangeSortedButton;
+
+    /** 竞速方式：按操作数 / 按实际耗时。 */
+    @FXML
+    private ComboBox<RaceController.Mode> raceModeComboBox;
+
+    /** 算法竞速：多个算法在同一数据上并排回放。 */
+    @FXML
+    private Button raceButton;
+
     /** 统计：比较次数（当前/总）。 */
     @FXML
     private Label compareCountLabel;
@@ -166,17 +248,70 @@ public class MainController {
     private final BenchmarkService benchmarkService = new BenchmarkService();
     /** 输入服务：解析自定义输入字符串、读取文件并转成 int[]。 */
     private final DataInputService dataInputService = new DataInputService();
+    /** 录制文件服务：保存/打开二进制录制文件。 */
+    private final RecordingFileService recordingFileService = new RecordingFileService();
+    /** 竞速服务：并行录制多个算法并测量各自的真实耗时。 */
+    private final RaceService raceService = new RaceService();
+
+    /** 录制结果缓存：同一算法/策略/数据重复排序时直接回放，不再重新录制。 */
+    private final RecordingCache recordingCache = new RecordingCache();
+
+    /** 当前录制任务引用（边录边放期间一直存在）：用于“退出排序”时取消。 */
+    private Task<Void> currentRecordTask;
+
+    /** 竞速准备任务（并行录制 + 计时）：用于“退出排序”时取消。 */
+    private Task<List<RaceService.Entry>> currentRaceTask;
+
+    /** 当前竞速回放；为 null 表示不在竞速模式。 */
+    private RaceController raceController;
+
+    /** 竞速的数据量上限：每条赛道都要完整录制并常驻内存，O(n²) 算法在更大数据上步数过多。 */
+    private static final int RACE_MAX_SIZE = 3000;
+
+    /** 生成数据的上限：超过像素宽度的部分由聚合渲染按列合并显示。 */
+    private static final int MAX_DATA_SIZE = 1_000_000;
+
+    /** O(n²) 算法（以及希尔排序）可视化排序的数据量上限：步数约 n²/2，超过后录制日志过大。 */
+    private static final int QUADRATIC_SORT_MAX_SIZE = 3000;
+
+    /** 睡眠排序/珠排序的数据量上限（与提高生成上限之前相同）：线程数或网格大小随 n 增长。 */
+    private static final int DEMO_SORT_MAX_SIZE = 500;
+
+    /** 节点渲染适合的最大数据量：超过时自动切换到聚合渲染。 */
+    private static final int NODE_RENDER_MAX_SIZE = 500;
+
+    /** 性能比较包含该算法时，额外测量它相对归并排序的并行加速比。 */
+    private static final String PARALLEL_ALGORITHM = "并行归并排序";
 
-    /** 当前录制任务引用：用于“退出排序”时取消。 */
-    private Task<RecordedSort> currentRecordTask;
+    /** 程序内部同步时间轴位置时为 true：避免 setValue 触发 seek 形成回环。 */
+    private boolean syncingTimeline;
 
     /** 快捷键是否已安装到 Scene。 */
     private boolean shortcutsInstalled;
 
-    /** 统计前缀数组：prefix[i] 表示前 i 步（0..i-1）累计次数。 */
-    private int[] comparePrefix;
-    private int[] swapPrefix;
-    private int[] setPrefix;
+    /** 统计来源：操作日志自带按块累计的次数，不再为每一步额外维护前缀数组。 */
+    private OperationLog statsLog;
+
+    /** 当前回放使用的日志（录制溢出日志或录制文件）；回放卸载时负责关闭（删除溢出文件/释放文件句柄）。 */
+    private OperationLog recordingLog;
+
+    /**
+     * 后台保存任务正在读取的日志。录制压缩完成或回放卸载时，这些日志推迟到保存结束再关闭，
+     * 否则保存线程会读到已删除的溢出文件。
+     */
+    private final Map<OperationLog, SaveReaders> logsBeingSaved = new IdentityHashMap<>();
+
+    /** 某个日志上进行中的保存任务数，以及回放是否已放弃它（最后一个保存结束时关闭）。 */
+    private static final class SaveReaders {
+        private int count;
+        private boolean closeWhenDone;
+    }
+
+    /** 当前回放的访问倒排索引：录制完成后在后台建立，用于“跳到下次访问/归位”等定位。 */
+    private TouchIndex touchIndex;
+
+    /** 当前回放对应的录制结果：用于“保存录制”。 */
+    private RecordedSort currentRecording;
 
     /** 是否对当前回放禁用统计（例如：猴子排序步骤数量不可控）。 */
     private boolean suppressStepStats;
@@ -187,21 +322,21 @@ public class MainController {
     /** 标记本次取消是否由用户点击“退出排序”触发。 */
     private boolean exitRequestedByUser;
 
-    /** 动画每一步的延迟（毫秒）。会被 speedSlider 动态更新。 */
-    private long delay = 50;
+    /** 自动回放速度（每秒步数）。会被 speedSlider 动态更新。 */
+    private double stepsPerSecond = 20;
 
-    private long mapSpeedToDelay(double sliderValue) {
-        // 非线性映射：滑块越大，越快（delay 越小）
-        // 目标范围：最快 1ms，最慢 1000ms
-        // 说明：这里返回的是“每一步动画的 sleep 时长”，并非排序耗时
-        final double minDelay = 1.0;
-        final double maxDelay = 1000.0;
+    /** 速度滑块最慢/最快对应的每秒步数。 */
+    private static final double MIN_STEPS_PER_SECOND = 1.0;
+    private static final double MAX_STEPS_PER_SECOND = 5_000_000.0;
 
+    private double mapSpeedToStepsPerSecond(double sliderValue) {
+        // 非线性映射：滑块越大，越快（每秒步数越多）
+        // 目标范围：最慢每秒 1 步，最快每秒 500 万步（回放按帧推进，一帧可以执行很多步）
         double min = (speedSlider != null) ? speedSlider.getMin() : 1.0;
         double max = (speedSlider != null) ? speedSlider.getMax() : 100.0;
         if (max <= min) {
             // 防御：滑块范围异常时使用一个中等默认值
-            return 50;
+            return 20;
         }
 
         double t = (sliderValue - min) / (max - min); // 0..1
@@ -209,15 +344,29 @@ public class MainController {
         if (t < 0) t = 0;
         if (t > 1) t = 1;
 
-        // 指数曲线：低延迟区更“细腻”，高延迟区跨度更大
-        // 公式：delay = minDelay * (maxDelay/minDelay)^(1-t)
-        // t=0 -> maxDelay（最慢），t=1 -> minDelay（最快）
-        double delayMs = minDelay * Math.pow(maxDelay / minDelay, 1.0 - t);
-        long rounded = Math.round(delayMs);
-        // 最终收敛到 [1,1000]，避免极端值导致 UI 卡顿或过快看不清
-        if (rounded < 1) return 1;
-        if (rounded > 1000) return 1000;
-        return rounded;
+        // 指数曲线：跨越近 7 个数量级，滑块每移动一小段速度都按比例变化
+        // 公式：sps = minSps * (maxSps/minSps)^t
+        // t=0 -> minSps（最慢），t=1 -> maxSps（最快）
+        return MIN_STEPS_PER_SECOND * Math.pow(MAX_STEPS_PER_SECOND / MIN_STEPS_PER_SECOND, t);
+    }
+
+    private void applyTimeLapse() {
+        // 勾选且秒数合法时按“总步数/秒数”推进；否则回到速度滑块
+        boolean enabled = timeLapseCheckbox != null && timeLapseCheckbox.isSelected();
+        double seconds = 0;
+        if (enabled && timeLapseSecondsField != null) {
+            try {
+                seconds = Double.parseDouble(timeLapseSecondsField.getText().trim());
+            } catch (NumberFormatException ex) {
+                seconds = 0;
+            }
+            if (!(seconds > 0) || Double.isInfinite(seconds)) {
+                statusLabel.setText("定时播完的秒数必须为正数");
+                seconds = 0;
+            }
+        }
+        playbackController.setTargetDurationSeconds(seconds);
+        speedSlider.setDisable(seconds > 0);
     }
 
     @FXML
@@ -228,8 +377,9 @@ public class MainController {
 
         // 2) 监听面板大小变化以触发重绘。
         //    目的：窗口缩放时，柱子宽度/高度需要重新计算
-        visualizerPane.widthProperty().addListener((obs, oldVal, newVal) -> visualizerPane.setArray(currentArray));
-        visualizerPane.heightProperty().addListener((obs, oldVal, newVal) -> visualizerPane.setArray(currentArray));
+        //    重绘面板自己持有的当前画面（回放中也是回放状态），而不是 currentArray
+        visualizerPane.widthProperty().addListener((obs, oldVal, newVal) -> visualizerPane.redraw());
+        visualizerPane.heightProperty().addListener((obs, oldVal, newVal) -> visualizerPane.redraw());
 
         // 3) 初始化下拉框（中文）。算法选项来自注册表，体现“可插拔：新增算法只需注册即可出现在 UI”。
         algorithmComboBox.getItems().addAll(AlgorithmRegistry.getAllAlgorithmNames());
@@ -238,16 +388,37 @@ public class MainController {
         dataTypeComboBox.getItems().addAll("随机数据", "有序数据", "逆序数据", "部分有序");
         dataTypeComboBox.getSelectionModel().selectFirst();
 
-        // 4) 速度滑块监听：滑块值越大，延迟越小（速度越快）。
-        //    非线性指数映射：最快 1ms，最慢 1000ms。
+        if (recordingPolicyComboBox != null) {
+            recordingPolicyComboBox.getItems().addAll(
+                    RecordingPolicy.all(),
+                    RecordingPolicy.everyKthCompare(16),
+                    RecordingPolicy.mutationsOnly(),
+                    RecordingPolicy.budgeted(1_000_000));
+            recordingPolicyComboBox.getSelectionModel().selectFirst();
+        }
+        if (raceModeComboBox != null) {
+            raceModeComboBox.getItems().addAll(RaceController.Mode.values());
+            raceModeComboBox.getSelectionModel().selectFirst();
+        }
+
+        // 4) 速度滑块监听：滑块值越大，每秒步数越多（速度越快）。
+        //    非线性指数映射：每秒 1 步 ~ 每秒 500 万步。
         speedSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            delay = mapSpeedToDelay(newVal.doubleValue());
-            // 回放进行中也要实时刷新延迟，否则只会在“重新开始回放/按键步进后”才生效。
-            playbackController.setDelayMillis(delay);
+            stepsPerSecond = mapSpeedToStepsPerSecond(newVal.doubleValue());
+            // 回放进行中也要实时刷新速度：下一帧即按新速度推进
+            playbackController.setStepsPerSecond(stepsPerSecond);
         });
-        // 初始化一次 delay（否则第一次排序仍可能用默认 50ms）
-        delay = mapSpeedToDelay(speedSlider.getValue());
-        playbackController.setDelayMillis(delay);
+        // 初始化一次速度（否则第一次排序仍使用默认值）
+        stepsPerSecond = mapSpeedToStepsPerSecond(speedSlider.getValue());
+        playbackController.setStepsPerSecond(stepsPerSecond);
+
+        //    定时播完：开关或秒数变化时立即生效（回放进行中也可以切换）
+        if (timeLapseCheckbox != null) {
+            timeLapseCheckbox.selectedProperty().addListener((obs, ov, nv) -> applyTimeLapse());
+        }
+        if (timeLapseSecondsField != null) {
+            timeLapseSecondsField.textProperty().addListener((obs, ov, nv) -> applyTimeLapse());
+        }
 
         // 5) 初始生成一组数据，保证一启动就有可视化内容。
         onGenerateData();
@@ -260,6 +431,13 @@ public class MainController {
         }
         visualizerPane.setShowLabels(true);
 
+        //    渲染方式切换：柱子多时画布渲染明显更流畅，回放中也可以切换
+        if (renderModeComboBox != null) {
+            renderModeComboBox.getItems().addAll(VisualizerPane.RenderMode.values());
+            renderModeComboBox.getSelectionModel().select(visualizerPane.getRenderMode());
+            renderModeComboBox.valueProperty().addListener((obs, ov, nv) -> visualizerPane.setRenderMode(nv));
+        }
+
         // 7) 暂停按钮初始禁用：只有排序任务启动后才允许点击。
         if (pauseButton != null) {
             pauseButton.setDisable(true);
@@ -284,6 +462,12 @@ public class MainController {
             operationLabel.setText("-");
         }
 
+        // 时间轴：只有加载了录制结果才可拖动；用户拖动时暂停回放并跳转
+        if (timelineSlider != null) {
+            timelineSlider.setDisable(true);
+            timelineSlider.valueProperty().addListener((obs, oldVal, newVal) -> onTimelineChanged(newVal.doubleValue()));
+        }
+
         if (compareCountLabel != null) compareCountLabel.setText("比较: 0/0");
         if (swapCountLabel != null) swapCountLabel.setText("交换: 0/0");
         if (setCountLabel != null) setCountLabel.setText("写入: 0/0");
@@ -327,13 +511,13 @@ public class MainController {
         }
 
         // 解析数据规模：提供默认值与边界限制。
-        // 上限 500：避免柱子过密导致 UI 体验差 / 动画过慢。
+        // 上限 MAX_DATA_SIZE：元素多于像素列时按列聚合绘制，每帧开销不随 n 增长。
         int size = 30;
         try {
             size = Integer.parseInt(dataSizeField.getText());
-            if (size > 500) {
-                size = 500;
-                dataSizeField.setText("500");
+            if (size > MAX_DATA_SIZE) {
+                size = MAX_DATA_SIZE;
+                dataSizeField.setText(String.valueOf(MAX_DATA_SIZE));
             } else if (size < 5) {
                 size = 5;
                 dataSizeField.setText("5");
@@ -356,6 +540,15 @@ public class MainController {
             default -> currentArray = DataGenerator.generateLinearShuffledData(size);
         }
 
+        // 柱子过多时节点渲染会卡顿：自动换成聚合渲染（放得下时它按画布逐柱绘制）
+        if (size > NODE_RENDER_MAX_SIZE && visualizerPane.getRenderMode() == VisualizerPane.RenderMode.NODES) {
+            if (renderModeComboBox != null) {
+                renderModeComboBox.setValue(VisualizerPane.RenderMode.AGGREGATE);
+            } else {
+                visualizerPane.setRenderMode(VisualizerPane.RenderMode.AGGREGATE);
+            }
+        }
+
         // 数据生成后立即触发绘制
         visualizerPane.setArray(currentArray);
         statusLabel.setText("数据已生成 (" + type + ")，准备排序。");
@@ -437,10 +630,10 @@ public class MainController {
         String algoName = algorithmComboBox.getValue();
         // algoName 为中文显示名；SortingService 内部会通过 AlgorithmRegistry 找到对应 Sorter
 
-        // 猴子排序在数据量稍大时步骤数呈阶乘级爆炸，录制/回放很容易导致内存或时间异常。
-        // 这里做硬保护，避免直接把程序拖崩。
-        if ("猴子排序".equals(algoName) && currentArray.length > 9) {
-            Alert alert = new Alert(Alert.AlertType.WARNING, "猴子排序在 n>9 时极易导致程序异常（步骤爆炸/内存耗尽）。\n\n建议：把数据量改为 5~9 再运行。", ButtonType.OK);
+        // 猴子排序在数据量稍大时步骤数呈阶乘级爆炸。录制日志超出堆预算后会溢出到磁盘，
+        // 内存已不再是瓶颈；但 n=11 时期望步数已接近 int 上限、临时文件达数 GB，这里仍做硬保护。
+        if ("猴子排序".equals(algoName) && currentArray.length > 10) {
+            Alert alert = new Alert(Alert.AlertType.WARNING, "猴子排序在 n>10 时步骤数过于庞大（录制耗时长、临时文件达数 GB）。\n\n建议：把数据量改为 5~10 再运行。", ButtonType.OK);
             alert.setHeaderText("已阻止：猴子排序数据量过大");
             alert.showAndWait();
             setControlsDisabled(false);
@@ -449,6 +642,19 @@ public class MainController {
             return;
         }
 
+        // 数据量上限提高到百万级后：O(n²) 算法的步数可达 10^11 量级，录制线程全速写日志，
+        // 临时文件要涨到几十 GB 才能录完；睡眠排序每个元素一个线程、珠排序的网格是 n×max，同样随 n 失控。
+        int sizeLimit = sortSizeLimit(algoName);
+        if (currentArray.length > sizeLimit) {
+            Alert alert = new Alert(Alert.AlertType.WARNING, algoName + "在 n>" + sizeLimit + " 时步骤数/资源占用过大（录制耗时长、临时文件可达数十 GB）。\n\n建议：把数据量改为 " + sizeLimit + " 以内，或换用 O(n log n) 的算法。", ButtonType.OK);
+            alert.setHeaderText("已阻止：" + algoName + "数据量过大");
+            alert.showAndWait();
+            setControlsDisabled(false);
+            resetStepUi();
+            statusLabel.setText("已取消：" + algoName + "数据量过大。");
+            return;
+        }
+
         // 猴子排序步骤数量可能极大且波动，统计次数意义不大且容易影响体验，因此禁用。
         suppressStepStats = "猴子排序".equals(algoName);
 
@@ -461,74 +667,108 @@ public class MainController {
             exitSortButton.setDisable(false);
         }
 
-        // 录制 + 回放模式：先把操作序列录出来，再支持“上一步/下一步/暂停/继续”。
+        // 同一算法、同一策略、同一数据已经录制过：直接回放缓存的录制，没有录制等待
+        RecordingPolicy policy = (recordingPolicyComboBox != null && recordingPolicyComboBox.getValue() != null)
+                ? recordingPolicyComboBox.getValue()
+                : RecordingPolicy.all();
+        RecordedSort cached = recordingCache.get(algoName, policy, currentArray);
+        if (cached != null) {
+            // 缓存持有日志，回放卸载时不关闭它
+            playRecording(cached, null);
+            statusLabel.setText("回放中（已缓存的录制）：" + algoName);
+            startPlayback();
+            return;
+        }
+
+        // 录制 + 回放模式：边录边放，录制线程把操作写入有界缓冲区，回放端随到随播，
+        // 首帧不再等待整个录制完成；同时仍支持“上一步/下一步/暂停/继续”。
         stopPlaybackIfNeeded();
 
-        if (pauseButton != null) {
-            pauseButton.setDisable(true);
-            pauseButton.setText("暂停");
-        }
-        if (prevStepButton != null) prevStepButton.setDisable(true);
-        if (nextStepButton != null) nextStepButton.setDisable(true);
-        if (stepLabel != null) stepLabel.setText("步骤: 0/0");
-        if (operationLabel != null) operationLabel.setText("正在准备步骤... ");
+        int[] initial = currentArray.clone();
+        // 录制日志：热窗口留在堆内，超出预算的旧段溢出到临时文件（回放/后退时透明读取）
+        SpillingOperationLog log = new SpillingOperationLog(recordingHeapBudget());
+        recordingLog = log;
+        OperationBuffer buffer = new OperationBuffer();
 
-        currentRecordTask = new Task<>() {
-            @Override
-            protected RecordedSort call() {
-                Sorter sorter = AlgorithmRegistry.getSorter(algoName);
-                if (sorter == null) {
-                    throw new IllegalArgumentException("找不到算法：" + algoName);
-                }
-                return stepRecordingService.record(algoName, sorter, currentArray);
-            }
-        };
+        // 录制策略可能丢弃比较：回放日志外面包一层，登记丢弃次数，保证统计仍是真实次数
+        SampledOperationLog sampled = policy.dropsCompares() ? new SampledOperationLog(log) : null;
+        OperationLog playbackLog = (sampled != null) ? sampled : log;
+        // 访问热力图由录制线程逐回调累加，录制任务成功结束后再显示
+        AccessHeatmap heatmap = new AccessHeatmap(initial.length);
+        currentRecording = new RecordedSort(algoName, initial, playbackLog, heatmap);
 
-        // 录制完成：初始化播放器并开始回放
-        currentRecordTask.setOnSucceeded(e -> {
-            RecordedSort recorded = currentRecordTask.getValue();
-            if (suppressStepStats) {
-                comparePrefix = null;
-                swapPrefix = null;
-                setPrefix = null;
-                if (compareCountLabel != null) compareCountLabel.setText("比较: -/-");
-                if (swapCountLabel != null) swapCountLabel.setText("交换: -/-");
-                if (setCountLabel != null) setCountLabel.setText("写入: -/-");
-            } else {
-                initOperationStats(recorded.operations());
-            }
+        if (suppressStepStats) {
+            statsLog = null;
+            if (compareCountLabel != null) compareCountLabel.setText("比较: -/-");
+            if (swapCountLabel != null) swapCountLabel.setText("交换: -/-");
+            if (setCountLabel != null) setCountLabel.setText("写入: -/-");
+        } else {
+            // 日志边录边增长，统计的“总次数”也会随录制推进而增长
+            statsLog = playbackLog;
+        }
 
-            playbackController.setDelayMillis(delay);
-            playbackController.setOnUpdate(this::onPlaybackUpdate);
-            playbackController.setOnFinished(this::onPlaybackFinished);
-            playbackController.load(recorded);
+        playbackController.setStepsPerSecond(stepsPerSecond);
+        playbackController.setOnUpdate(this::onPlaybackUpdate);
+        playbackController.setOnFinished(this::onPlaybackFinished);
+        playbackController.setOnStreamComplete(() -> onRecordingComplete(policy));
+        if (sampled != null) {
+            playbackController.loadStreaming(initial, sampled, buffer);
+        } else {
+            playbackController.loadStreaming(initial, log, buffer);
+        }
 
-            // 初始状态
-            visualizerPane.setArray(recorded.initialArray());
-            updateStepUi(null);
+        // 初始状态（loadStreaming 已推送首个快照）
+        enablePlaybackControls();
 
-            if (pauseButton != null) {
-                pauseButton.setDisable(false);
-                pauseButton.setText("暂停");
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                try {
+                    Sorter sorter = AlgorithmRegistry.getSorter(algoName);
+                    if (sorter == null) {
+                        throw new IllegalArgumentException("找不到算法：" + algoName);
+                    }
+                    stepRecordingService.record(sorter, initial, buffer, policy, heatmap);
+                    buffer.close();
+                } catch (RuntimeException | Error ex) {
+                    // 通知回放端录制已异常结束（已录下的部分仍可回放）
+                    buffer.fail(ex);
+                    throw ex;
+                }
+                return null;
             }
-            if (exitSortButton != null) exitSortButton.setDisable(false);
-            if (prevStepButton != null) prevStepButton.setDisable(true);
-            if (nextStepButton != null) nextStepButton.setDisable(!playbackController.hasNext());
+        };
+        currentRecordTask = task;
 
-            statusLabel.setText("回放中：" + algoName);
-            startPlayback();
+        // 录制完成：回放端会自行取完剩余数据并在末尾触发 onPlaybackFinished
+        task.setOnSucceeded(e -> {
+            if (currentRecordTask != task) return;
             currentRecordTask = null;
+            if (playbackController.streamError() != null) {
+                // 录制线程已写完，但回放日志没能收下最后的数据（例如步数达到上限）
+                onRecordingFailed(playbackController.streamError());
+                return;
+            }
+            // 录制线程已结束，热力图不再变化，可以安全读取
+            showHeatmap(heatmap);
         });
 
-        currentRecordTask.setOnFailed(e -> {
-            setControlsDisabled(false);
-            Throwable ex = currentRecordTask.getException();
-            statusLabel.setText("准备失败: " + (ex == null ? "未知错误" : ex.getMessage()));
-            resetStepUi();
+        task.setOnFailed(e -> {
+            if (currentRecordTask != task) return;
             currentRecordTask = null;
+            Throwable ex = task.getException();
+            if (ex instanceof CancellationException) {
+                // 回放端放弃了录制：用户退出排序时静默返回；回放日志装不下时报告原因
+                if (playbackController.streamError() == null) return;
+                ex = playbackController.streamError();
+            }
+            onRecordingFailed(ex);
         });
 
-        currentRecordTask.setOnCancelled(e -> {
+        task.setOnCancelled(e -> {
+            if (currentRecordTask != task) return;
+            currentRecordTask = null;
+            stopPlaybackIfNeeded();
             setControlsDisabled(false);
             resetStepUi();
 
@@ -543,10 +783,131 @@ public class MainController {
                 statusLabel.setText("已取消。");
             }
             exitRequestedByUser = false;
-            currentRecordTask = null;
         });
 
-        new Thread(currentRecordTask).start();
+        statusLabel.setText("回放中（边录边放）：" + algoName);
+        startPlayback();
+        new Thread(task).start();
+    }
+
+    private void onRecordingFailed(Throwable ex) {
+        stopPlaybackIfNeeded();
+        setControlsDisabled(false);
+        statusLabel.setText("准备失败: " + (ex == null ? "未知错误" : ex.getMessage()));
+        resetStepUi();
+    }
+
+    @FXML
+    private void onSaveRecording() {
+        // 只有录制完成后才能保存：边录边放期间日志仍在增长
+        if (currentRecording == null || playbackController.isStreaming()) {
+            statusLabel.setText("暂无可保存的录制（请等待录制完成）。");
+            return;
+        }
+        RecordedSort recording = currentRecording;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("保存录制");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("录制文件", "*." + RecordingFile.EXTENSION));
+        chooser.setInitialFileName(recording.algorithmName() + "." + RecordingFile.EXTENSION);
+        Window win = rootPane.getScene() != null ? rootPane.getScene().getWindow() : null;
+        File file = chooser.showSaveDialog(win);
+        if (file == null) return; // 用户取消
+
+        // 大录制编码需要一定时间，放到后台线程，避免卡住界面。
+        // 保存期间日志可能被换下（压缩完成、退出排序）：登记后由 closeRecordingLog 推迟关闭
+        OperationLog savingLog = recordingLog;
+        retainForSave(savingLog);
+        Task<Void> saveTask = new Task<>() {
+            @Override
+            protected Void call() throws IOException {
+                recordingFileService.save(recording, file);
+                return null;
+            }
+        };
+        saveTask.setOnSucceeded(e -> {
+            releaseAfterSave(savingLog);
+            statusLabel.setText("录制已保存：" + file.getName() + "（" + recording.size() + " 步）");
+        });
+        saveTask.setOnFailed(e -> {
+            releaseAfterSave(savingLog);
+            Throwable ex = saveTask.getException();
+            Alert alert = new Alert(Alert.AlertType.ERROR, ex == null ? "未知错误" : ex.getMessage(), ButtonType.OK);
+            alert.setHeaderText("保存失败");
+            alert.showAndWait();
+        });
+        statusLabel.setText("正在保存录制...");
+        new Thread(saveTask).start();
+    }
+
+    @FXML
+    private void onOpenRecording() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("打开录制");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("录制文件", "*." + RecordingFile.EXTENSION),
+                new FileChooser.ExtensionFilter("所有文件", "*.*")
+        );
+        Window win = rootPane.getScene() != null ? rootPane.getScene().getWindow() : null;
+        File file = chooser.showOpenDialog(win);
+        if (file == null) return; // 用户取消
+
+        RecordedSort recording;
+        try {
+            // 只读文件头与块索引，操作数据回放时按需读取，因此即使是超长录制也能立即打开
+            recording = recordingFileService.open(file);
+        } catch (IOException | IllegalArgumentException ex) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, ex.getMessage(), ButtonType.OK);
+            alert.setHeaderText("打开失败");
+            alert.showAndWait();
+            return;
+        }
+
+        suppressStepStats = false;
+        // 录制文件的日志归回放持有：卸载时关闭文件句柄
+        playRecording(recording, recording.log());
+        statusLabel.setText("回放录制：" + recording.algorithmName() + "（" + recording.size() + " 步）");
+        startPlayback();
+    }
+
+    /**
+     * 加载一份已完成的录制（打开的录制文件或缓存命中）并准备回放。
+     * ownedLog 非 null 时由回放负责在卸载时关闭它。
+     */
+    private void playRecording(RecordedSort recording, OperationLog ownedLog) {
+        stopPlaybackIfNeeded();
+        if (rootPane.getCenter() != visualizerPane) {
+            rootPane.setCenter(visualizerPane);
+        }
+
+        // 录制的初始数组成为当前数据；“退出排序”时恢复到它
+        currentArray = recording.initialArray();
+        arrayBeforeSort = currentArray.clone();
+        exitRequestedByUser = false;
+
+        recordingLog = ownedLog;
+        currentRecording = recording;
+        if (suppressStepStats) {
+            statsLog = null;
+            if (compareCountLabel != null) compareCountLabel.setText("比较: -/-");
+            if (swapCountLabel != null) swapCountLabel.setText("交换: -/-");
+            if (setCountLabel != null) setCountLabel.setText("写入: -/-");
+        } else {
+            statsLog = recording.log();
+        }
+
+        setControlsDisabled(true);
+        if (exitSortButton != null) {
+            exitSortButton.setDisable(false);
+        }
+        playbackController.setStepsPerSecond(stepsPerSecond);
+        playbackController.setOnUpdate(this::onPlaybackUpdate);
+        playbackController.setOnFinished(this::onPlaybackFinished);
+        // load 会立即推送首个快照，完成初始绘制
+        playbackController.load(recording);
+        enablePlaybackControls();
+        showHeatmap(recording.heatmap());
+        buildTouchIndex(recording);
     }
 
     @FXML
@@ -554,11 +915,17 @@ public class MainController {
         exitRequestedByUser = true;
         statusLabel.setText("正在退出...");
 
-        stopPlaybackIfNeeded();
-
+        // 先取消录制任务再停止回放：否则录制线程可能因缓冲区被关闭而先以“失败”结束
         if (currentRecordTask != null && currentRecordTask.isRunning()) {
             currentRecordTask.cancel();
         }
+        currentRecordTask = null;
+        if (currentRaceTask != null && currentRaceTask.isRunning()) {
+            currentRaceTask.cancel();
+        }
+        currentRaceTask = null;
+
+        stopPlaybackIfNeeded();
 
         // 如果没有录制任务在跑，直接恢复 UI
         if (arrayBeforeSort != null) {
@@ -578,6 +945,18 @@ public class MainController {
 
     @FXML
     private void onPauseResume() {
+        // 竞速模式：暂停/继续共享时钟
+        if (raceController != null) {
+            if (raceController.isPlaying()) {
+                raceController.pause();
+                if (pauseButton != null) pauseButton.setText("继续");
+            } else {
+                raceController.start();
+                if (pauseButton != null) pauseButton.setText("暂停");
+            }
+            return;
+        }
+
         // 回放模式：暂停/继续 Timeline
         if (!playbackController.isLoaded()) return;
 
@@ -604,9 +983,104 @@ public class MainController {
         playbackController.next();
     }
 
+    @FXML
+    private void onPrevTouch() {
+        int[] range = parseTouchRange();
+        if (range == null) return;
+        // 当前高亮的是第 cursor-1 步；向前找更早的访问
+        int step = touchIndex.prevTouch(range[0], playbackController.cursor() - 1);
+        jumpToStep(step, "之前没有访问过下标 " + range[0]);
+    }
+
+    @FXML
+    private void onNextTouch() {
+        int[] range = parseTouchRange();
+        if (range == null) return;
+        int step = touchIndex.nextTouch(range[0], playbackController.cursor() - 1);
+        jumpToStep(step, "之后不再访问下标 " + range[0]);
+    }
+
+    @FXML
+    private void onSettled() {
+        int[] range = parseTouchRange();
+        if (range == null) return;
+        int step = touchIndex.settledStep(range[0]);
+        if (step < 0) {
+            pausePlayback();
+            playbackController.seek(0);
+            statusLabel.setText("下标 " + range[0] + " 一开始就是最终值");
+            return;
+        }
+        jumpToStep(step, null);
+        statusLabel.setText("下标 " + range[0] + " 在第 " + (step + 1) + " 步归位");
+    }
+
+    @FXML
+    private void onRangeSorted() {
+        int[] range = parseTouchRange();
+        if (range == null) return;
+        int cursor = touchIndex.firstSortedCursor(range[0], range[1] + 1);
+        if (cursor < 0) {
+            statusLabel.setText("区间 [" + range[0] + ", " + range[1] + "] 直到结束都无序");
+            return;
+        }
+        pausePlayback();
+        playbackController.seek(cursor);
+        statusLabel.setText("区间 [" + range[0] + ", " + range[1] + "] 在第 " + cursor + " 步后首次有序");
+    }
+
+    /**
+     * 解析定位输入：“5” 或 “3-8”（闭区间）。返回 {from, to}；输入无效或索引未就绪时提示并返回 null。
+     */
+    private int[] parseTouchRange() {
+        if (touchIndex == null || !playbackController.isLoaded()) {
+            statusLabel.setText("访问索引尚未就绪（录制完成后自动建立）");
+            return null;
+        }
+        String text = (touchIndexField == null) ? "" : touchIndexField.getText().trim();
+        int from;
+        int to;
+        try {
+            int dash = text.indexOf('-', 1);
+            if (dash < 0) {
+                from = Integer.parseInt(text);
+                to = from;
+            } else {
+                from = Integer.parseInt(text.substring(0, dash).trim());
+                to = Integer.parseInt(text.substring(dash + 1).trim());
+            }
+        } catch (NumberFormatException ex) {
+            statusLabel.setText("请输入下标（例如 5）或区间（例如 3-8）");
+            return null;
+        }
+        if (from < 0 || to < from || to >= touchIndex.length()) {
+            statusLabel.setText("下标超出范围：0 ~ " + (touchIndex.length() - 1));
+            return null;
+        }
+        return new int[]{from, to};
+    }
+
+    private void jumpToStep(int step, String notFoundMessage) {
+        if (step < 0) {
+            statusLabel.setText(notFoundMessage);
+            return;
+        }
+        // 执行完第 step 步后游标为 step+1，此时该步正好作为“当前操作”高亮
+        pausePlayback();
+        playbackController.seek(step + 1);
+        statusLabel.setText("已跳到第 " + (step + 1) + " 步");
+    }
+
+    private void onTimelineChanged(double value) {
+        // 程序内部同步位置时忽略；只响应用户拖动
+        if (syncingTimeline || !playbackController.isLoaded()) return;
+        pausePlayback();
+        playbackController.seek((int) Math.round(value));
+    }
+
     private void startPlayback() {
         if (!playbackController.isLoaded()) return;
-        playbackController.setDelayMillis(delay);
+        playbackController.setStepsPerSecond(stepsPerSecond);
         if (pauseButton != null) {
             pauseButton.setText("暂停");
         }
@@ -621,17 +1095,153 @@ public class MainController {
     }
 
     private void stopPlaybackIfNeeded() {
+        // 竞速与普通回放互斥：卸载回放时一并结束竞速
+        stopRaceIfNeeded();
         // 停止回放前先清理回调：避免 pause/stop/load 过程中 emit 触发旧回调，
         // 从而在统计前缀尚未初始化/已过期时造成越界。
         playbackController.setOnUpdate(null);
         playbackController.setOnFinished(null);
+        playbackController.setOnStreamComplete(null);
         pausePlayback();
         playbackController.stop();
+        // 回放已卸载：释放日志占用的临时文件/文件句柄
+        closeRecordingLog();
+        currentRecording = null;
+        touchIndex = null;
+        setTouchNavigationDisabled(true);
+        showHeatmap(null);
+    }
+
+    private void showHeatmap(AccessHeatmap heatmap) {
+        // 只有录制时才有热力图；打开的录制文件/退出排序/基准测试时移除右侧面板
+        if (heatmap == null) {
+            rootPane.setRight(null);
+            return;
+        }
+        heatmapView.show(heatmap);
+        rootPane.setRight(heatmapView);
+    }
+
+    private void onRecordingComplete(RecordingPolicy policy) {
+        // 录制数据已全部到齐：在后台把日志压缩成块操作，完成后无缝替换回放日志（回放位置不变）。
+        // 压缩结果放在堆内；规律太少、压缩后仍超出预算时放弃，继续使用原日志。
+        // 压缩后的日志常驻堆内且只读，同时作为录制缓存的条目（溢出日志卸载时会被关闭，不能缓存）。
+        RecordedSort recording = currentRecording;
+        if (recording == null) return;
+        long budget = recordingHeapBudget();
+
+        Task<CompactOperationLog> compactTask = new Task<>() {
+            @Override
+            protected CompactOperationLog call() {
+                return OperationCompactor.compact(recording.log(), budget);
+            }
+        };
+        compactTask.setOnSucceeded(e -> {
+            CompactOperationLog compacted = compactTask.getValue();
+            // 期间回放可能已被卸载/替换（退出排序、重新排序、打开录制）
+            if (currentRecording != recording) return;
+            if (compacted == null) {
+                buildTouchIndex(recording);
+                return;
+            }
+            // 抽样录制：保留丢弃登记，只换底层日志
+            OperationLog replacement = (recording.log() instanceof SampledOperationLog sampledLog)
+                    ? sampledLog.withBase(compacted)
+                    : compacted;
+            playbackController.replaceLog(replacement);
+            closeRecordingLog();
+            recordingLog = compacted;
+            currentRecording = new RecordedSort(recording.algorithmName(), recording.initialArray(), replacement, recording.heatmap());
+            if (statsLog != null) statsLog = replacement;
+            recordingCache.put(policy, currentRecording);
+            // 索引建立在替换后的日志上：原溢出日志已关闭
+            buildTouchIndex(currentRecording);
+        });
+        // 压缩失败（例如回放已卸载、原日志被关闭）时静默放弃：原日志仍可正常回放
+        compactTask.setOnFailed(e -> {
+            if (currentRecording == recording) buildTouchIndex(recording);
+        });
+        new Thread(compactTask).start();
+    }
+
+    private void buildTouchIndex(RecordedSort recording) {
+        // 扫描整份日志建立“下标 → 步号”倒排索引；几百万步也只需两遍顺序读取，放在后台做
+        Task<TouchIndex> indexTask = new Task<>() {
+            @Override
+            protected TouchIndex call() {
+                return TouchIndex.build(recording.log(), recording.initialArray());
+            }
+        };
+        indexTask.setOnSucceeded(e -> {
+            if (currentRecording != recording) return;
+            touchIndex = indexTask.getValue();
+            setTouchNavigationDisabled(false);
+        });
+        // 建立失败（回放已卸载、录制过长）时不提供定位，回放本身不受影响
+        new Thread(indexTask).start();
+    }
+
+    private void setTouchNavigationDisabled(boolean disabled) {
+        if (prevTouchButton != null) prevTouchButton.setDisable(disabled);
+        if (nextTouchButton != null) nextTouchButton.setDisable(disabled);
+        if (settledButton != null) settledButton.setDisable(disabled);
+        if (rangeSortedButton != null) rangeSortedButton.setDisable(disabled);
+    }
+
+    private void closeRecordingLog() {
+        SaveReaders readers = (recordingLog == null) ? null : logsBeingSaved.get(recordingLog);
+        if (readers != null) {
+            // 仍有保存任务在读：标记为“保存结束后关闭”
+            readers.closeWhenDone = true;
+        } else {
+            closeQuietly(recordingLog);
+        }
+        recordingLog = null;
+    }
+
+    private void retainForSave(OperationLog log) {
+        if (log == null) return;
+        logsBeingSaved.computeIfAbsent(log, k -> new SaveReaders()).count++;
+    }
+
+    private void releaseAfterSave(OperationLog log) {
+        SaveReaders readers = (log == null) ? null : logsBeingSaved.get(log);
+        if (readers == null || --readers.count > 0) return;
+        logsBeingSaved.remove(log);
+        if (readers.closeWhenDone) closeQuietly(log);
+    }
+
+    private static void closeQuietly(OperationLog log) {
+        if (log instanceof Closeable closeable) {
+            // 删除溢出的临时文件 / 释放录制文件句柄
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // 只是清理资源，失败不影响后续操作
+            }
+        }
+    }
+
+    private void enablePlaybackControls() {
+        // 回放刚加载：允许暂停/退出/拖动时间轴；上一步在起点不可用
+        if (pauseButton != null) {
+            pauseButton.setDisable(false);
+            pauseButton.setText("暂停");
+        }
+        if (exitSortButton != null) exitSortButton.setDisable(false);
+        if (prevStepButton != null) prevStepButton.setDisable(true);
+        if (nextStepButton != null) nextStepButton.setDisable(!playbackController.hasNext());
+        if (timelineSlider != null) timelineSlider.setDisable(false);
+    }
+
+    private static long recordingHeapBudget() {
+        // 录制日志最多占用 1/4 堆，且不超过默认预算
+        return Math.min(SpillingOperationLog.DEFAULT_HEAP_BUDGET_BYTES, Runtime.getRuntime().maxMemory() / 4);
     }
 
     private void onPlaybackUpdate(PlaybackSnapshot snapshot) {
         if (snapshot == null) return;
-        updateStepUi(snapshot.operation());
+        updateStepUi(snapshot);
     }
 
     private void onPlaybackFinished() {
@@ -651,9 +1261,7 @@ public class MainController {
 
     private void resetStepUi() {
         pausePlayback();
-        comparePrefix = null;
-        swapPrefix = null;
-        setPrefix = null;
+        statsLog = null;
         suppressStepStats = false;
         if (pauseButton != null) {
             pauseButton.setDisable(true);
@@ -666,64 +1274,56 @@ public class MainController {
         if (nextStepButton != null) nextStepButton.setDisable(true);
         if (stepLabel != null) stepLabel.setText("步骤: 0/0");
         if (operationLabel != null) operationLabel.setText("-");
+        syncTimeline(0, 0);
+        if (timelineSlider != null) timelineSlider.setDisable(true);
 
         if (compareCountLabel != null) compareCountLabel.setText("比较: 0/0");
         if (swapCountLabel != null) swapCountLabel.setText("交换: 0/0");
         if (setCountLabel != null) setCountLabel.setText("写入: 0/0");
     }
 
-    private void updateStepUi(SortOperation op) {
-        if (!playbackController.isLoaded()) {
+    private void updateStepUi(PlaybackSnapshot snapshot) {
+        if (snapshot == null || !playbackController.isLoaded()) {
             if (stepLabel != null) stepLabel.setText("步骤: 0/0");
             if (operationLabel != null) operationLabel.setText("-");
             return;
         }
 
-        int[] state = playbackController.currentArray();
-        if (op != null) {
-            visualizerPane.renderState(state, op.index1(), op.index2(), colorForOperation(op.type()));
-            if (operationLabel != null) {
-                operationLabel.setText(op.description(null));
-            }
+        // 快照携带只读视图 + 脏下标：面板只重绘变化的柱子，不再拷贝整个数组
+        SortOperation op = snapshot.operation();
+        if (snapshot.cursor() == snapshot.size() && !playbackController.hasNext()) {
+            // 已到末尾（排序完成态）：统一渲染为绿色，避免停留在最后一步高亮色
+            visualizerPane.renderFinalState(snapshot.state(), COLOR_SORTED_FINISH);
+        } else if (op != null) {
+            visualizerPane.renderState(snapshot.state(), snapshot.dirty(), op.index1(), op.index2(), colorForOperation(op.type()));
         } else {
-            visualizerPane.renderState(state, -1, -1, null);
-            if (operationLabel != null) {
-                operationLabel.setText("准备开始");
-            }
+            visualizerPane.renderState(snapshot.state(), snapshot.dirty(), -1, -1, null);
         }
-
-        // 若已到末尾（排序完成态），统一渲染为绿色，避免停留在最后一步高亮色。
-        if (playbackController.cursor() == playbackController.size()) {
-            visualizerPane.renderFinalState(state, COLOR_SORTED_FINISH);
+        if (operationLabel != null) {
+            operationLabel.setText(op != null ? op.description(null) : "准备开始");
         }
 
         if (stepLabel != null) {
-            stepLabel.setText("步骤: " + playbackController.cursor() + "/" + playbackController.size());
+            // 边录边放时总步数仍在增长，用“+”提示
+            String more = playbackController.isStreaming() ? "+" : "";
+            stepLabel.setText("步骤: " + playbackController.cursor() + "/" + playbackController.size() + more);
         }
+        syncTimeline(playbackController.cursor(), playbackController.size());
         if (prevStepButton != null) prevStepButton.setDisable(!playbackController.hasPrev());
         if (nextStepButton != null) nextStepButton.setDisable(!playbackController.hasNext());
 
         updateStatsUi();
     }
 
-    private void initOperationStats(List<SortOperation> operations) {
-        List<SortOperation> ops = (operations == null) ? List.of() : operations;
-        int size = ops.size();
-        comparePrefix = new int[size + 1];
-        swapPrefix = new int[size + 1];
-        setPrefix = new int[size + 1];
-        for (int i = 0; i < size; i++) {
-            comparePrefix[i + 1] = comparePrefix[i];
-            swapPrefix[i + 1] = swapPrefix[i];
-            setPrefix[i + 1] = setPrefix[i];
-
-            SortOperation op = ops.get(i);
-            if (op == null || op.type() == null) continue;
-            switch (op.type()) {
-                case COMPARE -> comparePrefix[i + 1]++;
-                case SWAP -> swapPrefix[i + 1]++;
-                case SET -> setPrefix[i + 1]++;
-            }
+    private void syncTimeline(int cursor, int size) {
+        // 回放推进时让时间轴跟随当前步；期间屏蔽 onTimelineChanged
+        if (timelineSlider == null) return;
+        syncingTimeline = true;
+        try {
+            timelineSlider.setMax(Math.max(1, size));
+            timelineSlider.setValue(cursor);
+        } finally {
+            syncingTimeline = false;
         }
     }
 
@@ -732,7 +1332,7 @@ public class MainController {
             // 已在 onSort/onSucceeded 初始化为 -/-，此处保持不动
             return;
         }
-        if (!playbackController.isLoaded() || comparePrefix == null || swapPrefix == null || setPrefix == null) {
+        if (!playbackController.isLoaded() || statsLog == null) {
             return;
         }
         int cursor = playbackController.cursor();
@@ -740,20 +1340,15 @@ public class MainController {
         if (cursor < 0) cursor = 0;
         if (cursor > total) cursor = total;
 
-        // 防守：统计数组按“录制时 operations.size()”生成，理论上应与 total 一致。
-        // 若出现任何状态不同步（例如旧回调/旧统计未清干净），避免直接越界导致 UI 崩溃。
-        int maxIndex = Math.min(comparePrefix.length, Math.min(swapPrefix.length, setPrefix.length)) - 1;
-        if (maxIndex < 0) return;
-        if (total > maxIndex) total = maxIndex;
-        if (cursor > total) cursor = total;
-
-        int compareNow = comparePrefix[cursor];
-        int swapNow = swapPrefix[cursor];
-        int setNow = setPrefix[cursor];
+        // 防守：统计日志应与回放中的日志一致；若出现状态不同步（例如旧回调/旧统计未清干净），
+        // countBefore 自身会把越界的 cursor 收敛到 [0, size]，不会导致 UI 崩溃。
+        int compareNow = statsLog.countBefore(SortOperationType.COMPARE, cursor);
+        int swapNow = statsLog.countBefore(SortOperationType.SWAP, cursor);
+        int setNow = statsLog.countBefore(SortOperationType.SET, cursor);
 
-        int compareTotal = comparePrefix[total];
-        int swapTotal = swapPrefix[total];
-        int setTotal = setPrefix[total];
+        int compareTotal = statsLog.count(SortOperationType.COMPARE);
+        int swapTotal = statsLog.count(SortOperationType.SWAP);
+        int setTotal = statsLog.count(SortOperationType.SET);
 
         if (compareCountLabel != null) compareCountLabel.setText("比较: " + compareNow + "/" + compareTotal);
         if (swapCountLabel != null) swapCountLabel.setText("交换: " + swapNow + "/" + swapTotal);
@@ -786,21 +1381,35 @@ public class MainController {
         statusLabel.setText("正在进行性能比较...");
         setControlsDisabled(true);
 
-        // 获取所有算法名称，并排除“不适合严肃性能对比”的演示型算法。
-        // - 猴子排序/睡眠排序：随机或依赖线程调度，结果波动大且可能极慢
-        // - 珠排序：对数据范围/分布敏感，且实现往往有额外开销，不适合与主流算法公平对比
-        List<String> algos = AlgorithmRegistry.getAllAlgorithmNames().stream()
-                .filter(name -> !name.equals("猴子排序") && !name.equals("睡眠排序") && !name.equals("珠排序"))
-                .collect(Collectors.toList());
+        List<String> algos = comparableAlgorithms();
 
         // 说明：benchmarkTask 运行在后台线程，完成后通过 setOnSucceeded 切回 UI 展示图表/表格
 
         Task<List<PerformanceMetrics>> benchmarkTask = benchmarkService.createBenchmarkTask(benchmarkSize, dataType, algos);
 
         benchmarkTask.setOnSucceeded(e -> {
-            setControlsDisabled(false);
-            statusLabel.setText("性能比较完成！");
-            showBenchmarkResults(benchmarkTask.getValue(), benchmarkSize, dataType);
+            List<PerformanceMetrics> metrics = benchmarkTask.getValue();
+            if (!algos.contains(PARALLEL_ALGORITHM)) {
+                setControlsDisabled(false);
+                statusLabel.setText("性能比较完成！");
+                showBenchmarkResults(metrics, null, benchmarkSize, dataType);
+                return;
+            }
+            // 参与比较的算法里有并行归并排序：再测一轮不同线程数下相对归并排序的加速比
+            statusLabel.setText("正在测量并行加速比...");
+            Task<List<SpeedupMetrics>> speedupTask = benchmarkService.createSpeedupTask(benchmarkSize, dataType);
+            speedupTask.setOnSucceeded(ev -> {
+                setControlsDisabled(false);
+                statusLabel.setText("性能比较完成！");
+                showBenchmarkResults(metrics, speedupTask.getValue(), benchmarkSize, dataType);
+            });
+            speedupTask.setOnFailed(ev -> {
+                // 加速比只是附加信息：失败时仍展示主要结果
+                setControlsDisabled(false);
+                statusLabel.setText("性能比较完成（加速比测量失败: " + speedupTask.getException().getMessage() + "）");
+                showBenchmarkResults(metrics, null, benchmarkSize, dataType);
+            });
+            new Thread(speedupTask).start();
         });
 
         benchmarkTask.setOnFailed(e -> {
@@ -811,8 +1420,124 @@ public class MainController {
         new Thread(benchmarkTask).start();
     }
 
-    private void showBenchmarkResults(List<PerformanceMetrics> metrics, int size, String type) {
-        rootPane.setCenter(benchmarkViewBuilder.buildResults(metrics, size, type));
+    /**
+     * 可视化排序（录制 + 回放）允许的最大数据量；不受限制的算法返回 {@link Integer#MAX_VALUE}。
+     */
+    private static int sortSizeLimit(String algoName) {
+        if (algoName == null) return Integer.MAX_VALUE;
+        return switch (algoName) {
+            case "冒泡排序", "插入排序", "选择排序", "希尔排序" -> QUADRATIC_SORT_MAX_SIZE;
+            case "睡眠排序", "珠排序" -> DEMO_SORT_MAX_SIZE;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    private static List<String> comparableAlgorithms() {
+        // 获取所有算法名称，并排除“不适合严肃性能对比”的演示型算法。
+        // - 猴子排序/睡眠排序：随机或依赖线程调度，结果波动大且可能极慢
+        // - 珠排序：对数据范围/分布敏感，且实现往往有额外开销，不适合与主流算法公平对比
+        return AlgorithmRegistry.getAllAlgorithmNames().stream()
+                .filter(name -> !name.equals("猴子排序") && !name.equals("睡眠排序") && !name.equals("珠排序"))
+                .collect(Collectors.toList());
+    }
+
+    @FXML
+    private void onRace() {
+        // 算法竞速：同一份数据，多个算法并排回放，共用一个时钟
+        if (currentArray == null) return;
+        if (currentArray.length > RACE_MAX_SIZE) {
+            statusLabel.setText("竞速的数据量不能超过 " + RACE_MAX_SIZE + "（当前 " + currentArray.length + "）");
+            return;
+        }
+
+        stopPlaybackIfNeeded();
+        arrayBeforeSort = currentArray.clone();
+        RaceController.Mode mode = (raceModeComboBox != null && raceModeComboBox.getValue() != null)
+                ? raceModeComboBox.getValue()
+                : RaceController.Mode.STEPS;
+        RecordingPolicy policy = (recordingPolicyComboBox != null && recordingPolicyComboBox.getValue() != null)
+                ? recordingPolicyComboBox.getValue()
+                : RecordingPolicy.all();
+        List<String> algos = comparableAlgorithms();
+
+        setControlsDisabled(true);
+        if (exitSortButton != null) exitSortButton.setDisable(false);
+        statusLabel.setText("正在为 " + algos.size() + " 个算法并行录制...");
+
+        // 说明：录制在 RaceService 的线程池上并行进行，完成后切回 UI 线程搭建赛道
+        Task<List<RaceService.Entry>> raceTask = raceService.createRaceTask(algos, currentArray, policy);
+        currentRaceTask = raceTask;
+
+        raceTask.setOnSucceeded(e -> {
+            if (currentRaceTask != raceTask) return;
+            currentRaceTask = null;
+            startRace(raceTask.getValue(), mode);
+        });
+
+        raceTask.setOnFailed(e -> {
+            if (currentRaceTask != raceTask) return;
+            currentRaceTask = null;
+            setControlsDisabled(false);
+            resetStepUi();
+            Throwable ex = raceTask.getException();
+            statusLabel.setText("竞速准备失败: " + (ex == null ? "未知错误" : ex.getMessage()));
+        });
+
+        new Thread(raceTask).start();
+    }
+
+    private void startRace(List<RaceService.Entry> entries, RaceController.Mode mode) {
+        RaceView raceView = new RaceView();
+        RaceController race = new RaceController(mode);
+        for (RaceService.Entry entry : entries) {
+            RecordedSort recording = entry.recording();
+            OperationLog log = recording.log();
+            String title = recording.algorithmName() + "（" + String.format("%.3f", entry.sortNanos() / 1e6) + " ms）";
+            RaceView.Lane lane = raceView.addLane(title);
+            race.addLane(recording, entry.sortNanos(), snapshot -> lane.update(
+                    snapshot,
+                    snapshot.operation() == null ? null : colorForOperation(snapshot.operation().type()),
+                    COLOR_SORTED_FINISH,
+                    raceStats(log, snapshot.cursor())));
+        }
+        race.setOnFinished(() -> {
+            if (pauseButton != null) {
+                pauseButton.setDisable(true);
+                pauseButton.setText("暂停");
+            }
+            setControlsDisabled(false);
+            statusLabel.setText("竞速结束！");
+        });
+
+        raceController = race;
+        rootPane.setCenter(raceView);
+        showHeatmap(null);
+        if (pauseButton != null) {
+            pauseButton.setDisable(false);
+            pauseButton.setText("暂停");
+        }
+        statusLabel.setText("竞速中（" + mode + "）：" + entries.size() + " 个算法");
+        race.start();
+    }
+
+    private static String raceStats(OperationLog log, int cursor) {
+        return "比较 " + log.countBefore(SortOperationType.COMPARE, cursor)
+                + " / 交换 " + log.countBefore(SortOperationType.SWAP, cursor)
+                + " / 写入 " + log.countBefore(SortOperationType.SET, cursor);
+    }
+
+    private void stopRaceIfNeeded() {
+        if (raceController == null) return;
+        raceController.stop();
+        raceController = null;
+        if (rootPane.getCenter() != visualizerPane) {
+            rootPane.setCenter(visualizerPane);
+        }
+    }
+
+    private void showBenchmarkResults(List<PerformanceMetrics> metrics, List<SpeedupMetrics> speedups, int size, String type) {
+        rootPane.setCenter(benchmarkViewBuilder.buildResults(metrics, speedups, size, type));
+        showHeatmap(null);
     }
 
     private void setControlsDisabled(boolean disabled) {
@@ -821,11 +1546,15 @@ public class MainController {
         generateButton.setDisable(disabled);
         sortButton.setDisable(disabled);
         benchmarkButton.setDisable(disabled);
+        if (raceButton != null) raceButton.setDisable(disabled);
+        if (raceModeComboBox != null) raceModeComboBox.setDisable(disabled);
         algorithmComboBox.setDisable(disabled);
         dataSizeField.setDisable(disabled);
         dataTypeComboBox.setDisable(disabled);
         if (showDataButton != null) showDataButton.setDisable(disabled);
         if (loadFileButton != null) loadFileButton.setDisable(disabled);
+        if (openRecordingButton != null) openRecordingButton.setDisable(disabled);
+        if (recordingPolicyComboBox != null) recordingPolicyComboBox.setDisable(disabled);
         if (customDataField != null) customDataField.setDisable(disabled);
         if (showValuesCheckbox != null) showValuesCheckbox.setDisable(disabled);
     }
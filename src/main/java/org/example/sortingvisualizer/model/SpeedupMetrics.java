@@ -0,0 +1,21 @@
+package org.example.sortingvisualizer.model;
+
+/**
+ * 并行加速比记录
+ * 同一份数据上，并行算法在给定并行度下的耗时与顺序基线耗时的对比
+ */
+public record SpeedupMetrics(
+    int dataSize,
+    int parallelism,
+    long timeElapsedNanos,
+    long baselineNanos // 顺序基线（归并排序）的耗时
+) {
+    public double getTimeElapsedMillis() {
+        return timeElapsedNanos / 1_000_000.0;
+    }
+
+    /** 加速比：基线耗时 / 并行耗时，大于 1 表示更快。 */
+    public double getSpeedup() {
+        return (double) baselineNanos / Math.max(1, timeElapsedNanos);
+    }
+}
@@ -3,42 +3,90 @@ package org.example.sortingvisualizer.playback;
 import java.util.Objects;
 import java.util.function.Consumer;
 
+import org.example.sortingvisualizer.step.DirtyIndices;
+import org.example.sortingvisualizer.step.OperationBuffer;
+import org.example.sortingvisualizer.step.OperationLog;
+import org.example.sortingvisualizer.step.OperationSink;
 import org.example.sortingvisualizer.step.RecordedSort;
 import org.example.sortingvisualizer.step.SortOperation;
 import org.example.sortingvisualizer.step.StepPlayer;
 
-import javafx.animation.PauseTransition;
-import javafx.util.Duration;
+import javafx.animation.AnimationTimer;
 
 /**
  * 回放控制器：封装 StepPlayer + 自动回放定时逻辑。
  * <p>
  * 仅暴露 start/pause/next/prev/stop 与事件回调，避免 Controller 持有过多回放状态细节。
+ * <p>
+ * 自动回放由 {@link AnimationTimer} 驱动，与屏幕刷新同步：每一帧按“目标步数/秒 × 距上一帧的时间”
+ * 推进若干步，然后只通知 UI 一次。因此速度可以从每秒 1 步一直调到每秒数百万步，
+ * 而重绘次数始终不超过刷新率。
+ * <p>
+ * 定时播完（{@link #setTargetDurationSeconds(double)}）：不再按固定步速，而是按
+ * “总步数 × 平均帧时长 / 目标时长”计算每帧批量，中间状态直接跳过不渲染。
+ * 无论录制有两千步还是两亿步，帧率都不变，整段回放都在目标时长左右完成。
  */
 public final class PlaybackController {
 
+    /** 单帧最多按多长时间推进：窗口被拖动/系统卡顿后恢复时，不一次性补上积压的全部步数。 */
+    private static final double MAX_FRAME_SECONDS = 0.1;
+    /** 帧时长滑动平均的权重：单帧抖动只按 1/8 计入，批量大小保持平稳。 */
+    private static final double FRAME_SMOOTHING = 0.125;
+
     private StepPlayer player;
-    private PauseTransition timer;
+
+    /** 边录边放：录制线程写入的缓冲区；为 null 表示录制已结束（或本次不是边录边放）。 */
+    private OperationBuffer stream;
+    /** 边录边放时 player 读取的日志：每次 tick/步进前从 stream 搬入新数据。 */
+    private OperationSink streamLog;
+    /** 录制线程异常结束：此时回放到已有数据末尾就停下，不触发 onFinished。 */
+    private boolean streamFailed;
+    /** 回放日志拒绝继续追加（例如步数达到上限）时的异常；录制已被放弃。 */
+    private RuntimeException streamError;
+
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onFrame(now);
+        }
+    };
     private boolean playing;
-    private long delayMillis = 50;
+    private double stepsPerSecond = 20;
+    /** 上一帧的时间戳（纳秒）；0 表示刚开始播放，下一帧只记录时间不推进。 */
+    private long lastFrameNanos;
+    /** 尚未执行的“零头”步数：低速时跨多帧累积到 1 步才推进。 */
+    private double pendingSteps;
+    /** 定时播完的目标时长（秒）；0 表示关闭，按 stepsPerSecond 推进。 */
+    private double targetDurationSeconds;
+    /** 实测的平均帧时长（秒）；0 表示尚未测到。 */
+    private double averageFrameSeconds;
 
     private Consumer<PlaybackSnapshot> onUpdate;
     private Runnable onFinished;
+    private Runnable onStreamComplete;
 
-    public void setDelayMillis(long delayMillis) {
-        // 设置每一步自动回放的延迟（至少 1ms，避免 0 或负数）
-        this.delayMillis = Math.max(1, delayMillis);
-
-        // 速度在自动回放过程中变化时，需立刻更新定时推进周期。
-        // 否则 timer 会继续按旧周期运行，用户会感觉“只有暂停/步进/重新开始才生效”。
-        if (playing && player != null) {
-            // 回放进行中：需要立刻用新 delay 重建定时器，否则用户会感觉速度设置“没生效”
-            if (timer != null) {
-                timer.stop();
-                timer = null;
-            }
-            scheduleTick();
+    public void setStepsPerSecond(double stepsPerSecond) {
+        // 设置自动回放速度（每秒步数）。下一帧立即按新速度推进，无需重建定时器
+        if (!(stepsPerSecond > 0)) {
+            throw new IllegalArgumentException("stepsPerSecond 必须为正数: " + stepsPerSecond);
+        }
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    public double stepsPerSecond() {
+        return stepsPerSecond;
+    }
+
+    public void setTargetDurationSeconds(double seconds) {
+        // 定时播完：整段录制在 seconds 秒内放完；传 0 关闭，回到按 stepsPerSecond 推进
+        if (!(seconds >= 0) || Double.isInfinite(seconds)) {
+            throw new IllegalArgumentException("targetDurationSeconds 不能为负数: " + seconds);
         }
+        this.targetDurationSeconds = seconds;
+    }
+
+    public double targetDurationSeconds() {
+        return targetDurationSeconds;
     }
 
     public void setOnUpdate(Consumer<PlaybackSnapshot> onUpdate) {
@@ -49,6 +97,18 @@ public final class PlaybackController {
         this.onFinished = onFinished;
     }
 
+    public void setOnStreamComplete(Runnable onStreamComplete) {
+        // 边录边放的数据全部到齐（录制成功结束）时回调，例如用于录制后的压缩
+        this.onStreamComplete = onStreamComplete;
+    }
+
+    /**
+     * 边录边放因回放日志无法继续追加而被放弃时的原因（例如步数达到上限）；否则为 null。
+     */
+    public RuntimeException streamError() {
+        return streamError;
+    }
+
     public boolean isLoaded() {
         // 是否已加载录制数据（有 player 就表示 loaded）
         return player != null;
@@ -68,8 +128,14 @@ public final class PlaybackController {
         return (player == null) ? 0 : player.size();
     }
 
+    public boolean isStreaming() {
+        // 录制仍在进行：总步数还会继续增长
+        return stream != null;
+    }
+
     public boolean hasNext() {
-        return player != null && player.hasNext();
+        // 边录边放时，只要录制没结束就认为“还有下一步”
+        return player != null && (player.hasNext() || stream != null);
     }
 
     public boolean hasPrev() {
@@ -85,26 +151,56 @@ public final class PlaybackController {
         // 加载一组新的录制数据：会先 stop 清理旧状态，再创建新的 StepPlayer
         Objects.requireNonNull(recorded, "recorded");
         stop();
-        this.player = new StepPlayer(recorded.initialArray(), recorded.operations());
+        this.player = new StepPlayer(recorded.initialArray(), recorded.log());
         // 立即发一次更新：让 UI 能显示“准备开始”的画面/按钮状态
         emit(null);
     }
 
+    /**
+     * 边录边放：录制线程把操作写入 buffer，这里在每次 tick/步进前把已发布的数据搬进 log 再回放。
+     * 首帧不必等待整个录制完成；buffer 有界，回放跟不上时录制线程会被阻塞（背压）。
+     * log 既要能追加（接收 buffer 的数据）又要能读取（交给 StepPlayer），
+     * 例如内存中的 PackedOperationLog 或可溢出到磁盘的 SpillingOperationLog。
+     */
+    public <L extends OperationLog & OperationSink> void loadStreaming(int[] initialArray, L log, OperationBuffer buffer) {
+        Objects.requireNonNull(log, "log");
+        Objects.requireNonNull(buffer, "buffer");
+        stop();
+        this.stream = buffer;
+        this.streamLog = log;
+        this.streamFailed = false;
+        this.streamError = null;
+        this.player = new StepPlayer(initialArray, log);
+        pump();
+        emit(null);
+    }
+
+    /**
+     * 把当前回放的日志换成逐步等价的另一份（例如压缩后的日志），回放位置不变。
+     * 只能在录制结束后调用。
+     */
+    public void replaceLog(OperationLog log) {
+        if (player == null || stream != null) {
+            throw new IllegalStateException("录制尚未结束，不能替换日志");
+        }
+        player.replaceLog(log);
+    }
+
     public void start() {
         // 开始自动回放（如果已在播放则忽略）
         if (player == null) return;
         if (playing) return;
         playing = true;
-        scheduleTick();
+        lastFrameNanos = 0;
+        pendingSteps = 0;
+        averageFrameSeconds = 0;
+        frameTimer.start();
     }
 
     public void pause() {
         // 暂停自动回放：停止定时器，但不清除 player（保留当前 cursor/数组）
         playing = false;
-        if (timer != null) {
-            timer.stop();
-            timer = null;
-        }
+        frameTimer.stop();
         // 发一次更新（operation=null）：让上层 UI 有机会刷新“播放状态”显示
         emit(null);
     }
@@ -112,12 +208,19 @@ public final class PlaybackController {
     public void stop() {
         // 停止并卸载：会清除 player，使得 isLoaded=false
         pause();
+        if (stream != null) {
+            // 仍在录制：通知录制线程尽快退出，避免它阻塞在已无人消费的缓冲区上
+            stream.cancel();
+            stream = null;
+        }
+        streamLog = null;
         player = null;
     }
 
     public SortOperation next() {
         // 手动下一步：不依赖定时器
         if (player == null) return null;
+        pump();
         SortOperation op = player.next(); // 可能返回 null（已到末尾）
         emit(op);                         // 推送快照给 UI
         return op;
@@ -131,42 +234,93 @@ public final class PlaybackController {
         return op;
     }
 
-    private void scheduleTick() {
-        // 安排一次“到点推进一步”的 tick
-        if (!playing || player == null) return;
+    public SortOperation seek(int target) {
+        // 随机跳转（例如拖动时间轴）：由 StepPlayer 利用关键帧只重放差量
+        if (player == null) return null;
+        pump();
+        SortOperation op = player.seek(target);
+        emit(op);
+        return op;
+    }
 
-        timer = new PauseTransition(Duration.millis(delayMillis));
-        timer.setOnFinished(evt -> {
-            if (!playing || player == null) return;
+    private void onFrame(long now) {
+        // 每个显示帧调用一次：按经过的时间推进若干步，最后只 emit 一次
+        if (!playing || player == null) return;
+        if (lastFrameNanos == 0) {
+            lastFrameNanos = now;
+            return;
+        }
+        double elapsed = Math.min(MAX_FRAME_SECONDS, (now - lastFrameNanos) / 1e9);
+        lastFrameNanos = now;
+        averageFrameSeconds = (averageFrameSeconds == 0)
+                ? elapsed
+                : averageFrameSeconds + FRAME_SMOOTHING * (elapsed - averageFrameSeconds);
 
-            // 到点：推进一步并通知 UI
-            SortOperation op = player.next();
+        // 边录边放时若暂无新数据，本帧就不推进，等录制线程追上
+        pump();
+        if (targetDurationSeconds > 0) {
+            // 定时播完：每帧批量 = 总步数 × 平均帧时长 / 目标时长（边录边放时按当前已知的总步数）
+            pendingSteps += player.size() * averageFrameSeconds / targetDurationSeconds;
+        } else {
+            pendingSteps += elapsed * stepsPerSecond;
+        }
+        int available = player.size() - player.cursor();
+        long due = (long) pendingSteps;
+        if (due > 0 && available > 0) {
+            int steps = (int) Math.min(due, available);
+            pendingSteps -= steps;
+            // 一步用 next()；多步用 seek()：从当前位置整段批量重放（applyRange），不逐步构造视图
+            SortOperation op = (steps == 1) ? player.next() : player.seek(player.cursor() + steps);
             emit(op);
+        } else if (available == 0) {
+            // 没有可推进的数据时不累积，避免数据到达后一帧内猛冲
+            pendingSteps = 0;
+        }
 
-            if (player.hasNext()) {
-                // 还有下一步：继续安排下一次 tick
-                scheduleTick();
-            } else {
-                // 已到末尾：停止播放并回调 onFinished（用于渲染完成态等）
-                playing = false;
-                if (timer != null) {
-                    timer.stop();
-                    timer = null;
-                }
-                if (onFinished != null) {
-                    onFinished.run();
-                }
+        if (!player.hasNext() && stream == null) {
+            // 已到末尾：停止播放并回调 onFinished（用于渲染完成态等）
+            playing = false;
+            frameTimer.stop();
+            if (onFinished != null && !streamFailed) {
+                onFinished.run();
             }
-        });
-        timer.play();
+        }
+    }
+
+    private void pump() {
+        // 把录制线程已发布的操作搬进回放日志；录制结束后释放缓冲区
+        if (stream == null) return;
+        try {
+            stream.drainTo(streamLog);
+        } catch (IllegalStateException e) {
+            // 日志装不下了（例如步数达到上限）：放弃录制，录制线程会以 CancellationException 退出。
+            // 这里不卸载回放（调用方可能正处在 onFrame/next 中），由上层通过 streamError() 得知原因
+            streamError = e;
+            streamFailed = true;
+            stream.cancel();
+            stream = null;
+            streamLog = null;
+            return;
+        }
+        if (stream.isFinished()) {
+            streamFailed = stream.failure() != null;
+            stream = null;
+            streamLog = null;
+            if (!streamFailed && onStreamComplete != null) {
+                onStreamComplete.run();
+            }
+        }
     }
 
     private void emit(SortOperation op) {
         // emit 的职责：把 StepPlayer 当前状态打包成 PlaybackSnapshot 并交给上层（通常是 Controller/UI）
         if (player == null) return;
         if (onUpdate == null) return;
+        // 不再拷贝数组：快照携带只读视图 + 脏下标，UI 渲染完后清空脏集合
+        DirtyIndices dirty = player.dirty();
         onUpdate.accept(new PlaybackSnapshot(
-                player.currentArray(),
+                player.view(),
+                dirty,
                 op,
                 player.cursor(),
                 player.size(),
@@ -174,5 +328,7 @@ public final class PlaybackController {
                 player.hasNext(),
                 playing
         ));
+        // 只清空本次快照的脏集合：回调里可能已经卸载/换成了新的回放
+        dirty.clear();
     }
 }
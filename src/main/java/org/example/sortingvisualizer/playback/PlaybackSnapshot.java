@@ -1,12 +1,18 @@
 package org.example.sortingvisualizer.playback;
 
+import org.example.sortingvisualizer.step.ArrayView;
+import org.example.sortingvisualizer.step.DirtyIndices;
 import org.example.sortingvisualizer.step.SortOperation;
 
 /**
  * 一次回放更新的快照。
+ * <p>
+ * state 与 dirty 都是回放器内部状态的实时视图（不拷贝数组），只在本次回调内有效；
+ * 回调返回后 dirty 会被清空，下一次更新只包含之后新修改的下标。
  */
 public record PlaybackSnapshot(
-        int[] state,                // 当前回放后的数组状态（UI 用于绘制柱子）
+        ArrayView state,            // 当前回放后的数组状态（只读视图，UI 用于绘制柱子）
+        DirtyIndices dirty,         // 自上次更新以来被修改过的下标（渲染端据此增量重绘）
         SortOperation operation,     // 本次“刚刚执行/撤销”的操作（用于回显文本与高亮）
         int cursor,                 // 当前游标：指向“下一个要执行”的操作索引
         int size,                   // 总操作数
@@ -0,0 +1,192 @@
+package org.example.sortingvisualizer.playback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.example.sortingvisualizer.step.DirtyIndices;
+import org.example.sortingvisualizer.step.RecordedSort;
+import org.example.sortingvisualizer.step.SortOperation;
+import org.example.sortingvisualizer.step.StepPlayer;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * 竞速回放控制器：多条录制（同一输入、不同算法）在同一个时钟下并排回放。
+ * <p>
+ * 每条赛道有一个“权重”，权重最大的赛道恰好用 {@link #setDurationSeconds(double)} 秒跑完，
+ * 其余赛道按权重比例更早到达终点：
+ * <ul>
+ *   <li>{@link Mode#STEPS}：权重 = 操作数，相同时间内各赛道执行相同步数</li>
+ *   <li>{@link Mode#WALL_CLOCK}：权重 = 实测排序耗时，回放速度反映算法真实快慢</li>
+ * </ul>
+ * 与 {@link PlaybackController} 一样由 {@link AnimationTimer} 驱动，每帧每条赛道最多通知 UI 一次。
+ */
+public final class RaceController {
+
+    public enum Mode {
+        /** 按操作数：每条赛道每秒执行相同步数。 */
+        STEPS("按操作数"),
+        /** 按实际耗时：赛道时长与实测排序耗时成正比。 */
+        WALL_CLOCK("按实际耗时");
+
+        private final String displayName;
+
+        Mode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    public static final double DEFAULT_DURATION_SECONDS = 20;
+
+    /** 单帧最多按多长时间推进：卡顿恢复后不一次性跳过一大段。 */
+    private static final double MAX_FRAME_SECONDS = 0.1;
+
+    private final Mode mode;
+    private final List<Lane> lanes = new ArrayList<>();
+
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onFrame(now);
+        }
+    };
+    private boolean playing;
+    private long lastFrameNanos;
+    /** 共享时钟：已经回放了多少秒（暂停时不走）。 */
+    private double clockSeconds;
+    private double durationSeconds = DEFAULT_DURATION_SECONDS;
+    private Runnable onFinished;
+
+    public RaceController(Mode mode) {
+        this.mode = Objects.requireNonNull(mode, "mode");
+    }
+
+    /**
+     * 加入一条赛道。
+     *
+     * @param recording 录制结果
+     * @param sortNanos 该算法的实测排序耗时（{@link Mode#WALL_CLOCK} 时使用）
+     * @param onUpdate  该赛道的更新回调（快照语义与 {@link PlaybackController} 相同）
+     */
+    public void addLane(RecordedSort recording, long sortNanos, Consumer<PlaybackSnapshot> onUpdate) {
+        Objects.requireNonNull(recording, "recording");
+        Lane lane = new Lane(new StepPlayer(recording.initialArray(), recording.log()),
+                (mode == Mode.STEPS) ? recording.size() : sortNanos, onUpdate);
+        lanes.add(lane);
+        emit(lane, null);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void setDurationSeconds(double durationSeconds) {
+        if (!(durationSeconds > 0)) {
+            throw new IllegalArgumentException("durationSeconds 必须为正数: " + durationSeconds);
+        }
+        this.durationSeconds = durationSeconds;
+    }
+
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public boolean isFinished() {
+        for (Lane lane : lanes) {
+            if (lane.player.hasNext()) return false;
+        }
+        return true;
+    }
+
+    public void start() {
+        if (playing || lanes.isEmpty()) return;
+        playing = true;
+        lastFrameNanos = 0;
+        frameTimer.start();
+    }
+
+    public void pause() {
+        playing = false;
+        frameTimer.stop();
+    }
+
+    public void stop() {
+        pause();
+        lanes.clear();
+        clockSeconds = 0;
+    }
+
+    private void onFrame(long now) {
+        if (!playing) return;
+        if (lastFrameNanos == 0) {
+            lastFrameNanos = now;
+            return;
+        }
+        clockSeconds += Math.min(MAX_FRAME_SECONDS, (now - lastFrameNanos) / 1e9);
+        lastFrameNanos = now;
+
+        double maxWeight = 0;
+        for (Lane lane : lanes) {
+            maxWeight = Math.max(maxWeight, lane.weight);
+        }
+        for (Lane lane : lanes) {
+            // 赛道时长 = 总时长 × 权重占比；目标游标按时钟线性推进
+            double laneSeconds = (maxWeight <= 0) ? 0 : durationSeconds * lane.weight / maxWeight;
+            int size = lane.player.size();
+            int target = (laneSeconds <= 0 || clockSeconds >= laneSeconds)
+                    ? size
+                    : (int) Math.min(size, (long) (size * (clockSeconds / laneSeconds)));
+            int cursor = lane.player.cursor();
+            if (target == cursor) continue;
+            SortOperation op = (target == cursor + 1) ? lane.player.next() : lane.player.seek(target);
+            emit(lane, op);
+        }
+
+        if (isFinished()) {
+            pause();
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+    }
+
+    private void emit(Lane lane, SortOperation op) {
+        if (lane.onUpdate == null) return;
+        StepPlayer player = lane.player;
+        DirtyIndices dirty = player.dirty();
+        lane.onUpdate.accept(new PlaybackSnapshot(
+                player.view(),
+                dirty,
+                op,
+                player.cursor(),
+                player.size(),
+                player.hasPrev(),
+                player.hasNext(),
+                playing
+        ));
+        dirty.clear();
+    }
+
+    private static final class Lane {
+        private final StepPlayer player;
+        private final double weight;
+        private final Consumer<PlaybackSnapshot> onUpdate;
+
+        private Lane(StepPlayer player, double weight, Consumer<PlaybackSnapshot> onUpdate) {
+            this.player = player;
+            this.weight = Math.max(0, weight);
+            this.onUpdate = onUpdate;
+        }
+    }
+}
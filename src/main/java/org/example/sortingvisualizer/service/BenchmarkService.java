@@ -5,8 +5,11 @@ import java.util.List;
 
 import org.example.sortingvisualizer.algorithm.AlgorithmRegistry;
 import org.example.sortingvisualizer.algorithm.Sorter;
+import org.example.sortingvisualizer.algorithm.impl.MergeSort;
+import org.example.sortingvisualizer.algorithm.impl.ParallelMergeSort;
 import org.example.sortingvisualizer.model.AlgorithmInfo;
 import org.example.sortingvisualizer.model.PerformanceMetrics;
+import org.example.sortingvisualizer.model.SpeedupMetrics;
 import org.example.sortingvisualizer.util.DataGenerator;
 
 import javafx.concurrent.Task;
@@ -17,6 +20,11 @@ import javafx.concurrent.Task;
  */
 public class BenchmarkService {
 
+    /**
+     * 加速比测试的最小数据量：并行归并排序在 8K 以下直接顺序排序，基准测试常用的规模测不出并行效果。
+     */
+    static final int SPEEDUP_MIN_SIZE = 1 << 20;
+
     /**
      * 创建基准测试任务
      * 
@@ -79,6 +87,80 @@ public class BenchmarkService {
         };
     }
 
+    /**
+     * 测量一个算法在给定数据上的纯排序耗时（纳秒，不带监听器）。
+     * <p>
+     * 先预热一次，再重复运行取最小值：最小值受 GC/线程调度干扰最小，更接近算法本身的耗时。
+     * 总测量时间超过约 200ms 或已运行 5 次后停止。
+     *
+     * @param sorter 排序算法
+     * @param data 输入数据（不会被修改）
+     * @return 最短一次的耗时（纳秒，至少为 1）
+     */
+    public long measureNanos(Sorter sorter, int[] data) {
+        final long budgetNanos = 200_000_000L;
+        final int maxRuns = 5;
+        int[] input = (data == null) ? new int[0] : data;
+
+        // 预热：让 JIT 先编译热点代码，避免第一次运行的解释执行拉高结果
+        sorter.sort(input.clone(), null);
+
+        long best = Long.MAX_VALUE;
+        long spent = 0;
+        for (int run = 0; run < maxRuns && spent < budgetNanos; run++) {
+            int[] arrayCopy = input.clone();
+            long startTime = System.nanoTime();
+            sorter.sort(arrayCopy, null);
+            long elapsed = System.nanoTime() - startTime;
+            best = Math.min(best, elapsed);
+            spent += elapsed;
+        }
+        return Math.max(1, best);
+    }
+
+    /**
+     * 创建并行加速比测试任务：并行归并排序在 1, 2, 4, ... 个线程（直到可用处理器数）下的耗时，
+     * 与顺序归并排序在同一份数据上的耗时对比。
+     * 实际数据量至少为 {@value #SPEEDUP_MIN_SIZE}（见结果中的 dataSize）。
+     *
+     * @param size 数据规模
+     * @param dataType 数据类型
+     * @return 返回一个Task对象，执行后按并行度从小到大返回加速比列表
+     */
+    public Task<List<SpeedupMetrics>> createSpeedupTask(int size, String dataType) {
+        return new Task<>() {
+            @Override
+            protected List<SpeedupMetrics> call() throws Exception {
+                int speedupSize = Math.max(size, SPEEDUP_MIN_SIZE);
+                int[] baseArray = generateData(speedupSize, dataType);
+                long baselineNanos = measureNanos(new MergeSort(), baseArray);
+
+                List<SpeedupMetrics> results = new ArrayList<>();
+                for (int parallelism : parallelismLevels()) {
+                    if (isCancelled()) break;
+                    // 每个并行度用一个临时实例（自带线程池），测完即关闭
+                    try (ParallelMergeSort sorter = new ParallelMergeSort(parallelism)) {
+                        results.add(new SpeedupMetrics(speedupSize, parallelism, measureNanos(sorter, baseArray), baselineNanos));
+                    }
+                }
+                return results;
+            }
+        };
+    }
+
+    /**
+     * 要测的并行度：1, 2, 4, ...，最后一项为可用处理器数（不是 2 的幂时也补上）。
+     */
+    static List<Integer> parallelismLevels() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        for (int p = 1; p < cores; p *= 2) {
+            levels.add(p);
+        }
+        levels.add(cores);
+        return levels;
+    }
+
     /**
      * 根据指定的类型和大小生成测试数据
      * 
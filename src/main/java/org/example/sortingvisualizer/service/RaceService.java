@@ -0,0 +1,114 @@
+package org.example.sortingvisualizer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.example.sortingvisualizer.algorithm.AlgorithmRegistry;
+import org.example.sortingvisualizer.algorithm.Sorter;
+import org.example.sortingvisualizer.step.CompactOperationLog;
+import org.example.sortingvisualizer.step.OperationCompactor;
+import org.example.sortingvisualizer.step.OperationLog;
+import org.example.sortingvisualizer.step.RecordedSort;
+import org.example.sortingvisualizer.step.SampledOperationLog;
+
+import javafx.concurrent.Task;
+
+/**
+ * 算法竞速服务：为多个算法在同一份输入上并行录制，并测量各自的真实排序耗时。
+ * <p>
+ * 录制在固定大小的工作线程池上并行进行（每个算法一个任务）；
+ * 耗时测量放在全部录制完成之后逐个进行，避免多个排序同时抢占 CPU 导致计时失真。
+ */
+public class RaceService {
+
+    /**
+     * 一条竞速赛道的数据：录制结果 + 该算法不带监听器时的排序耗时。
+     */
+    public record Entry(RecordedSort recording, long sortNanos) {
+    }
+
+    private final StepRecordingService stepRecordingService = new StepRecordingService();
+    private final BenchmarkService benchmarkService = new BenchmarkService();
+
+    /**
+     * 创建竞速准备任务。
+     *
+     * @param algorithms 参赛算法名称（顺序即赛道顺序）
+     * @param data 公共输入（不会被修改）
+     * @param policy 录制策略
+     * @return 执行后返回与 algorithms 顺序一致的赛道数据
+     */
+    public Task<List<Entry>> createRaceTask(List<String> algorithms, int[] data, RecordingPolicy policy) {
+        Objects.requireNonNull(algorithms, "algorithms");
+        Objects.requireNonNull(policy, "policy");
+        int[] input = (data == null) ? new int[0] : data.clone();
+
+        return new Task<>() {
+            @Override
+            protected List<Entry> call() throws Exception {
+                int threads = Math.max(1, Math.min(algorithms.size(), Runtime.getRuntime().availableProcessors()));
+                ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+                    Thread thread = new Thread(runnable, "race-recorder");
+                    // 守护线程：应用退出时不会被未完成的录制拖住
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                try {
+                    // 1) 并行录制：每个算法一个任务
+                    List<Future<RecordedSort>> futures = new ArrayList<>();
+                    for (String algoName : algorithms) {
+                        Sorter sorter = AlgorithmRegistry.getSorter(algoName);
+                        if (sorter == null) {
+                            throw new IllegalArgumentException("找不到算法：" + algoName);
+                        }
+                        futures.add(pool.submit(() -> compact(stepRecordingService.record(algoName, sorter, input, policy))));
+                    }
+                    List<RecordedSort> recordings = new ArrayList<>();
+                    for (Future<RecordedSort> future : futures) {
+                        try {
+                            recordings.add(future.get());
+                        } catch (ExecutionException ex) {
+                            Throwable cause = ex.getCause();
+                            throw (cause instanceof Exception e) ? e : ex;
+                        }
+                        updateProgress(recordings.size(), 2L * algorithms.size());
+                    }
+
+                    // 2) 逐个计时：此时线程池已空闲，测量不受其他录制干扰
+                    List<Entry> entries = new ArrayList<>();
+                    for (RecordedSort recording : recordings) {
+                        if (isCancelled()) break;
+                        Sorter sorter = AlgorithmRegistry.getSorter(recording.algorithmName());
+                        entries.add(new Entry(recording, benchmarkService.measureNanos(sorter, input)));
+                        updateProgress(algorithms.size() + entries.size(), 2L * algorithms.size());
+                    }
+                    return entries;
+                } finally {
+                    // 取消/失败时中断仍在录制的任务：录制回调检查中断标志，各赛道在下一次回调时退出
+                    pool.shutdownNow();
+                }
+            }
+        };
+    }
+
+    /**
+     * 把录制日志压缩成块操作以减少多条赛道同时常驻的内存；压缩后反而更大时保留原日志。
+     */
+    private static RecordedSort compact(RecordedSort recording) {
+        OperationLog log = recording.log();
+        CompactOperationLog compacted = OperationCompactor.compact(log, log.estimatedBytes());
+        if (compacted == null) {
+            return recording;
+        }
+        // 抽样录制：保留丢弃登记，只换底层日志
+        OperationLog replacement = (log instanceof SampledOperationLog sampledLog)
+                ? sampledLog.withBase(compacted)
+                : compacted;
+        return new RecordedSort(recording.algorithmName(), recording.initialArray(), replacement, recording.heatmap());
+    }
+}
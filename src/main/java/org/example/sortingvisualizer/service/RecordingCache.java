@@ -0,0 +1,131 @@
+package org.example.sortingvisualizer.service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.example.sortingvisualizer.step.AccessHeatmap;
+import org.example.sortingvisualizer.step.RecordedSort;
+
+/**
+ * 录制结果缓存：同一算法、同一录制策略、同一输入数组再次排序时直接复用已完成的录制，
+ * 免去重新录制的等待（例如“退出排序”后重新开始，或在几个算法之间来回切换）。
+ * <p>
+ * 键 = 算法名 + 录制策略 + 输入数组指纹（长度与 64 位哈希）；命中时再逐元素比对输入，
+ * 因此哈希碰撞不会返回错误的录制。
+ * 按 LRU 淘汰，同时受条目数与估算字节数两个上限约束；单个超过字节上限的录制不缓存。
+ * <p>
+ * 只应缓存只读、常驻堆内的录制（例如压缩后的日志）：缓存不负责关闭日志，
+ * 被淘汰的条目交给 GC 回收。所有方法都是线程安全的。
+ */
+public final class RecordingCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    /** accessOrder=true：get 会把条目移到队尾，队首即最久未使用。 */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public RecordingCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public RecordingCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries 必须为正数: " + maxEntries);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes 必须为正数: " + maxBytes);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 查找 algorithmName + policy 在输入 data 上的录制；未命中返回 null。
+     */
+    public synchronized RecordedSort get(String algorithmName, RecordingPolicy policy, int[] data) {
+        int[] input = (data == null) ? new int[0] : data;
+        Entry entry = entries.get(new Key(algorithmName, policy, input.length, fingerprint(input)));
+        // 指纹相同但内容不同（哈希碰撞）视为未命中
+        return (entry != null && Arrays.equals(entry.input, input)) ? entry.recording : null;
+    }
+
+    /**
+     * 缓存一份已完成的录制（以录制自带的算法名与初始数组为键），并按上限淘汰最久未使用的条目。
+     */
+    public synchronized void put(RecordingPolicy policy, RecordedSort recording) {
+        Objects.requireNonNull(policy, "policy");
+        Objects.requireNonNull(recording, "recording");
+        int[] input = recording.initialArray();
+        Key key = new Key(recording.algorithmName(), policy, input.length, fingerprint(input));
+        long size = estimateBytes(recording, input);
+        if (size > maxBytes) {
+            // 单个录制就超出上限：缓存它会把其余条目全部挤掉，不值得
+            return;
+        }
+
+        Entry old = entries.put(key, new Entry(recording, input, size));
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += size;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** 当前缓存条目的估算字节数之和。 */
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * 输入数组的 64 位指纹：逐元素乘加后再做一次混合，O(n) 且不分配内存。
+     */
+    static long fingerprint(int[] data) {
+        long h = 0x9E3779B97F4A7C15L ^ data.length;
+        for (int value : data) {
+            h = (h ^ value) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        // 最终混合（splitmix64 的收尾步骤），让相近的输入也得到差别很大的指纹
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static long estimateBytes(RecordedSort recording, int[] input) {
+        // 操作日志 + 初始数组（录制内一份、缓存比对用一份）+ 热力图
+        long size = recording.log().estimatedBytes() + input.length * 8L;
+        AccessHeatmap heatmap = recording.heatmap();
+        if (heatmap != null) {
+            size += heatmap.estimatedBytes();
+        }
+        return size;
+    }
+
+    private record Key(String algorithmName, RecordingPolicy policy, int length, long fingerprint) {
+    }
+
+    private record Entry(RecordedSort recording, int[] input, long bytes) {
+    }
+}
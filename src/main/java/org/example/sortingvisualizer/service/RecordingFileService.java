@@ -0,0 +1,52 @@
+package org.example.sortingvisualizer.service;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.example.sortingvisualizer.step.RecordedSort;
+import org.example.sortingvisualizer.step.RecordingFile;
+
+/**
+ * 录制文件服务类
+ *
+ * 负责把录制结果保存为二进制录制文件（*.svrec），以及从文件打开录制结果。
+ * 打开的录制直接用于回放，不需要重新运行排序算法；具体格式见 {@link RecordingFile}。
+ */
+public class RecordingFileService {
+
+    /**
+     * 保存录制结果
+     *
+     * @param recording 已完成的录制结果
+     * @param file 目标文件（已存在则覆盖）
+     * @throws IOException 写入失败时抛出异常
+     * @throws IllegalArgumentException 参数为空时抛出异常
+     */
+    public void save(RecordedSort recording, File file) throws IOException, IllegalArgumentException {
+        if (recording == null) {
+            throw new IllegalArgumentException("没有可保存的录制");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("未选择文件");
+        }
+        RecordingFile.write(recording, file.toPath());
+    }
+
+    /**
+     * 打开录制文件
+     *
+     * 只读取文件头与块索引，操作数据在回放时按需读取；
+     * 返回结果的日志持有文件句柄，不再使用时应关闭。
+     *
+     * @param file 录制文件
+     * @return 录制结果
+     * @throws IOException 读取失败或文件格式无效时抛出异常
+     * @throws IllegalArgumentException 未选择文件时抛出异常
+     */
+    public RecordedSort open(File file) throws IOException, IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("未选择文件");
+        }
+        return RecordingFile.open(file.toPath());
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.sortingvisualizer.service;
+
+/**
+ * 录制策略：决定哪些比较操作需要写进回放日志。
+ * <p>
+ * 交换/写入会改变数组，回放必须完整保留，因此所有策略都只丢弃比较；
+ * 被丢弃的比较仍会计入统计（见 {@link org.example.sortingvisualizer.step.SampledOperationLog}）。
+ * 对大数据量来说比较往往占操作总数的大半，丢掉它们能显著缩短录制与回放。
+ */
+public final class RecordingPolicy {
+
+    public enum Mode {
+        /** 完整录制：保留所有操作。 */
+        ALL,
+        /** 保留所有修改，比较只保留每第 k 次。 */
+        SAMPLED_COMPARES,
+        /** 只保留修改（交换/写入）。 */
+        MUTATIONS_ONLY,
+        /** 前 N 步完整录制，之后只保留修改。 */
+        BUDGETED
+    }
+
+    private static final RecordingPolicy ALL = new RecordingPolicy(Mode.ALL, 1, 0);
+    private static final RecordingPolicy MUTATIONS_ONLY = new RecordingPolicy(Mode.MUTATIONS_ONLY, 1, 0);
+
+    private final Mode mode;
+    private final int compareStride;
+    private final long opBudget;
+
+    private RecordingPolicy(Mode mode, int compareStride, long opBudget) {
+        this.mode = mode;
+        this.compareStride = compareStride;
+        this.opBudget = opBudget;
+    }
+
+    public static RecordingPolicy all() {
+        return ALL;
+    }
+
+    public static RecordingPolicy mutationsOnly() {
+        return MUTATIONS_ONLY;
+    }
+
+    /**
+     * 比较只保留每第 k 次（第 0、k、2k... 次）。k=1 等价于完整录制。
+     */
+    public static RecordingPolicy everyKthCompare(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须为正数: " + k);
+        }
+        return (k == 1) ? ALL : new RecordingPolicy(Mode.SAMPLED_COMPARES, k, 0);
+    }
+
+    /**
+     * 录制满 maxOps 步之前完整录制，之后只保留修改。
+     */
+    public static RecordingPolicy budgeted(long maxOps) {
+        if (maxOps < 0) {
+            throw new IllegalArgumentException("maxOps 不能为负数: " + maxOps);
+        }
+        return new RecordingPolicy(Mode.BUDGETED, 1, maxOps);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * 本策略是否可能丢弃比较（决定是否需要额外记录真实统计次数）。
+     */
+    public boolean dropsCompares() {
+        return mode != Mode.ALL;
+    }
+
+    /**
+     * 是否保留一次比较。
+     *
+     * @param compareOrdinal 这是排序过程中的第几次比较（从 0 开始，含已丢弃的）
+     * @param recordedOps    目前已写入日志的步数
+     */
+    public boolean keepCompare(long compareOrdinal, long recordedOps) {
+        return switch (mode) {
+            case ALL -> true;
+            case SAMPLED_COMPARES -> compareOrdinal % compareStride == 0;
+            case MUTATIONS_ONLY -> false;
+            case BUDGETED -> recordedOps < opBudget;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecordingPolicy other)) return false;
+        return mode == other.mode && compareStride == other.compareStride && opBudget == other.opBudget;
+    }
+
+    @Override
+    public int hashCode() {
+        return (mode.hashCode() * 31 + compareStride) * 31 + Long.hashCode(opBudget);
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case ALL -> "完整录制";
+            case SAMPLED_COMPARES -> "比较抽样 1/" + compareStride;
+            case MUTATIONS_ONLY -> "仅记录修改";
+            case BUDGETED -> "前 " + opBudget + " 步完整";
+        };
+    }
+}
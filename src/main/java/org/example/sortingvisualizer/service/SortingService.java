@@ -1,19 +1,31 @@
 package org.example.sortingvisualizer.service;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.LongSupplier;
 
 import org.example.sortingvisualizer.algorithm.AlgorithmRegistry;
 import org.example.sortingvisualizer.algorithm.SortStepListener;
 import org.example.sortingvisualizer.algorithm.Sorter;
+import org.example.sortingvisualizer.step.SortOperationType;
 import org.example.sortingvisualizer.view.VisualizerPane;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.paint.Color;
 
 /**
  * 排序服务类，负责创建和管理排序任务
+ * <p>
+ * 实时模式下排序线程不为每个事件投递 {@link Platform#runLater}：
+ * 排序线程把“最新一步”（带版本号的数组快照）放进一个无锁槽位，
+ * UI 端由 {@link AnimationTimer} 每帧最多取一次，版本变化时才重绘。
+ * 快照只在 UI 取走上一帧之后才重新拷贝，因此每个脉冲最多拷贝一次数组；其余事件只记下“数组变了”。
+ * 事件再快，FX 事件队列里也不会堆积更新，排序线程也不会为每一步付出 O(n) 的拷贝。
+ * <p>
+ * UI 只读快照、从不读排序中的数组，因此不会画出交换到一半的中间状态（同一个值出现两次）。
  */
 public class SortingService {
 
@@ -39,6 +51,26 @@ public class SortingService {
         private static final long serialVersionUID = 1L;
     }
 
+    /**
+     * 实时模式的一帧：版本号 + 高亮下标 + 操作类型 + 该时刻数组的完整快照。
+     * <p>
+     * 三帧轮流使用（三重缓冲）：排序线程写一帧、槽位里放一帧、UI 持有一帧，同一时刻每帧只属于一方。
+     * 交接都通过槽位的 {@link AtomicReference#getAndSet}，写入快照先行发生于 UI 读取。
+     */
+    private static final class LiveFrame {
+        private final int[] values;
+        private long version;
+        /** values 对应排序数组的第几次修改：与当前修改次数相同时（例如连续比较）不必重新拷贝。 */
+        private long dataVersion = -1;
+        private int index1;
+        private int index2;
+        private SortOperationType type;
+
+        private LiveFrame(int length) {
+            this.values = new int[length];
+        }
+    }
+
     /**
      * 创建一个排序任务
      * 
@@ -65,9 +97,48 @@ public class SortingService {
                 // 克隆原始数据，避免修改原数组
                 int[] arrayToSort = data.clone();
 
+                // 最新一步的槽位：排序线程换入新写好的帧，UI 每帧最多换出一次
+                AtomicReference<LiveFrame> latest = new AtomicReference<>(new LiveFrame(arrayToSort.length));
+                // UI 已取走上一帧：排序线程这才准备下一帧
+                AtomicBoolean frameTaken = new AtomicBoolean(true);
+                AnimationTimer drainer = new AnimationTimer() {
+                    /** UI 当前持有的帧（排序线程不会碰它）。 */
+                    private LiveFrame owned = new LiveFrame(arrayToSort.length);
+                    private long drawnVersion;
+
+                    @Override
+                    public void handle(long now) {
+                        if (myToken != runToken.get()) {
+                            stop();
+                            return;
+                        }
+                        // 用手里的帧换出槽位中的帧：换到的可能是新帧，也可能是上次还回去的旧帧
+                        LiveFrame frame = latest.getAndSet(owned);
+                        owned = frame;
+                        if (frame.version <= drawnVersion) return;
+                        drawnVersion = frame.version;
+                        frameTaken.set(true);
+                        // renderState 只把变化拷进面板自己的数组，不保留对快照的引用
+                        visualizerPane.renderState(frame.values, frame.index1, frame.index2, colorFor(frame.type));
+                    }
+                };
+                Platform.runLater(drainer::start);
+
                 // 执行排序操作，并传入监听器以监控排序过程
                 try {
                     sorter.sort(arrayToSort, new SortStepListener() {
+                    /** 本次运行内单调递增的版本号（只有排序线程写）。 */
+                    private long version;
+                    /** 排序数组被修改（交换/写入）的次数。 */
+                    private long dataVersion;
+                    /** 排序线程当前持有、正在写入的帧。 */
+                    private LiveFrame back = new LiveFrame(arrayToSort.length);
+                    // 最近一步（可能尚未发布）
+                    private int lastIndex1;
+                    private int lastIndex2;
+                    private SortOperationType lastType;
+                    private boolean unpublished;
+
                     /**
                      * 当比较两个元素时调用
                      * @param index1 第一个元素的索引
@@ -76,11 +147,8 @@ public class SortingService {
                     @Override
                     public void onCompare(int index1, int index2) {
                         checkCancelled();
-                        // 在JavaFX应用程序线程中高亮显示正在比较的元素（红色）
-                        Platform.runLater(() -> {
-                            if (!isActiveRun()) return;
-                            visualizerPane.highlight(index1, index2, Color.RED);
-                        });
+                        // 发布最新一步：UI 下一帧高亮正在比较的元素（红色）
+                        step(index1, index2, SortOperationType.COMPARE);
                         // 暂停一段时间，以便用户可以看到可视化效果
                         sleep();
                     }
@@ -93,13 +161,9 @@ public class SortingService {
                     @Override
                     public void onSwap(int index1, int index2) {
                         checkCancelled();
-                        Platform.runLater(() -> {
-                            if (!isActiveRun()) return;
-                            // 更新可视化面板上的数组显示
-                            visualizerPane.updateArray(arrayToSort);
-                            // 高亮显示正在交换的元素（绿色）
-                            visualizerPane.highlight(index1, index2, Color.GREEN);
-                        });
+                        // 发布最新一步：UI 下一帧刷新数组并高亮正在交换的元素（绿色）
+                        dataVersion++;
+                        step(index1, index2, SortOperationType.SWAP);
                         // 暂停一段时间，以便用户可以看到可视化效果
                         sleep();
                     }
@@ -112,17 +176,44 @@ public class SortingService {
                     @Override
                     public void onSet(int index, int value) {
                         checkCancelled();
-                        Platform.runLater(() -> {
-                            if (!isActiveRun()) return;
-                            // 更新可视化面板上的数组显示
-                            visualizerPane.updateArray(arrayToSort);
-                            // 高亮显示正在设置值的元素（蓝色）
-                            visualizerPane.highlight(index, index, Color.BLUE);
-                        });
+                        // 发布最新一步：UI 下一帧刷新数组并高亮正在设置值的元素（蓝色）
+                        dataVersion++;
+                        step(index, index, SortOperationType.SET);
                         // 暂停一段时间，以便用户可以看到可视化效果
                         sleep();
                     }
 
+                    /**
+                     * 记下最新一步；UI 已取走上一帧时才发布，否则留到下一步（或暂停前）再发布。
+                     */
+                    private void step(int index1, int index2, SortOperationType type) {
+                        lastIndex1 = index1;
+                        lastIndex2 = index2;
+                        lastType = type;
+                        unpublished = true;
+                        if (frameTaken.compareAndSet(true, false)) {
+                            publish();
+                        }
+                    }
+
+                    /**
+                     * 把当前状态写进自己持有的帧，再与槽位交换：之前尚未被 UI 取走的一步直接作废（换回来复用）。
+                     * 回调发生在算法写完数组之后，此时数组是一致的状态。
+                     */
+                    private void publish() {
+                        LiveFrame frame = back;
+                        if (frame.dataVersion != dataVersion) {
+                            System.arraycopy(arrayToSort, 0, frame.values, 0, arrayToSort.length);
+                            frame.dataVersion = dataVersion;
+                        }
+                        frame.version = ++version;
+                        frame.index1 = lastIndex1;
+                        frame.index2 = lastIndex2;
+                        frame.type = lastType;
+                        back = latest.getAndSet(frame);
+                        unpublished = false;
+                    }
+
                     /**
                      * 暂停方法，根据delaySupplier提供的延迟时间暂停线程
                      */
@@ -149,6 +240,11 @@ public class SortingService {
                      * @throws InterruptedException 当线程在等待期间被中断时抛出
                      */
                     private void waitIfPaused() throws InterruptedException {
+                        // 暂停期间画面应停在最新一步：补发尚未发布的那一步
+                        if (paused && unpublished) {
+                            frameTaken.set(false);
+                            publish();
+                        }
                         synchronized (pauseLock) {
                             // 当paused标志为true时，持续等待
                             while (paused) {
@@ -175,21 +271,34 @@ public class SortingService {
                     if (!isCancelled()) {
                         cancel();
                     }
+                    Platform.runLater(drainer::stop);
                     return null;
+                } catch (RuntimeException ex) {
+                    // 算法异常：任务以失败结束，同样停止取帧
+                    Platform.runLater(drainer::stop);
+                    throw ex;
                 }
 
-                // 排序完成后，在JavaFX应用程序线程中更新最终的数组显示
-                if (!isCancelled() && myToken == runToken.get()) {
-                    Platform.runLater(() -> {
-                        if (myToken != runToken.get()) return;
-                        visualizerPane.updateArray(arrayToSort);
-                    });
-                }
+                // 排序完成后，在JavaFX应用程序线程中停止取帧并更新最终的数组显示
+                boolean completed = !isCancelled() && myToken == runToken.get();
+                Platform.runLater(() -> {
+                    drainer.stop();
+                    if (!completed || myToken != runToken.get()) return;
+                    visualizerPane.updateArray(arrayToSort);
+                });
                 return null;
             }
         };
     }
 
+    private static Color colorFor(SortOperationType type) {
+        return switch (type) {
+            case COMPARE -> Color.RED;
+            case SWAP -> Color.GREEN;
+            case SET -> Color.BLUE;
+        };
+    }
+
     /**
      * 请求取消当前排序：用于“退出排序”。
      * 会解除暂停并使旧任务的 UI 更新失效。
@@ -1,16 +1,15 @@
 package org.example.sortingvisualizer.service;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 
 import org.example.sortingvisualizer.algorithm.SortStepListener;
 import org.example.sortingvisualizer.algorithm.Sorter;
-import org.example.sortingvisualizer.step.CompareOperation;
+import org.example.sortingvisualizer.step.AccessHeatmap;
+import org.example.sortingvisualizer.step.OperationSink;
+import org.example.sortingvisualizer.step.PackedOperationLog;
 import org.example.sortingvisualizer.step.RecordedSort;
-import org.example.sortingvisualizer.step.SetOperation;
-import org.example.sortingvisualizer.step.SortOperation;
-import org.example.sortingvisualizer.step.SwapOperation;
+import org.example.sortingvisualizer.step.SampledOperationLog;
 
 /**
  * 录制排序操作序列：不做 UI 更新，只把算法回调转成可回放/可撤销的操作列表。
@@ -19,33 +18,96 @@ import org.example.sortingvisualizer.step.SwapOperation;
 public class StepRecordingService {
 
     public RecordedSort record(String algorithmName, Sorter sorter, int[] data) {
-        // sorter 必须存在：record 的职责是“把排序过程录制成操作序列”，不负责兜底算法选择
-        Objects.requireNonNull(sorter, "sorter");
+        return record(algorithmName, sorter, data, RecordingPolicy.all());
+    }
 
+    /**
+     * 按录制策略录制：策略丢弃的比较不进入回放日志，但仍计入 {@link RecordedSort#count} 等统计。
+     */
+    public RecordedSort record(String algorithmName, Sorter sorter, int[] data, RecordingPolicy policy) {
+        Objects.requireNonNull(policy, "policy");
         // initial：录制结果的“初始数组快照”（回放从这里开始）
         int[] initial = (data == null) ? new int[0] : data.clone();
+
+        // ops：录制输出的“可回放操作序列”（compare/swap/set）
+        // 采用列式紧凑存储：每步只占十几个字节，不再为每次回调创建一个操作对象
+        PackedOperationLog ops = new PackedOperationLog();
+        // heatmap：录制时顺带累计的逐下标访问统计（含被策略丢弃的比较）
+        AccessHeatmap heatmap = new AccessHeatmap(initial.length);
+        if (!policy.dropsCompares()) {
+            record(sorter, initial, ops, policy, heatmap);
+            // 返回录制结果：algorithmName 主要用于 UI 状态展示/日志；回放以 initial + ops 为准
+            return new RecordedSort(algorithmName, initial, ops, heatmap);
+        }
+        // 可能丢弃比较：外面包一层，登记丢弃次数以保持统计精确
+        SampledOperationLog sampled = new SampledOperationLog(ops);
+        record(sorter, initial, sampled, policy, heatmap);
+        return new RecordedSort(algorithmName, initial, sampled, heatmap);
+    }
+
+    /**
+     * 把排序过程录制到任意输出端（例如边录边放的 {@link org.example.sortingvisualizer.step.OperationBuffer}）。
+     * 该方法在调用线程上同步运行排序，不会修改 data。
+     */
+    public void record(Sorter sorter, int[] data, OperationSink ops) {
+        record(sorter, data, ops, RecordingPolicy.all());
+    }
+
+    /**
+     * 按录制策略录制到任意输出端。被丢弃的比较会攒成一次 {@link OperationSink#skipCompares(int)}，
+     * 在下一个保留的操作之前（以及排序结束时）交给输出端。
+     */
+    public void record(Sorter sorter, int[] data, OperationSink ops, RecordingPolicy policy) {
+        record(sorter, data, ops, policy, null);
+    }
+
+    /**
+     * 录制的同时把每次回调计入访问热力图（heatmap 可为 null）。
+     * 热力图统计的是排序过程中真实发生的访问，与录制策略是否丢弃比较无关。
+     * <p>
+     * 录制线程被中断时（例如任务取消、线程池 shutdownNow），下一次回调即以 {@link CancellationException} 退出排序。
+     */
+    public void record(Sorter sorter, int[] data, OperationSink ops, RecordingPolicy policy, AccessHeatmap heatmap) {
+        // sorter 必须存在：record 的职责是“把排序过程录制成操作序列”，不负责兜底算法选择
+        Objects.requireNonNull(sorter, "sorter");
+        Objects.requireNonNull(ops, "ops");
+        Objects.requireNonNull(policy, "policy");
+
         // working：交给算法“真实排序”的工作数组（算法会就地修改它）
         // state：shadow 状态机，仅用于推导 SetOperation 的 oldValue，以及保持录制时的“逻辑状态”
         //        注意：state 不能与 working 共用，否则录制的 swap/set 会在回放时被重复应用导致错误
-        int[] working = initial.clone();
-        int[] state = initial.clone();
-
-        // ops：录制输出的“可回放操作序列”（compare/swap/set）
-        // 初始容量做一个经验预估：减少扩容次数（不影响逻辑正确性）
-        List<SortOperation> ops = new ArrayList<>(Math.max(16, state.length * 8));
+        int[] working = (data == null) ? new int[0] : data.clone();
+        int[] state = working.clone();
 
         // 执行排序：把 listener 注入算法实现，让算法在关键点回调 compare/swap/set
-        sorter.sort(working, new SortStepListener() {
+        class PolicyListener implements SortStepListener {
+            // compares：排序过程中的比较总次数（含丢弃的）；recorded：已写入日志的步数；skipped：尚未交出的丢弃次数
+            private long compares;
+            private long recorded;
+            private int skipped;
+
             @Override
             public void onCompare(int index1, int index2) {
-                // 记录一次“比较”操作（不修改数组，仅用于高亮与回显）
-                ops.add(new CompareOperation(index1, index2));
+                checkInterrupted();
+                // 记录一次“比较”操作（不修改数组，仅用于高亮与回显）；策略可以只计数不记录
+                if (heatmap != null) heatmap.onCompare(index1, index2);
+                if (policy.keepCompare(compares++, recorded)) {
+                    flushSkipped();
+                    ops.appendCompare(index1, index2);
+                    recorded++;
+                } else if (++skipped == Integer.MAX_VALUE) {
+                    flushSkipped();
+                }
             }
 
             @Override
             public void onSwap(int index1, int index2) {
+                checkInterrupted();
                 // 记录一次“交换”操作（可撤销：undo=再 swap 一次）
-                ops.add(new SwapOperation(index1, index2));
+                if (heatmap != null) heatmap.onSwap(index1, index2);
+                flushSkipped();
+                ops.appendSwap(index1, index2);
+                recorded++;
                 // 同步 shadow 状态：保证后续 onSet 能拿到正确 oldValue
                 if (index1 >= 0 && index1 < state.length && index2 >= 0 && index2 < state.length) {
                     int t = state[index1];
@@ -56,17 +118,37 @@ public class StepRecordingService {
 
             @Override
             public void onSet(int index, int value) {
+                checkInterrupted();
                 // 对于“写回/赋值”类算法（如归并/计数等），需要记录 oldValue 才能支持撤销
                 int old = (index >= 0 && index < state.length) ? state[index] : value;
-                ops.add(new SetOperation(index, old, value));
+                if (heatmap != null) heatmap.onSet(index);
+                flushSkipped();
+                ops.appendSet(index, old, value);
+                recorded++;
                 // 同步 shadow 状态，保持 state 与“录制进度”一致
                 if (index >= 0 && index < state.length) {
                     state[index] = value;
                 }
             }
-        });
 
-        // 返回录制结果：algorithmName 主要用于 UI 状态展示/日志；回放以 initial + ops 为准
-        return new RecordedSort(algorithmName, initial, ops);
+            private void checkInterrupted() {
+                // 算法本身不检查中断：由回调代为检查，保证取消后录制尽快停止、不再占用内存
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("录制被中断");
+                }
+            }
+
+            private void flushSkipped() {
+                if (skipped > 0) {
+                    ops.skipCompares(skipped);
+                    skipped = 0;
+                }
+            }
+        }
+
+        PolicyListener listener = new PolicyListener();
+        sorter.sort(working, listener);
+        // 排序结束：最后一次修改之后丢弃的比较也要计入
+        listener.flushSkipped();
     }
 }
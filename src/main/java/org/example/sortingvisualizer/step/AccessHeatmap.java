@@ -0,0 +1,201 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Arrays;
+
+/**
+ * 访问热力图：在录制过程中逐个回调累加，统计算法把“内存访问”集中在数组的哪些位置、哪些时段。
+ * <p>
+ * 包含两部分：
+ * <ul>
+ *   <li>逐下标计数：读（比较的两个下标）、写（SET）、交换（SWAP 的两个下标）</li>
+ *   <li>时间分桶矩阵：行是时间窗口（按操作序号划分），列是下标分桶（最多 {@link #MAX_COLUMNS} 列）。
+ *       行数到达 {@link #MAX_ROWS} 时相邻两行合并、窗口宽度翻倍，因此内存固定，与录制长度无关。</li>
+ * </ul>
+ * 录制过程中由录制线程写入；读取方应在录制结束后（例如任务完成回调里）再读取。
+ */
+public final class AccessHeatmap {
+
+    /** 下标分桶上限（矩阵列数）。 */
+    public static final int MAX_COLUMNS = 128;
+
+    /** 时间窗口上限（矩阵行数）。 */
+    public static final int MAX_ROWS = 128;
+
+    private final int length;
+    private final long[] reads;
+    private final long[] writes;
+    private final long[] swaps;
+
+    private final int columns;
+    /** matrix[row * columns + column]：该时间窗口内落在该下标分桶的访问次数。 */
+    private final long[] matrix;
+    private int rows = 1;
+    /** 每行覆盖多少个操作；合并时翻倍。 */
+    private long rowSpan = 1;
+    /** 已统计的操作数（时间轴）。 */
+    private long operations;
+
+    public AccessHeatmap(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length 不能为负数: " + length);
+        }
+        this.length = length;
+        this.reads = new long[length];
+        this.writes = new long[length];
+        this.swaps = new long[length];
+        this.columns = Math.max(1, Math.min(MAX_COLUMNS, length));
+        this.matrix = new long[MAX_ROWS * columns];
+    }
+
+    // ---- 录制回调 ----
+
+    public void onCompare(int index1, int index2) {
+        int row = advance();
+        if (inRange(index1)) {
+            reads[index1]++;
+            matrix[row * columns + column(index1)]++;
+        }
+        if (inRange(index2)) {
+            reads[index2]++;
+            matrix[row * columns + column(index2)]++;
+        }
+    }
+
+    public void onSwap(int index1, int index2) {
+        int row = advance();
+        if (inRange(index1)) {
+            swaps[index1]++;
+            matrix[row * columns + column(index1)]++;
+        }
+        if (inRange(index2)) {
+            swaps[index2]++;
+            matrix[row * columns + column(index2)]++;
+        }
+    }
+
+    public void onSet(int index) {
+        int row = advance();
+        if (inRange(index)) {
+            writes[index]++;
+            matrix[row * columns + column(index)]++;
+        }
+    }
+
+    /**
+     * 推进时间轴一步，返回本次操作所在的行；当前行数用满时先合并。
+     */
+    private int advance() {
+        long row = operations / rowSpan;
+        if (row >= MAX_ROWS) {
+            mergeRows();
+            row = operations / rowSpan;
+        }
+        operations++;
+        if (row >= rows) {
+            rows = (int) row + 1;
+        }
+        return (int) row;
+    }
+
+    private void mergeRows() {
+        // 相邻两行相加：第 r 行 = 原第 2r 行 + 原第 2r+1 行
+        int merged = (rows + 1) / 2;
+        for (int r = 0; r < merged; r++) {
+            int a = (2 * r) * columns;
+            int b = (2 * r + 1) * columns;
+            int dst = r * columns;
+            for (int c = 0; c < columns; c++) {
+                long v = matrix[a + c] + ((2 * r + 1 < rows) ? matrix[b + c] : 0);
+                matrix[dst + c] = v;
+            }
+        }
+        Arrays.fill(matrix, merged * columns, rows * columns, 0);
+        rows = merged;
+        rowSpan *= 2;
+    }
+
+    private boolean inRange(int index) {
+        return index >= 0 && index < length;
+    }
+
+    private int column(int index) {
+        return (int) ((long) index * columns / length);
+    }
+
+    // ---- 读取 ----
+
+    /** 数组长度。 */
+    public int length() {
+        return length;
+    }
+
+    public long reads(int index) {
+        return reads[index];
+    }
+
+    public long writes(int index) {
+        return writes[index];
+    }
+
+    public long swaps(int index) {
+        return swaps[index];
+    }
+
+    /** 某下标的访问总次数（读 + 写 + 交换）。 */
+    public long total(int index) {
+        return reads[index] + writes[index] + swaps[index];
+    }
+
+    /** 矩阵列数（下标分桶数）。 */
+    public int columns() {
+        return columns;
+    }
+
+    /** 当前已使用的矩阵行数（时间窗口数）。 */
+    public int rows() {
+        return rows;
+    }
+
+    /** 每个时间窗口覆盖的操作数。 */
+    public long rowSpan() {
+        return rowSpan;
+    }
+
+    /** 已统计的操作总数。 */
+    public long operations() {
+        return operations;
+    }
+
+    /** 第 row 个时间窗口内、第 column 个下标分桶的访问次数。 */
+    public long cell(int row, int column) {
+        return matrix[row * columns + column];
+    }
+
+    /** 矩阵中的最大值（用于归一化着色）。 */
+    public long maxCell() {
+        long max = 0;
+        for (int i = 0, end = rows * columns; i < end; i++) {
+            if (matrix[i] > max) max = matrix[i];
+        }
+        return max;
+    }
+
+    /** 估算占用的堆内存（字节）：三组逐下标计数 + 矩阵。 */
+    public long estimatedBytes() {
+        return length * 3L * 8 + matrix.length * 8L;
+    }
+
+    /** 访问次数最多的下标；数组为空时返回 -1。 */
+    public int hottestIndex() {
+        int hottest = -1;
+        long best = -1;
+        for (int i = 0; i < length; i++) {
+            long t = total(i);
+            if (t > best) {
+                best = t;
+                hottest = i;
+            }
+        }
+        return hottest;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Objects;
+
+/**
+ * 数组的只读视图：直接读取回放器内部的工作数组，不做拷贝。
+ * <p>
+ * 视图内容会随回放推进而变化，只应在当次回调内读取；需要保留请用 {@link #copyTo(int[])} 或 {@link #toArray()}。
+ */
+public final class ArrayView {
+
+    private final int[] array;
+
+    ArrayView(int[] array) {
+        this.array = Objects.requireNonNull(array, "array");
+    }
+
+    public int length() {
+        return array.length;
+    }
+
+    public int get(int index) {
+        return array[index];
+    }
+
+    /**
+     * 拷贝到调用方提供的数组（长度必须一致），便于复用缓冲区、避免分配。
+     */
+    public void copyTo(int[] target) {
+        if (target.length != array.length) {
+            throw new IllegalArgumentException("目标数组长度不一致: " + target.length + " != " + array.length);
+        }
+        System.arraycopy(array, 0, target, 0, array.length);
+    }
+
+    public int[] toArray() {
+        return array.clone();
+    }
+}
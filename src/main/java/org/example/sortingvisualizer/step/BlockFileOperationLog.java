@@ -0,0 +1,395 @@
+package org.example.sortingvisualizer.step;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 基于录制文件的只读操作日志（格式见 {@link RecordingFile}）。
+ * <p>
+ * 打开时只把块索引读进内存（每块几十字节）；访问某一步时才用 FileChannel 定位读取所在块并解码，
+ * 解码结果放进一个很小的 LRU 缓存。回放基本是顺序访问，命中率很高；随机跳转也只需解码一块。
+ * 因此数千万步的录制也能“秒开”。
+ * <p>
+ * 读取方法是同步的：允许回放（FX 线程）与后台保存任务同时读取。
+ * <p>
+ * 解码时跳过 SKIP 记录（抽样录制的丢弃登记）；登记本身由 {@link #withDropRegistry()} 一次性读出。
+ */
+public final class BlockFileOperationLog implements OperationLog, Closeable {
+
+    /** 最多缓存多少个已解码的块。 */
+    private static final int CACHED_BLOCKS = 8;
+
+    private static final SortOperationType[] TYPES = SortOperationType.values();
+    private static final int TYPE_COUNT = RecordingFile.TYPE_COUNT;
+
+    private static final byte SWAP = (byte) SortOperationType.SWAP.ordinal();
+    private static final byte SET = (byte) SortOperationType.SET.ordinal();
+    private static final byte SKIP = (byte) RecordingFile.SKIP;
+
+    private final FileChannel channel;
+    private final int blockSteps;
+    private final int size;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+
+    /** blockCounts[block * TYPE_COUNT + type]：该块起点之前各类操作的累计次数。 */
+    private final int[] blockCounts;
+    private final int[] totals;
+
+    /** droppedBefore[block]：该块起点之前抽样丢弃的比较次数；droppedTotal：丢弃总数（版本 1 的文件均为 0）。 */
+    private final long[] droppedBefore;
+    private final long droppedTotal;
+
+    private final Map<Integer, Block> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Block> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    /** 最近访问的块：顺序回放时绕过 Map 查找。 */
+    private Block last;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(1 << 14);
+
+    private BlockFileOperationLog(FileChannel channel, int blockSteps, int size,
+                                  long[] blockOffsets, int[] blockLengths, int[] blockCounts, int[] totals,
+                                  long[] droppedBefore, long droppedTotal) {
+        this.channel = channel;
+        this.blockSteps = blockSteps;
+        this.size = size;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockCounts = blockCounts;
+        this.totals = totals;
+        this.droppedBefore = droppedBefore;
+        this.droppedTotal = droppedTotal;
+    }
+
+    /**
+     * 读取文件尾与块索引并打开日志。由 {@link RecordingFile#open(Path)} 调用。
+     *
+     * @param version 文件头中的格式版本（决定索引项的布局）
+     */
+    static BlockFileOperationLog open(Path path, int blockSteps, int version) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < RecordingFile.TAIL_BYTES) {
+                throw new IOException("录制文件已损坏: " + path.getFileName());
+            }
+            ByteBuffer tail = readFully(channel, fileSize - RecordingFile.TAIL_BYTES, RecordingFile.TAIL_BYTES);
+            long indexOffset = tail.getLong();
+            int blockCount = tail.getInt();
+            int size = tail.getInt();
+            if (tail.getInt() != RecordingFile.END_MAGIC || blockCount < 0 || size < 0
+                    || (long) blockCount * blockSteps < size
+                    || indexOffset < 0 || indexOffset > fileSize - RecordingFile.TAIL_BYTES) {
+                throw new IOException("录制文件已损坏或不完整: " + path.getFileName());
+            }
+
+            boolean hasSkips = version >= RecordingFile.VERSION_WITH_SKIPS;
+            int entryBytes = hasSkips ? RecordingFile.INDEX_ENTRY_BYTES : RecordingFile.INDEX_ENTRY_BYTES_V1;
+            long indexBytes = (long) blockCount * entryBytes + TYPE_COUNT * 4L + (hasSkips ? 8 : 0);
+            if (indexOffset + indexBytes != fileSize - RecordingFile.TAIL_BYTES) {
+                throw new IOException("录制文件索引已损坏: " + path.getFileName());
+            }
+            ByteBuffer index = readFully(channel, indexOffset, (int) indexBytes);
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            int[] counts = new int[blockCount * TYPE_COUNT];
+            long[] droppedBefore = new long[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                offsets[b] = index.getLong();
+                lengths[b] = index.getInt();
+                for (int t = 0; t < TYPE_COUNT; t++) {
+                    counts[b * TYPE_COUNT + t] = index.getInt();
+                }
+                if (hasSkips) droppedBefore[b] = index.getLong();
+            }
+            int[] totals = new int[TYPE_COUNT];
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                totals[t] = index.getInt();
+            }
+            long droppedTotal = hasSkips ? index.getLong() : 0;
+            return new BlockFileOperationLog(channel, blockSteps, size, offsets, lengths, counts, totals,
+                    droppedBefore, droppedTotal);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 文件中带有丢弃登记时，把登记读出来并包装成 {@link SampledOperationLog}（统计返回真实次数）；否则返回自身。
+     * <p>
+     * 只扫描确有丢弃的块（由索引中的逐块丢弃计数判断）；每块只顺序读一遍，不解码为步数组。
+     */
+    synchronized OperationLog withDropRegistry() throws IOException {
+        if (droppedTotal == 0) return this;
+        int[] steps = new int[16];
+        long[] dropTotals = new long[16];
+        int entries = 0;
+        for (int block = 0; block < blockLengths.length; block++) {
+            long end = (block + 1 < droppedBefore.length) ? droppedBefore[block + 1] : droppedTotal;
+            if (end == droppedBefore[block]) continue;
+
+            ByteBuffer buf = readBlock(block);
+            int step = block * blockSteps;
+            long running = droppedBefore[block];
+            while (buf.hasRemaining()) {
+                long head = readVarlong(buf);
+                byte type = (byte) (head & 0x3);
+                if (type == SKIP) {
+                    running += head >>> 2;
+                    if (entries > 0 && steps[entries - 1] == step) {
+                        dropTotals[entries - 1] = running;
+                        continue;
+                    }
+                    if (entries == steps.length) {
+                        steps = Arrays.copyOf(steps, entries * 2);
+                        dropTotals = Arrays.copyOf(dropTotals, entries * 2);
+                    }
+                    steps[entries] = step;
+                    dropTotals[entries] = running;
+                    entries++;
+                    continue;
+                }
+                // 普通操作：跳过其余字段
+                readVarlong(buf);
+                if (type == SET) readVarlong(buf);
+                step++;
+            }
+            if (running != end) {
+                throw new IOException("录制文件的丢弃登记与索引不一致");
+            }
+        }
+        return SampledOperationLog.restore(this, steps, dropTotals, entries);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SortOperationType type(int step) {
+        Block b = blockOf(step);
+        return TYPES[b.types[step - b.start]];
+    }
+
+    @Override
+    public int index1(int step) {
+        Block b = blockOf(step);
+        return b.first[step - b.start];
+    }
+
+    @Override
+    public int index2(int step) {
+        Block b = blockOf(step);
+        int i = step - b.start;
+        // 与 PackedOperationLog 相同：SET 的 second 列存新值，index2 与 index1 相同
+        return (b.types[i] == SET) ? b.first[i] : b.second[i];
+    }
+
+    @Override
+    public int oldValue(int step) {
+        Block b = blockOf(step);
+        int i = step - b.start;
+        return (b.types[i] == SET) ? b.third[i] : 0;
+    }
+
+    @Override
+    public int newValue(int step) {
+        Block b = blockOf(step);
+        int i = step - b.start;
+        return (b.types[i] == SET) ? b.second[i] : 0;
+    }
+
+    @Override
+    public int count(SortOperationType type) {
+        return totals[type.ordinal()];
+    }
+
+    @Override
+    public int countBefore(SortOperationType type, int step) {
+        if (step <= 0) return 0;
+        if (step >= size) return totals[type.ordinal()];
+        Block b = blockOf(step);
+        byte wanted = (byte) type.ordinal();
+        int count = blockCounts[(b.start / blockSteps) * TYPE_COUNT + wanted];
+        for (int i = 0, end = step - b.start; i < end; i++) {
+            if (b.types[i] == wanted) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void apply(int step, int[] array) {
+        Block b = blockOf(step);
+        int i = step - b.start;
+        byte type = b.types[i];
+        if (type == SWAP) {
+            swap(array, b.first[i], b.second[i]);
+        } else if (type == SET) {
+            set(array, b.first[i], b.second[i]);
+        }
+    }
+
+    @Override
+    public void undo(int step, int[] array) {
+        Block b = blockOf(step);
+        int i = step - b.start;
+        byte type = b.types[i];
+        if (type == SWAP) {
+            swap(array, b.first[i], b.second[i]);
+        } else if (type == SET) {
+            set(array, b.first[i], b.third[i]);
+        }
+    }
+
+    /**
+     * 关闭文件句柄。关闭后只能访问仍在缓存中的块。
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 只读句柄，关闭失败无需处理
+        }
+    }
+
+    private synchronized Block blockOf(int step) {
+        Objects.checkIndex(step, size);
+        Block b = last;
+        if (b != null && step >= b.start && step - b.start < b.length) {
+            return b;
+        }
+        int block = step / blockSteps;
+        b = cache.get(block);
+        if (b == null) {
+            b = decode(block);
+            cache.put(block, b);
+        }
+        last = b;
+        return b;
+    }
+
+    private Block decode(int block) {
+        int start = block * blockSteps;
+        int length = Math.min(blockSteps, size - start);
+        ByteBuffer buf = readBlock(block);
+
+        Block b = new Block(start, length);
+        int prevIndex = 0;
+        int i = 0;
+        while (i < length) {
+            long head = readVarlong(buf);
+            byte type = (byte) (head & 0x3);
+            if (type == SKIP) {
+                // 丢弃登记不占步号，统计由 SampledOperationLog 负责
+                continue;
+            }
+            int index1 = (int) (prevIndex + RecordingFile.unzigzag(head >>> 2));
+            b.types[i] = type;
+            b.first[i] = index1;
+            if (type == SET) {
+                int newValue = (int) RecordingFile.unzigzag(readVarlong(buf));
+                b.second[i] = newValue;
+                b.third[i] = (int) (newValue + RecordingFile.unzigzag(readVarlong(buf)));
+            } else {
+                b.second[i] = (int) (index1 + RecordingFile.unzigzag(readVarlong(buf)));
+            }
+            prevIndex = index1;
+            i++;
+        }
+        return b;
+    }
+
+    /** 把第 block 块的原始字节读进复用的缓冲区（调用方需持有本对象的锁）。 */
+    private ByteBuffer readBlock(int block) {
+        int bytes = blockLengths[block];
+        if (readBuffer.capacity() < bytes) {
+            readBuffer = ByteBuffer.allocate(Math.max(bytes, readBuffer.capacity() * 2));
+        }
+        ByteBuffer buf = readBuffer;
+        buf.clear().limit(bytes);
+        try {
+            long position = blockOffsets[block];
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) {
+                    throw new IOException("录制文件意外结束");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取录制文件失败", e);
+        }
+        return buf.flip();
+    }
+
+    private static long readVarlong(ByteBuffer buf) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buf.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+            shift += 7;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("录制文件意外结束");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        if (i < 0 || i >= array.length || j < 0 || j >= array.length) {
+            return;
+        }
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void set(int[] array, int index, int value) {
+        if (index < 0 || index >= array.length) {
+            return;
+        }
+        array[index] = value;
+    }
+
+    /** 解码后的块：布局与 PackedOperationLog 的一个 chunk 相同。 */
+    private static final class Block {
+        private final int start;
+        private final int length;
+        private final byte[] types;
+        private final int[] first;
+        private final int[] second;
+        private final int[] third;
+
+        private Block(int start, int length) {
+            this.start = start;
+            this.length = length;
+            this.types = new byte[length];
+            this.first = new int[length];
+            this.second = new int[length];
+            this.third = new int[length];
+        }
+    }
+}
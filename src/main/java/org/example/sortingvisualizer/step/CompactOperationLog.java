@@ -0,0 +1,488 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 压缩后的操作日志：把有规律的连续操作折叠成“块操作”（run），由 {@link OperationCompactor} 生成。
+ * <p>
+ * 每个 run 覆盖一段连续步号，分两种：
+ * <ul>
+ *   <li>规律 run：周期为 1 或 2 的操作模式。每个相位（phase）记录类型，以及 index1/index2 的
+ *       起始值与每周期增量（等差数列）。例如计数/基数排序的“写回 i, i+1, i+2...”是周期 1 的 SET run；
+ *       插入排序的“比较 (i, j) → 写入 j+1，j 递减”是周期 2 的 COMPARE/SET run。
+ *       SET 的新值/旧值无法用公式表示，按出现顺序存进值切片（newValues/oldValues）。</li>
+ *   <li>字面 run：没有规律的操作，按列原样保存（最多 {@link #MAX_LITERAL_RUN} 步一段）。</li>
+ * </ul>
+ * 逐步访问仍按步号进行（二分查找所在 run，顺序访问命中上次的 run），因此对 UI 来说与原日志完全一致；
+ * {@link #applyRange}/{@link #undoRange} 则按 run 批量执行：纯比较 run 直接跳过，连续下标的 SET run 用数组拷贝。
+ * <p>
+ * 日志生成后只读，可以被多个线程同时读取。
+ */
+public final class CompactOperationLog implements OperationLog {
+
+    /** 字面 run 的最大长度：保证 countBefore 最多扫描这么多步。 */
+    static final int MAX_LITERAL_RUN = 4096;
+
+    static final byte LITERAL = 0;
+    static final byte PATTERN = 1;
+
+    /** 规律 run 在 params 中的布局：period, valueOffset, 然后每个相位 PHASE_INTS 个 int。 */
+    static final int PHASE_INTS = 5; // type, a1, d1, a2, d2
+
+    private static final SortOperationType[] TYPES = SortOperationType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    private static final int COMPARE = SortOperationType.COMPARE.ordinal();
+    private static final int SWAP = SortOperationType.SWAP.ordinal();
+    private static final int SET = SortOperationType.SET.ordinal();
+
+    private int size;
+
+    // ---- run 表 ----
+    private int runCount;
+    /** runStart[r]：第 r 个 run 的起始步号；末尾多一个哨兵 = size。 */
+    private int[] runStart = new int[64];
+    private byte[] runKind = new byte[64];
+    /** 字面 run：在字面列中的起点；规律 run：在 params 中的起点。 */
+    private int[] runParam = new int[64];
+    /** runCounts[r * TYPE_COUNT + type]：该 run 起点之前各类操作的累计次数。 */
+    private int[] runCounts = new int[64 * TYPE_COUNT];
+    private final int[] totals = new int[TYPE_COUNT];
+
+    // ---- 字面列：first/second 为 index1/index2；SET 的 second 改存它在值切片中的下标（新旧值都在切片里） ----
+    private int literalCount;
+    private byte[] litTypes = new byte[256];
+    private int[] litFirst = new int[256];
+    private int[] litSecond = new int[256];
+
+    // ---- 规律 run 参数与 SET 值切片 ----
+    private int paramCount;
+    private int[] params = new int[256];
+    private int valueCount;
+    private int[] newValues = new int[256];
+    private int[] oldValues = new int[256];
+
+    /** 上次命中的 run：顺序回放时免去二分查找（只是提示，读到旧值也会重新校验）。 */
+    private int lastRun;
+
+    CompactOperationLog() {
+        runStart[0] = 0;
+    }
+
+    // ======================= 构建（仅供 OperationCompactor 使用） =======================
+
+    /**
+     * 追加一步到字面 run（必要时开启新的字面 run）。SET 需随后调用 {@link #appendValue} 写入新旧值。
+     */
+    void appendLiteral(byte type, int first, int second) {
+        if (runCount == 0 || runKind[runCount - 1] != LITERAL || size - runStart[runCount - 1] >= MAX_LITERAL_RUN) {
+            openRun(LITERAL, literalCount);
+        }
+        if (literalCount == litTypes.length) {
+            int grown = literalCount * 2;
+            litTypes = Arrays.copyOf(litTypes, grown);
+            litFirst = Arrays.copyOf(litFirst, grown);
+            litSecond = Arrays.copyOf(litSecond, grown);
+        }
+        litTypes[literalCount] = type;
+        litFirst[literalCount] = first;
+        litSecond[literalCount] = (type == SET) ? valueCount : second;
+        literalCount++;
+        totals[type]++;
+        size++;
+        runStart[runCount] = size;
+    }
+
+    /**
+     * 追加一个规律 run。phases 每个相位 PHASE_INTS 个 int；SET 的值切片由调用方随后用 {@link #appendValue} 按顺序写入。
+     */
+    void appendPattern(int period, int length, int[] phases) {
+        openRun(PATTERN, paramCount);
+        ensureParams(2 + period * PHASE_INTS);
+        params[paramCount++] = period;
+        params[paramCount++] = valueCount;
+        System.arraycopy(phases, 0, params, paramCount, period * PHASE_INTS);
+        paramCount += period * PHASE_INTS;
+        for (int local = 0; local < length; local++) {
+            totals[phases[(local % period) * PHASE_INTS]]++;
+        }
+        size += length;
+        runStart[runCount] = size;
+    }
+
+    void appendValue(int newValue, int oldValue) {
+        if (valueCount == newValues.length) {
+            newValues = Arrays.copyOf(newValues, valueCount * 2);
+            oldValues = Arrays.copyOf(oldValues, valueCount * 2);
+        }
+        newValues[valueCount] = newValue;
+        oldValues[valueCount] = oldValue;
+        valueCount++;
+    }
+
+    private void openRun(byte kind, int param) {
+        if (runCount + 1 >= runStart.length) {
+            int grown = runStart.length * 2;
+            runStart = Arrays.copyOf(runStart, grown);
+            runKind = Arrays.copyOf(runKind, grown);
+            runParam = Arrays.copyOf(runParam, grown);
+            runCounts = Arrays.copyOf(runCounts, grown * TYPE_COUNT);
+        }
+        runStart[runCount] = size;
+        runKind[runCount] = kind;
+        runParam[runCount] = param;
+        System.arraycopy(totals, 0, runCounts, runCount * TYPE_COUNT, TYPE_COUNT);
+        runCount++;
+        runStart[runCount] = size;
+    }
+
+    private void ensureParams(int extra) {
+        if (paramCount + extra > params.length) {
+            params = Arrays.copyOf(params, Math.max(params.length * 2, paramCount + extra));
+        }
+    }
+
+    /**
+     * 构建结束：收缩各数组到实际大小。
+     */
+    void trim() {
+        runStart = Arrays.copyOf(runStart, runCount + 1);
+        runKind = Arrays.copyOf(runKind, runCount);
+        runParam = Arrays.copyOf(runParam, runCount);
+        runCounts = Arrays.copyOf(runCounts, runCount * TYPE_COUNT);
+        litTypes = Arrays.copyOf(litTypes, literalCount);
+        litFirst = Arrays.copyOf(litFirst, literalCount);
+        litSecond = Arrays.copyOf(litSecond, literalCount);
+        params = Arrays.copyOf(params, paramCount);
+        newValues = Arrays.copyOf(newValues, valueCount);
+        oldValues = Arrays.copyOf(oldValues, valueCount);
+    }
+
+    // ======================= 读取 =======================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * run 的个数（用于观察压缩效果）。
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    /**
+     * 估算占用的堆内存（字节）。
+     */
+    @Override
+    public long estimatedBytes() {
+        return runCount * (4L + 1 + 4 + 4L * TYPE_COUNT)
+                + literalCount * (1L + 4 + 4)
+                + paramCount * 4L
+                + valueCount * 8L;
+    }
+
+    private int runOf(int step) {
+        Objects.checkIndex(step, size);
+        int r = lastRun;
+        if (step >= runStart[r] && step < runStart[r + 1]) {
+            return r;
+        }
+        // 顺序回放时通常落在相邻 run
+        if (r + 1 < runCount && step >= runStart[r + 1] && step < runStart[r + 2]) {
+            lastRun = r + 1;
+            return r + 1;
+        }
+        int lo = 0;
+        int hi = runCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (runStart[mid] <= step) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        lastRun = lo;
+        return lo;
+    }
+
+    /** 规律 run 中 local 步所在相位在 params 中的起点。 */
+    private int phaseBase(int param, int local) {
+        int period = params[param];
+        return param + 2 + (local % period) * PHASE_INTS;
+    }
+
+    /** 规律 run 中 local 步是第几个周期。 */
+    private int cycle(int param, int local) {
+        return local / params[param];
+    }
+
+    /** 规律 run 中 local 步（必须是 SET）对应的值切片下标。 */
+    private int valueIndex(int param, int local) {
+        int period = params[param];
+        int valueOffset = params[param + 1];
+        if (period == 1) {
+            return valueOffset + local;
+        }
+        boolean set0 = params[param + 2] == SET;
+        boolean set1 = params[param + 2 + PHASE_INTS] == SET;
+        int perCycle = (set0 ? 1 : 0) + (set1 ? 1 : 0);
+        int phase = local % period;
+        return valueOffset + (local / period) * perCycle + ((phase == 1 && set0) ? 1 : 0);
+    }
+
+    private int rawType(int step) {
+        int r = runOf(step);
+        int local = step - runStart[r];
+        if (runKind[r] == LITERAL) {
+            return litTypes[runParam[r] + local];
+        }
+        return params[phaseBase(runParam[r], local)];
+    }
+
+    @Override
+    public SortOperationType type(int step) {
+        return TYPES[rawType(step)];
+    }
+
+    @Override
+    public int index1(int step) {
+        int r = runOf(step);
+        int local = step - runStart[r];
+        if (runKind[r] == LITERAL) {
+            return litFirst[runParam[r] + local];
+        }
+        int base = phaseBase(runParam[r], local);
+        return params[base + 1] + cycle(runParam[r], local) * params[base + 2];
+    }
+
+    @Override
+    public int index2(int step) {
+        int r = runOf(step);
+        int local = step - runStart[r];
+        if (runKind[r] == LITERAL) {
+            int i = runParam[r] + local;
+            // SET 的 second 列存的是新值，index2 与 index1 相同
+            return (litTypes[i] == SET) ? litFirst[i] : litSecond[i];
+        }
+        int base = phaseBase(runParam[r], local);
+        return params[base + 3] + cycle(runParam[r], local) * params[base + 4];
+    }
+
+    @Override
+    public int oldValue(int step) {
+        int r = runOf(step);
+        int local = step - runStart[r];
+        if (runKind[r] == LITERAL) {
+            int i = runParam[r] + local;
+            return (litTypes[i] == SET) ? oldValues[litSecond[i]] : 0;
+        }
+        int param = runParam[r];
+        return (params[phaseBase(param, local)] == SET) ? oldValues[valueIndex(param, local)] : 0;
+    }
+
+    @Override
+    public int newValue(int step) {
+        int r = runOf(step);
+        int local = step - runStart[r];
+        if (runKind[r] == LITERAL) {
+            int i = runParam[r] + local;
+            return (litTypes[i] == SET) ? newValues[litSecond[i]] : 0;
+        }
+        int param = runParam[r];
+        return (params[phaseBase(param, local)] == SET) ? newValues[valueIndex(param, local)] : 0;
+    }
+
+    @Override
+    public int count(SortOperationType type) {
+        return totals[type.ordinal()];
+    }
+
+    @Override
+    public int countBefore(SortOperationType type, int step) {
+        if (step <= 0) return 0;
+        if (step >= size) return totals[type.ordinal()];
+        int wanted = type.ordinal();
+        int r = runOf(step);
+        int local = step - runStart[r];
+        int count = runCounts[r * TYPE_COUNT + wanted];
+        if (runKind[r] == LITERAL) {
+            int from = runParam[r];
+            for (int i = from; i < from + local; i++) {
+                if (litTypes[i] == wanted) count++;
+            }
+            return count;
+        }
+        // 规律 run：按完整周期数 + 余下相位直接算出
+        int param = runParam[r];
+        int period = params[param];
+        int cycles = local / period;
+        int rest = local % period;
+        for (int phase = 0; phase < period; phase++) {
+            if (params[param + 2 + phase * PHASE_INTS] == wanted) {
+                count += cycles + (phase < rest ? 1 : 0);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void apply(int step, int[] array) {
+        applyRange(step, step + 1, array);
+    }
+
+    @Override
+    public void undo(int step, int[] array) {
+        undoRange(step, step + 1, array);
+    }
+
+    @Override
+    public void applyRange(int from, int to, int[] array) {
+        if (from >= to) return;
+        Objects.checkFromToIndex(from, to, size);
+        int r = runOf(from);
+        int step = from;
+        while (step < to) {
+            int end = Math.min(to, runStart[r + 1]);
+            int local = step - runStart[r];
+            int count = end - step;
+            if (runKind[r] == LITERAL) {
+                int i = runParam[r] + local;
+                for (int k = 0; k < count; k++, i++) {
+                    if (litTypes[i] == SWAP) {
+                        swap(array, litFirst[i], litSecond[i]);
+                    } else if (litTypes[i] == SET) {
+                        set(array, litFirst[i], newValues[litSecond[i]]);
+                    }
+                }
+            } else {
+                applyPattern(runParam[r], local, count, array, false);
+            }
+            step = end;
+            r++;
+        }
+    }
+
+    @Override
+    public void undoRange(int from, int to, int[] array) {
+        if (from >= to) return;
+        Objects.checkFromToIndex(from, to, size);
+        int r = runOf(to - 1);
+        int step = to;
+        while (step > from) {
+            int start = Math.max(from, runStart[r]);
+            int local = start - runStart[r];
+            int count = step - start;
+            if (runKind[r] == LITERAL) {
+                int i = runParam[r] + local + count - 1;
+                for (int k = 0; k < count; k++, i--) {
+                    if (litTypes[i] == SWAP) {
+                        swap(array, litFirst[i], litSecond[i]);
+                    } else if (litTypes[i] == SET) {
+                        set(array, litFirst[i], oldValues[litSecond[i]]);
+                    }
+                }
+            } else {
+                applyPattern(runParam[r], local, count, array, true);
+            }
+            step = start;
+            r--;
+        }
+    }
+
+    /**
+     * 执行（或倒序撤销）规律 run 中 [local, local+count) 这一段。
+     */
+    private void applyPattern(int param, int local, int count, int[] array, boolean undo) {
+        int period = params[param];
+        int type0 = params[param + 2];
+        boolean mutating = type0 != COMPARE || (period == 2 && params[param + 2 + PHASE_INTS] != COMPARE);
+        if (!mutating) {
+            return; // 纯比较 run：不修改数组，整段跳过
+        }
+
+        if (period == 1 && type0 == SET && params[param + 4] == 1) {
+            // 连续下标的写入（index, index+1, ...）：下标互不相同，可以整段数组拷贝
+            int index = params[param + 3] + local;
+            if (index >= 0 && index + count <= array.length) {
+                int[] values = undo ? oldValues : newValues;
+                System.arraycopy(values, params[param + 1] + local, array, index, count);
+                return;
+            }
+        }
+
+        int otherType = (period == 1) ? COMPARE : params[param + 2 + (type0 == COMPARE ? 0 : PHASE_INTS)];
+        if (otherType == COMPARE) {
+            // 只有一个相位修改数组（另一相位是比较）：只遍历该相位的步，下标按周期递推，避免逐步取模/除法
+            int phase = (type0 != COMPARE) ? 0 : 1;
+            int base = param + 2 + phase * PHASE_INTS;
+            int type = params[base];
+            int firstCycle = (local + period - 1 - phase) / period;
+            int endCycle = (local + count + period - 1 - phase) / period;
+            int valueOffset = params[param + 1];
+            if (!undo) {
+                for (int c = firstCycle; c < endCycle; c++) {
+                    int index1 = params[base + 1] + c * params[base + 2];
+                    if (type == SWAP) {
+                        swap(array, index1, params[base + 3] + c * params[base + 4]);
+                    } else {
+                        set(array, index1, newValues[valueOffset + c]);
+                    }
+                }
+            } else {
+                for (int c = endCycle - 1; c >= firstCycle; c--) {
+                    int index1 = params[base + 1] + c * params[base + 2];
+                    if (type == SWAP) {
+                        swap(array, index1, params[base + 3] + c * params[base + 4]);
+                    } else {
+                        set(array, index1, oldValues[valueOffset + c]);
+                    }
+                }
+            }
+            return;
+        }
+
+        if (!undo) {
+            for (int k = local; k < local + count; k++) {
+                applyPatternStep(param, k, array, false);
+            }
+        } else {
+            for (int k = local + count - 1; k >= local; k--) {
+                applyPatternStep(param, k, array, true);
+            }
+        }
+    }
+
+    private void applyPatternStep(int param, int local, int[] array, boolean undo) {
+        int base = phaseBase(param, local);
+        int type = params[base];
+        if (type == COMPARE) return;
+        int cycle = cycle(param, local);
+        int index1 = params[base + 1] + cycle * params[base + 2];
+        if (type == SWAP) {
+            swap(array, index1, params[base + 3] + cycle * params[base + 4]);
+        } else {
+            int v = valueIndex(param, local);
+            set(array, index1, undo ? oldValues[v] : newValues[v]);
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        if (i < 0 || i >= array.length || j < 0 || j >= array.length) {
+            return;
+        }
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void set(int[] array, int index, int value) {
+        if (index < 0 || index >= array.length) {
+            return;
+        }
+        array[index] = value;
+    }
+}
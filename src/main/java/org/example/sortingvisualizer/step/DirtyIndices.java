@@ -0,0 +1,73 @@
+package org.example.sortingvisualizer.step;
+
+/**
+ * 自上次清空以来被修改过的数组下标集合（去重，按首次修改的顺序）。
+ * <p>
+ * 回放器每执行/撤销一步就登记涉及的下标；渲染端每帧读取后清空，只重绘这些位置。
+ * 登记数超过容量（约数组长度的 1/8）或发生整段重放时退化为“全部变脏”，
+ * 此时增量重绘已不比整体重绘划算。所有存储在构造时一次性分配，登记过程不再分配内存。
+ */
+public final class DirtyIndices {
+
+    private final boolean[] marked;
+    private final int[] indices;
+    private int count;
+    private boolean all = true;
+
+    DirtyIndices(int length) {
+        this.marked = new boolean[length];
+        this.indices = new int[Math.min(length, Math.max(16, length / 8))];
+    }
+
+    /** 增量登记的容量上限：超过后退化为全部变脏。 */
+    public int capacity() {
+        return indices.length;
+    }
+
+    /** 是否需要整体重绘（例如刚加载、从关键帧恢复、整段重放）。 */
+    public boolean isAll() {
+        return all;
+    }
+
+    /** 增量登记的下标个数；{@link #isAll()} 为 true 时无意义。 */
+    public int size() {
+        return count;
+    }
+
+    public int get(int k) {
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("k=" + k + ", size=" + count);
+        }
+        return indices[k];
+    }
+
+    /**
+     * 渲染完成后清空。
+     */
+    public void clear() {
+        for (int k = 0; k < count; k++) {
+            marked[indices[k]] = false;
+        }
+        count = 0;
+        all = false;
+    }
+
+    void mark(int index) {
+        if (all || index < 0 || index >= marked.length || marked[index]) return;
+        if (count == indices.length) {
+            markAll();
+            return;
+        }
+        marked[index] = true;
+        indices[count++] = index;
+    }
+
+    void markAll() {
+        if (all) return;
+        for (int k = 0; k < count; k++) {
+            marked[indices[k]] = false;
+        }
+        count = 0;
+        all = true;
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 边录边放的有界缓冲区（生产者/消费者）。
+ * <p>
+ * 录制线程作为生产者调用 {@link OperationSink} 的 append 方法：先写入自己独占的“待发布块”，
+ * 攒满一块后再放进有界队列；队列满时生产者阻塞（背压），直到回放端取走数据。
+ * 回放端（FX 线程）作为消费者调用 {@link #drainTo(OperationSink)}，把已发布的块搬进自己的操作日志。
+ * <p>
+ * 按块而不是按步交接，避免每一步都加锁；取空的块会回收复用，稳定运行时不再分配内存。
+ * 消费者“没数据可取”时，生产者会立即发布未满的块，因此慢速算法（例如睡眠排序）也能马上看到进度。
+ */
+public final class OperationBuffer implements OperationSink {
+
+    /** 默认每块步数。 */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** 默认最多积压多少块（超过后生产者阻塞）。 */
+    public static final int DEFAULT_MAX_CHUNKS = 16;
+
+    private static final byte COMPARE = (byte) SortOperationType.COMPARE.ordinal();
+    private static final byte SWAP = (byte) SortOperationType.SWAP.ordinal();
+    private static final byte SET = (byte) SortOperationType.SET.ordinal();
+    /** 块内的特殊条目：被录制策略丢弃的比较次数（first 为次数），按顺序转交给消费者。 */
+    private static final byte SKIP = (byte) -1;
+
+    private final int chunkSize;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<Chunk> free;
+
+    /** 生产者独占：正在写入、尚未发布的块。 */
+    private Chunk pending;
+
+    /** 消费者上次来取时没有任何数据：生产者下一步就发布未满的块，降低首帧延迟。 */
+    private volatile boolean consumerStarving = true;
+
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+
+    public OperationBuffer() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS);
+    }
+
+    public OperationBuffer(int chunkSize, int maxChunks) {
+        if (chunkSize <= 0 || maxChunks <= 0) {
+            throw new IllegalArgumentException("chunkSize/maxChunks 必须为正数");
+        }
+        this.chunkSize = chunkSize;
+        this.filled = new ArrayBlockingQueue<>(maxChunks);
+        this.free = new ArrayBlockingQueue<>(maxChunks + 1);
+    }
+
+    @Override
+    public void appendCompare(int index1, int index2) {
+        put(COMPARE, index1, index2, 0);
+    }
+
+    @Override
+    public void appendSwap(int index1, int index2) {
+        put(SWAP, index1, index2, 0);
+    }
+
+    @Override
+    public void appendSet(int index, int oldValue, int newValue) {
+        put(SET, index, oldValue, newValue);
+    }
+
+    @Override
+    public void skipCompares(int count) {
+        if (count > 0) {
+            put(SKIP, count, 0, 0);
+        }
+    }
+
+    private void put(byte type, int a, int b, int c) {
+        if (cancelled) {
+            throw new CancellationException("录制已取消");
+        }
+        Chunk chunk = pending;
+        if (chunk == null) {
+            chunk = free.poll();
+            if (chunk == null) chunk = new Chunk(chunkSize);
+            pending = chunk;
+        }
+        int i = chunk.size++;
+        chunk.types[i] = type;
+        chunk.first[i] = a;
+        chunk.second[i] = b;
+        chunk.third[i] = c;
+        if (chunk.size == chunkSize || consumerStarving) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        Chunk chunk = pending;
+        if (chunk == null || chunk.size == 0) return;
+        try {
+            // 背压：队列满时等待消费者；定期醒来检查是否已被取消，避免永久阻塞
+            while (!filled.offer(chunk, 50, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new CancellationException("录制已取消");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("录制被中断");
+        }
+        pending = null;
+        consumerStarving = false;
+    }
+
+    /**
+     * 生产者调用：录制正常结束，发布最后一个未满的块。
+     */
+    public void close() {
+        publish();
+        closed = true;
+    }
+
+    /**
+     * 生产者调用：录制异常结束。已发布的数据仍可被消费。
+     */
+    public void fail(Throwable error) {
+        failure = error;
+        closed = true;
+    }
+
+    /**
+     * 消费者调用：放弃录制。阻塞中的生产者会尽快以 {@link CancellationException} 退出。
+     */
+    public void cancel() {
+        cancelled = true;
+        filled.clear();
+    }
+
+    /**
+     * 消费者调用：把当前已发布的所有块追加到 target，返回搬运的步数。不会阻塞。
+     */
+    public int drainTo(OperationSink target) {
+        int moved = 0;
+        Chunk chunk;
+        while ((chunk = filled.poll()) != null) {
+            for (int i = 0; i < chunk.size; i++) {
+                byte type = chunk.types[i];
+                if (type == COMPARE) {
+                    target.appendCompare(chunk.first[i], chunk.second[i]);
+                } else if (type == SWAP) {
+                    target.appendSwap(chunk.first[i], chunk.second[i]);
+                } else if (type == SET) {
+                    target.appendSet(chunk.first[i], chunk.second[i], chunk.third[i]);
+                } else {
+                    target.skipCompares(chunk.first[i]);
+                    moved--; // 不是可回放的步
+                }
+            }
+            moved += chunk.size;
+            chunk.size = 0;
+            free.offer(chunk); // 回收复用；池满时直接丢弃
+        }
+        if (moved == 0) {
+            consumerStarving = true;
+        }
+        return moved;
+    }
+
+    /**
+     * 生产者已结束且所有数据都已被取走。
+     */
+    public boolean isFinished() {
+        // 先读 closed 再看队列：close() 在置位前已发布最后一块
+        return closed && filled.isEmpty();
+    }
+
+    public Throwable failure() {
+        return failure;
+    }
+
+    private static final class Chunk {
+        private final byte[] types;
+        private final int[] first;
+        private final int[] second;
+        private final int[] third;
+        private int size;
+
+        private Chunk(int capacity) {
+            this.types = new byte[capacity];
+            this.first = new int[capacity];
+            this.second = new int[capacity];
+            this.third = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Objects;
+
+/**
+ * 录制后的压缩阶段：扫描操作日志，把有规律的连续操作折叠成块操作，输出 {@link CompactOperationLog}。
+ * <p>
+ * 识别两类模式（相邻同相位步的下标差保持不变）：
+ * <ul>
+ *   <li>周期 1：同类型连续操作，例如计数/基数/归并排序写回 i, i+1, i+2...，或基数排序的逐个比较</li>
+ *   <li>周期 2：两种操作交替，例如插入排序“比较 (i, j) → 写入 j+1”且 j 逐步递减</li>
+ * </ul>
+ * 长度不足 {@link #MIN_RUN} 的片段按原样保存。压缩是可选的：原日志保持不变，
+ * 压缩结果与原日志逐步等价（类型/下标/新旧值完全相同）。
+ */
+public final class OperationCompactor {
+
+    /** 规律 run 的最小长度：太短的规律折叠后反而比原样保存更占空间。 */
+    public static final int MIN_RUN = 8;
+
+    private static final int SET = SortOperationType.SET.ordinal();
+
+    private OperationCompactor() {
+    }
+
+    /**
+     * 压缩整个日志。
+     */
+    public static CompactOperationLog compact(OperationLog source) {
+        return compact(source, Long.MAX_VALUE);
+    }
+
+    /**
+     * 压缩整个日志；若压缩结果预计超过 maxBytes（说明规律太少、不值得压缩）则放弃并返回 null。
+     */
+    public static CompactOperationLog compact(OperationLog source, long maxBytes) {
+        Objects.requireNonNull(source, "source");
+        int size = source.size();
+        CompactOperationLog out = new CompactOperationLog();
+        int[] phases = new int[2 * CompactOperationLog.PHASE_INTS];
+
+        int step = 0;
+        while (step < size) {
+            int run1 = patternLength(source, step, 1);
+            int run2 = patternLength(source, step, 2);
+            // 周期 1 的 run 同时也满足周期 2；长度相同时优先周期 1（参数更少、批量执行更快）
+            int period = (run1 >= run2) ? 1 : 2;
+            int length = Math.max(run1, run2);
+
+            if (length >= MIN_RUN) {
+                for (int phase = 0; phase < period; phase++) {
+                    int s = step + phase;
+                    int base = phase * CompactOperationLog.PHASE_INTS;
+                    phases[base] = source.type(s).ordinal();
+                    phases[base + 1] = source.index1(s);
+                    phases[base + 2] = source.index1(s + period) - source.index1(s);
+                    phases[base + 3] = source.index2(s);
+                    phases[base + 4] = source.index2(s + period) - source.index2(s);
+                }
+                out.appendPattern(period, length, phases);
+                for (int s = step; s < step + length; s++) {
+                    if (phases[((s - step) % period) * CompactOperationLog.PHASE_INTS] == SET) {
+                        out.appendValue(source.newValue(s), source.oldValue(s));
+                    }
+                }
+                step += length;
+            } else {
+                SortOperationType type = source.type(step);
+                out.appendLiteral((byte) type.ordinal(), source.index1(step), source.index2(step));
+                if (type == SortOperationType.SET) {
+                    out.appendValue(source.newValue(step), source.oldValue(step));
+                }
+                step++;
+            }
+
+            if (out.estimatedBytes() > maxBytes) {
+                return null;
+            }
+        }
+        out.trim();
+        return out;
+    }
+
+    /**
+     * 从 start 开始、按给定周期能延续多长的规律 run（不足一个完整模式时返回 0）。
+     */
+    private static int patternLength(OperationLog log, int start, int period) {
+        int size = log.size();
+        if (start + 2 * period > size) {
+            return 0;
+        }
+        // 每个相位的类型与下标增量由前两个周期确定（最多两个相位，用局部变量避免逐步分配数组）
+        SortOperationType type0 = log.type(start);
+        SortOperationType type1 = log.type(start + period - 1);
+        if (log.type(start + period) != type0 || log.type(start + 2 * period - 1) != type1) {
+            return 0;
+        }
+        int d1Phase0 = log.index1(start + period) - log.index1(start);
+        int d2Phase0 = log.index2(start + period) - log.index2(start);
+        int d1Phase1 = log.index1(start + 2 * period - 1) - log.index1(start + period - 1);
+        int d2Phase1 = log.index2(start + 2 * period - 1) - log.index2(start + period - 1);
+
+        int end = start + 2 * period;
+        while (end < size) {
+            boolean phase0 = ((end - start) % period) == 0;
+            if (log.type(end) != (phase0 ? type0 : type1)
+                    || log.index1(end) - log.index1(end - period) != (phase0 ? d1Phase0 : d1Phase1)
+                    || log.index2(end) - log.index2(end - period) != (phase0 ? d2Phase0 : d2Phase1)) {
+                break;
+            }
+            end++;
+        }
+        return end - start;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Objects;
+
+/**
+ * 享元游标：把 {@link OperationLog} 中的某一步“看成”一个 {@link SortOperation}。
+ * <p>
+ * 同一个游标对象会被反复 {@link #moveTo(int)} 到不同步号，因此调用方不应长期持有它；
+ * 需要保存时请使用 {@link OperationLog#toOperation(int)} 得到独立对象。
+ */
+public final class OperationCursor implements SortOperation {
+
+    private final OperationLog log;
+    private int step;
+
+    public OperationCursor(OperationLog log) {
+        this.log = Objects.requireNonNull(log, "log");
+    }
+
+    /**
+     * 移动到第 step 步，并返回自身，便于链式调用。
+     */
+    public OperationCursor moveTo(int step) {
+        this.step = step;
+        return this;
+    }
+
+    public int step() {
+        return step;
+    }
+
+    @Override
+    public SortOperationType type() {
+        return log.type(step);
+    }
+
+    @Override
+    public int index1() {
+        return log.index1(step);
+    }
+
+    @Override
+    public int index2() {
+        return log.index2(step);
+    }
+
+    @Override
+    public void apply(int[] array) {
+        Objects.requireNonNull(array, "array");
+        log.apply(step, array);
+    }
+
+    @Override
+    public void undo(int[] array) {
+        Objects.requireNonNull(array, "array");
+        log.undo(step, array);
+    }
+
+    @Override
+    public String description(int[] arrayBeforeApply) {
+        // 描述文本只在 UI 真正需要时才生成，这里临时还原成具体操作以复用其文案
+        return log.toOperation(step).description(arrayBeforeApply);
+    }
+}
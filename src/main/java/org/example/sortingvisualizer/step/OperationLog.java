@@ -0,0 +1,115 @@
+package org.example.sortingvisualizer.step;
+
+/**
+ * 录制得到的操作序列（只读视图）。
+ * <p>
+ * 与 {@code List<SortOperation>} 不同，这里按“第几步”随机访问各个字段，
+ * 实现可以用原始类型数组紧凑存储，不必为每一步创建对象。
+ * 回放需要操作对象时，通过 {@link OperationCursor} 这样的享元游标读取。
+ */
+public interface OperationLog {
+
+    // 总步数（操作条数）
+    int size();
+
+    // 第 step 步的操作类型
+    SortOperationType type(int step);
+
+    // 第一个相关下标：比较/交换的左侧下标，SET 的写入下标
+    int index1(int step);
+
+    // 第二个相关下标：比较/交换的右侧下标；SET 与 index1 相同（与 SetOperation 语义一致）
+    int index2(int step);
+
+    // SET 写入前的旧值（用于 undo）；非 SET 操作返回 0
+    int oldValue(int step);
+
+    // SET 写入的新值；非 SET 操作返回 0
+    int newValue(int step);
+
+    // 某类操作的总次数
+    int count(SortOperationType type);
+
+    // 前 step 步（0..step-1）中某类操作的累计次数，用于 UI 的“当前/总次数”统计
+    int countBefore(SortOperationType type, int step);
+
+    /**
+     * 对数组执行第 step 步（回放“下一步”）。
+     * 与 {@link SwapOperation}/{@link SetOperation} 一样，下标越界时直接忽略，避免回放崩溃。
+     */
+    default void apply(int step, int[] array) {
+        switch (type(step)) {
+            case SWAP -> swap(array, index1(step), index2(step));
+            case SET -> set(array, index1(step), newValue(step));
+            case COMPARE -> {
+                // compare 不修改数组
+            }
+        }
+    }
+
+    /**
+     * 撤销第 step 步（回放“上一步”）：swap 的逆仍是 swap；set 写回 oldValue。
+     */
+    default void undo(int step, int[] array) {
+        switch (type(step)) {
+            case SWAP -> swap(array, index1(step), index2(step));
+            case SET -> set(array, index1(step), oldValue(step));
+            case COMPARE -> {
+                // compare 无需撤销
+            }
+        }
+    }
+
+    /**
+     * 依次执行 [from, to) 这一段（用于跳转时的批量重放）。
+     * 默认逐步调用 {@link #apply}；压缩日志可以按块批量执行。
+     */
+    default void applyRange(int from, int to, int[] array) {
+        for (int step = from; step < to; step++) {
+            apply(step, array);
+        }
+    }
+
+    /**
+     * 倒序撤销 [from, to) 这一段，执行后数组回到第 from 步之前的状态。
+     */
+    default void undoRange(int from, int to, int[] array) {
+        for (int step = to - 1; step >= from; step--) {
+            undo(step, array);
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节）。默认按每步一个类型字节加三个 int 列估算，紧凑实现应覆盖它。
+     */
+    default long estimatedBytes() {
+        return size() * 13L;
+    }
+
+    /**
+     * 把第 step 步还原成独立的操作对象（会分配对象，只适合偶尔调用，例如导出/调试）。
+     */
+    default SortOperation toOperation(int step) {
+        return switch (type(step)) {
+            case COMPARE -> new CompareOperation(index1(step), index2(step));
+            case SWAP -> new SwapOperation(index1(step), index2(step));
+            case SET -> new SetOperation(index1(step), oldValue(step), newValue(step));
+        };
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        if (i < 0 || i >= array.length || j < 0 || j >= array.length) {
+            return;
+        }
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void set(int[] array, int index, int value) {
+        if (index < 0 || index >= array.length) {
+            return;
+        }
+        array[index] = value;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.sortingvisualizer.step;
+
+/**
+ * 录制输出端：接收比较/交换/写入三类操作。
+ * <p>
+ * {@link PackedOperationLog} 直接在内存中追加；{@link OperationBuffer} 则把操作交给另一个线程边录边放。
+ */
+public interface OperationSink {
+
+    // 记录一次比较（不修改数组）
+    void appendCompare(int index1, int index2);
+
+    // 记录一次交换
+    void appendSwap(int index1, int index2);
+
+    // 记录一次写入：oldValue 用于撤销
+    void appendSet(int index, int oldValue, int newValue);
+
+    // 录制策略在此处丢弃了 count 次比较（只计数、不回放）；不关心精确统计的输出端可以忽略
+    default void skipCompares(int count) {
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 列式（columnar）操作日志：用几组并行的原始类型数组保存录制结果，不为每一步创建对象。
+ * <p>
+ * 存储布局（按步号 step 切成固定大小的 chunk，追加时不会搬移已写入的数据）：
+ * <ul>
+ *   <li>{@code types}：操作类型（{@link SortOperationType#ordinal()}），1 字节/步</li>
+ *   <li>{@code first}：index1（SET 为写入下标），4 字节/步</li>
+ *   <li>{@code second}：index2（SET 为新值），4 字节/步</li>
+ *   <li>{@code third}：SET 的旧值；只有出现过 SET 的 chunk 才分配（纯比较/交换类算法不占这一列）</li>
+ * </ul>
+ * 另外在每个 chunk 起点记录各类操作的累计次数，使 {@link #countBefore} 最多只需扫描一个 chunk。
+ */
+public final class PackedOperationLog implements OperationLog, OperationSink {
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 4096 步/块
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final SortOperationType[] TYPES = SortOperationType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    private static final byte COMPARE = (byte) SortOperationType.COMPARE.ordinal();
+    private static final byte SWAP = (byte) SortOperationType.SWAP.ordinal();
+    private static final byte SET = (byte) SortOperationType.SET.ordinal();
+
+    private byte[][] types = new byte[16][];
+    private int[][] first = new int[16][];
+    private int[][] second = new int[16][];
+    private int[][] third = new int[16][];
+
+    /** chunkCounts[chunk * TYPE_COUNT + type]：该 chunk 起点之前各类操作的累计次数。 */
+    private int[] chunkCounts = new int[16 * TYPE_COUNT];
+
+    /** 各类操作的总次数。 */
+    private final int[] totals = new int[TYPE_COUNT];
+
+    private int size;
+
+    @Override
+    public void appendCompare(int index1, int index2) {
+        append(COMPARE, index1, index2);
+    }
+
+    @Override
+    public void appendSwap(int index1, int index2) {
+        append(SWAP, index1, index2);
+    }
+
+    @Override
+    public void appendSet(int index, int oldValue, int newValue) {
+        int offset = append(SET, index, newValue);
+        int chunk = (size - 1) >>> CHUNK_SHIFT;
+        int[] values = third[chunk];
+        if (values == null) {
+            // 懒分配：只有真的出现 SET 的 chunk 才需要保存旧值
+            values = new int[CHUNK_SIZE];
+            third[chunk] = values;
+        }
+        values[offset] = oldValue;
+    }
+
+    private int append(byte type, int a, int b) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int offset = size & CHUNK_MASK;
+        if (offset == 0) {
+            openChunk(chunk);
+        }
+        types[chunk][offset] = type;
+        first[chunk][offset] = a;
+        second[chunk][offset] = b;
+        totals[type]++;
+        size++;
+        return offset;
+    }
+
+    private void openChunk(int chunk) {
+        if (chunk == types.length) {
+            // 只扩容“目录”（chunk 引用数组），已写入的数据块保持原位
+            int grown = chunk * 2;
+            types = Arrays.copyOf(types, grown);
+            first = Arrays.copyOf(first, grown);
+            second = Arrays.copyOf(second, grown);
+            third = Arrays.copyOf(third, grown);
+            chunkCounts = Arrays.copyOf(chunkCounts, grown * TYPE_COUNT);
+        }
+        types[chunk] = new byte[CHUNK_SIZE];
+        first[chunk] = new int[CHUNK_SIZE];
+        second[chunk] = new int[CHUNK_SIZE];
+        System.arraycopy(totals, 0, chunkCounts, chunk * TYPE_COUNT, TYPE_COUNT);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SortOperationType type(int step) {
+        Objects.checkIndex(step, size);
+        return TYPES[types[step >>> CHUNK_SHIFT][step & CHUNK_MASK]];
+    }
+
+    @Override
+    public int index1(int step) {
+        Objects.checkIndex(step, size);
+        return first[step >>> CHUNK_SHIFT][step & CHUNK_MASK];
+    }
+
+    @Override
+    public int index2(int step) {
+        Objects.checkIndex(step, size);
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        // SET 的 second 列存的是新值，index2 与 index1 相同
+        return (types[chunk][offset] == SET) ? first[chunk][offset] : second[chunk][offset];
+    }
+
+    @Override
+    public int oldValue(int step) {
+        Objects.checkIndex(step, size);
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        return (types[chunk][offset] == SET) ? third[chunk][offset] : 0;
+    }
+
+    @Override
+    public int newValue(int step) {
+        Objects.checkIndex(step, size);
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        return (types[chunk][offset] == SET) ? second[chunk][offset] : 0;
+    }
+
+    @Override
+    public int count(SortOperationType type) {
+        return totals[type.ordinal()];
+    }
+
+    @Override
+    public int countBefore(SortOperationType type, int step) {
+        if (step <= 0) return 0;
+        if (step >= size) return totals[type.ordinal()];
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        byte wanted = (byte) type.ordinal();
+        int count = chunkCounts[chunk * TYPE_COUNT + wanted];
+        byte[] chunkTypes = types[chunk];
+        for (int i = 0; i < offset; i++) {
+            if (chunkTypes[i] == wanted) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void apply(int step, int[] array) {
+        // 直接按列读取，避免默认实现里多次 checkIndex/分支
+        Objects.checkIndex(step, size);
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        byte type = types[chunk][offset];
+        if (type == SWAP) {
+            swap(array, first[chunk][offset], second[chunk][offset]);
+        } else if (type == SET) {
+            set(array, first[chunk][offset], second[chunk][offset]);
+        }
+    }
+
+    @Override
+    public void undo(int step, int[] array) {
+        Objects.checkIndex(step, size);
+        int chunk = step >>> CHUNK_SHIFT;
+        int offset = step & CHUNK_MASK;
+        byte type = types[chunk][offset];
+        if (type == SWAP) {
+            swap(array, first[chunk][offset], second[chunk][offset]);
+        } else if (type == SET) {
+            set(array, first[chunk][offset], third[chunk][offset]);
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节），只统计数据块本身。
+     */
+    @Override
+    public long estimatedBytes() {
+        long bytes = 0;
+        int chunks = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        for (int c = 0; c < chunks; c++) {
+            bytes += CHUNK_SIZE * (1L + 4 + 4);
+            if (third[c] != null) bytes += CHUNK_SIZE * 4L;
+        }
+        return bytes;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        if (i < 0 || i >= array.length || j < 0 || j >= array.length) {
+            return;
+        }
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void set(int[] array, int index, int value) {
+        if (index < 0 || index >= array.length) {
+            return;
+        }
+        array[index] = value;
+    }
+}
@@ -1,22 +1,27 @@
 package org.example.sortingvisualizer.step;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 
 public final class RecordedSort {
 
     private final String algorithmName;
     private final int[] initialArray;
-    private final List<SortOperation> operations;
+    private final OperationLog log;
+    private final AccessHeatmap heatmap;
 
-    public RecordedSort(String algorithmName, int[] initialArray, List<SortOperation> operations) {
+    public RecordedSort(String algorithmName, int[] initialArray, OperationLog log) {
+        this(algorithmName, initialArray, log, null);
+    }
+
+    public RecordedSort(String algorithmName, int[] initialArray, OperationLog log, AccessHeatmap heatmap) {
         // 这是“录制完成后的结果对象”：算法名 + 初始数组 + 操作序列
         this.algorithmName = algorithmName;
         // 防御性拷贝：避免外部持有数组引用后修改，导致回放基准被污染
         this.initialArray = (initialArray == null) ? new int[0] : initialArray.clone();
-        // 不可变封装：operations 内部不允许被增删改，保证回放过程可重复
-        this.operations = Collections.unmodifiableList(Objects.requireNonNull(operations, "operations"));
+        // 操作日志只提供只读访问，保证回放过程可重复
+        this.log = Objects.requireNonNull(log, "log");
+        // 访问热力图只在录制时产生；从文件打开的录制没有热力图（为 null）
+        this.heatmap = heatmap;
     }
 
     public String algorithmName() {
@@ -29,8 +34,23 @@ public final class RecordedSort {
         return initialArray.clone();
     }
 
-    public List<SortOperation> operations() {
-        // operations 本身是 unmodifiableList，可直接返回
-        return operations;
+    public OperationLog log() {
+        // 紧凑存储的操作序列；逐步读取请配合 OperationCursor
+        return log;
+    }
+
+    public int size() {
+        // 总步数（回放日志中的步数；抽样录制时小于真实操作数）
+        return log.size();
+    }
+
+    public int count(SortOperationType type) {
+        // 排序过程中某类操作的真实次数：抽样录制丢弃的比较也计入（由 SampledOperationLog 登记）
+        return log.count(type);
+    }
+
+    public AccessHeatmap heatmap() {
+        // 录制期间累计的逐下标访问统计；可能为 null
+        return heatmap;
     }
 }
@@ -0,0 +1,280 @@
+package org.example.sortingvisualizer.step;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 录制文件（*.svrec）的二进制格式：保存 {@link RecordedSort}，打开时不必重新运行排序算法。
+ * <p>
+ * 文件布局（整数均为大端序）：
+ * <pre>
+ * 文件头：  magic "SVRC" | u16 版本 | 算法名(UTF) | 每块步数 | n | n 个初始值
+ * 数据块：  block 0 | block 1 | ...（每块 blockSteps 步，最后一块可能不满）
+ * 块索引：  每块 { 偏移(long) | 字节数(int) | 块起点前 compare/swap/set 累计次数(3×int) | 块起点前丢弃的比较次数(long) }
+ *           | 各类总次数(3×int) | 丢弃的比较总数(long)
+ * 文件尾：  索引偏移(long) | 块数(int) | 总步数(int) | magic "SVRE"
+ * </pre>
+ * 块内每步用变长整数（varint + zigzag）编码，只依赖块内状态，因此任意一块都能单独解码：
+ * <ul>
+ *   <li>首个 varint：{@code zigzag(index1 - 上一步 index1) << 2 | type}（相邻步的下标通常很接近）</li>
+ *   <li>COMPARE/SWAP：再跟 {@code zigzag(index2 - index1)}</li>
+ *   <li>SET：再跟 {@code zigzag(newValue)} 与 {@code zigzag(oldValue - newValue)}</li>
+ *   <li>SKIP（类型位为 3）：{@code count << 2 | 3}，表示抽样录制在下一步之前丢弃了 count 次比较（见 {@link SampledOperationLog}）；
+ *       不占步号。录制末尾之后的丢弃写在最后一块的末尾，没有任何步时单独写一个只含 SKIP 的块</li>
+ * </ul>
+ * 版本 1 没有 SKIP 记录，索引中也没有两项丢弃计数，仍可读取。
+ * 打开文件时只读文件头和块索引，数据块由 {@link BlockFileOperationLog} 按需读取、解码。
+ */
+public final class RecordingFile {
+
+    /** 推荐的文件扩展名。 */
+    public static final String EXTENSION = "svrec";
+
+    /** 当前写出的格式版本；读取时拒绝更高的版本。 */
+    public static final int VERSION = 2;
+
+    /** 第一个带丢弃登记（SKIP 记录）的版本。 */
+    static final int VERSION_WITH_SKIPS = 2;
+
+    static final int MAGIC = 0x53565243;     // "SVRC"
+    static final int END_MAGIC = 0x53565245; // "SVRE"
+
+    /** 默认每块步数：块越小随机跳转解码越少，块越多索引越大。 */
+    static final int DEFAULT_BLOCK_STEPS = 4096;
+
+    /** 每块索引项字节数：offset + length + 3 个累计次数 + 丢弃的比较次数。 */
+    static final int INDEX_ENTRY_BYTES = 8 + 4 + 3 * 4 + 8;
+
+    /** 版本 1 的每块索引项字节数（没有丢弃计数）。 */
+    static final int INDEX_ENTRY_BYTES_V1 = 8 + 4 + 3 * 4;
+
+    /** 文件尾字节数。 */
+    static final int TAIL_BYTES = 8 + 4 + 4 + 4;
+
+    static final int TYPE_COUNT = SortOperationType.values().length;
+
+    private static final int SET = SortOperationType.SET.ordinal();
+
+    /** SKIP 记录的类型位（紧跟在三种操作类型之后）。 */
+    static final int SKIP = 3;
+
+    private RecordingFile() {
+    }
+
+    /**
+     * 把录制结果写入文件（覆盖已有文件）。
+     */
+    public static void write(RecordedSort recording, Path path) throws IOException {
+        Objects.requireNonNull(recording, "recording");
+        Objects.requireNonNull(path, "path");
+        OperationLog log = recording.log();
+        int size = log.size();
+        int blockSteps = DEFAULT_BLOCK_STEPS;
+        // 抽样录制：丢弃登记随块写出，打开时据此恢复真实的比较次数
+        SampledOperationLog sampled = (log instanceof SampledOperationLog s) ? s : null;
+        int dropEntries = (sampled == null) ? 0 : sampled.dropEntries();
+        int blockCount = (size + blockSteps - 1) / blockSteps;
+        if (blockCount == 0 && dropEntries > 0) {
+            // 一步都没保留但丢弃过比较（例如对有序数据只录写入）：用一个只含 SKIP 的块承载登记
+            blockCount = 1;
+        }
+
+        try (CountingOutput counting = new CountingOutput(Files.newOutputStream(path));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counting, 1 << 16))) {
+            // 文件头
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            String name = recording.algorithmName();
+            out.writeUTF(name == null ? "" : name);
+            out.writeInt(blockSteps);
+            int[] initial = recording.initialArray();
+            out.writeInt(initial.length);
+            for (int v : initial) {
+                out.writeInt(v);
+            }
+
+            // 数据块：逐块编码，记录偏移/长度与块起点累计次数
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            int[] countsBefore = new int[blockCount * TYPE_COUNT];
+            long[] droppedBefore = new long[blockCount];
+            int[] totals = new int[TYPE_COUNT];
+            long dropped = 0;
+            int drop = 0;
+            VarintBuffer block = new VarintBuffer();
+            for (int b = 0; b < blockCount; b++) {
+                System.arraycopy(totals, 0, countsBefore, b * TYPE_COUNT, TYPE_COUNT);
+                droppedBefore[b] = dropped;
+                int from = b * blockSteps;
+                int to = Math.min(size, from + blockSteps);
+                block.reset();
+                int prevIndex = 0;
+                for (int step = from; step < to; step++) {
+                    // 登记在这一步之前的丢弃
+                    while (drop < dropEntries && sampled.dropStep(drop) == step) {
+                        long total = sampled.droppedTotal(drop++);
+                        block.writeVarlong(((total - dropped) << 2) | SKIP);
+                        dropped = total;
+                    }
+                    SortOperationType type = log.type(step);
+                    int index1 = log.index1(step);
+                    block.writeVarlong((zigzag((long) index1 - prevIndex) << 2) | type.ordinal());
+                    if (type.ordinal() == SET) {
+                        int newValue = log.newValue(step);
+                        block.writeVarlong(zigzag(newValue));
+                        block.writeVarlong(zigzag((long) log.oldValue(step) - newValue));
+                    } else {
+                        block.writeVarlong(zigzag((long) log.index2(step) - index1));
+                    }
+                    prevIndex = index1;
+                    totals[type.ordinal()]++;
+                }
+                if (b == blockCount - 1) {
+                    // 最后一块还要带上录制末尾之后的丢弃
+                    while (drop < dropEntries) {
+                        long total = sampled.droppedTotal(drop++);
+                        block.writeVarlong(((total - dropped) << 2) | SKIP);
+                        dropped = total;
+                    }
+                }
+                out.flush();
+                offsets[b] = counting.count;
+                lengths[b] = block.size;
+                out.write(block.bytes, 0, block.size);
+            }
+
+            // 块索引 + 文件尾
+            out.flush();
+            long indexOffset = counting.count;
+            for (int b = 0; b < blockCount; b++) {
+                out.writeLong(offsets[b]);
+                out.writeInt(lengths[b]);
+                for (int t = 0; t < TYPE_COUNT; t++) {
+                    out.writeInt(countsBefore[b * TYPE_COUNT + t]);
+                }
+                out.writeLong(droppedBefore[b]);
+            }
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                out.writeInt(totals[t]);
+            }
+            out.writeLong(dropped);
+            out.writeLong(indexOffset);
+            out.writeInt(blockCount);
+            out.writeInt(size);
+            out.writeInt(END_MAGIC);
+        }
+    }
+
+    /**
+     * 打开录制文件：只解析文件头与块索引，操作数据按需从磁盘读取。
+     * 返回结果的日志持有文件句柄，不再使用时应关闭（{@link BlockFileOperationLog}，
+     * 抽样录制时为包装它的 {@link SampledOperationLog}，两者都实现了 {@link java.io.Closeable}）。
+     */
+    public static RecordedSort open(Path path) throws IOException {
+        Objects.requireNonNull(path, "path");
+        String name;
+        int blockSteps;
+        int[] initial;
+        int version;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是有效的录制文件: " + path.getFileName());
+            }
+            version = in.readUnsignedShort();
+            if (version > VERSION) {
+                throw new IOException("不支持的录制文件版本: " + version);
+            }
+            name = in.readUTF();
+            blockSteps = in.readInt();
+            int n = in.readInt();
+            if (blockSteps <= 0 || n < 0) {
+                throw new IOException("录制文件已损坏: " + path.getFileName());
+            }
+            initial = new int[n];
+            for (int i = 0; i < n; i++) {
+                initial[i] = in.readInt();
+            }
+        }
+        BlockFileOperationLog log = BlockFileOperationLog.open(path, blockSteps, version);
+        try {
+            // 抽样录制：恢复丢弃登记，比较次数仍是排序时的真实次数
+            return new RecordedSort(name, initial, log.withDropRegistry());
+        } catch (UncheckedIOException e) {
+            log.close();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** 可复用的 varint 编码缓冲区。 */
+    private static final class VarintBuffer {
+        private byte[] bytes = new byte[1 << 14];
+        private int size;
+
+        private void reset() {
+            size = 0;
+        }
+
+        private void writeVarlong(long v) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+    }
+
+    /** 统计已写出的字节数，用于记录每块在文件中的偏移。 */
+    private static final class CountingOutput extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        private CountingOutput(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.sortingvisualizer.step;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 抽样录制的日志：回放内容来自底层日志（只含被保留的操作），统计次数则是排序过程中真实发生的次数。
+ * <p>
+ * 录制策略丢弃比较时，通过 {@link #skipCompares(int)} 登记“在第几步之前丢了多少次比较”。
+ * 登记表按步号递增，每个保留的步最多一项，因此即使丢弃了上亿次比较也只占很少内存。
+ * <p>
+ * {@link #count}/{@link #countBefore} 返回的是真实次数（含被丢弃的比较），
+ * 其余方法（size/type/下标/apply/undo）都直接转给底层日志。
+ * <p>
+ * 底层日志持有资源（例如打开的录制文件）时，{@link #close()} 一并关闭它。
+ */
+public final class SampledOperationLog implements OperationLog, OperationSink, Closeable {
+
+    private static final int COMPARE = SortOperationType.COMPARE.ordinal();
+
+    private final OperationLog base;
+    /** 录制期间的追加端；由 {@link #withBase} 得到的只读副本为 null。 */
+    private final OperationSink baseSink;
+
+    /** dropSteps[i]：第 i 项登记时底层日志的步数；droppedTotals[i]：截至该项累计丢弃的比较次数。 */
+    private int[] dropSteps;
+    private long[] droppedTotals;
+    private int dropEntries;
+
+    public <L extends OperationLog & OperationSink> SampledOperationLog(L base) {
+        this(Objects.requireNonNull(base, "base"), base, new int[16], new long[16], 0);
+    }
+
+    private SampledOperationLog(OperationLog base, OperationSink baseSink, int[] dropSteps, long[] droppedTotals, int dropEntries) {
+        this.base = base;
+        this.baseSink = baseSink;
+        this.dropSteps = dropSteps;
+        this.droppedTotals = droppedTotals;
+        this.dropEntries = dropEntries;
+    }
+
+    /**
+     * 换一个逐步等价的底层日志（例如压缩后的日志），保留丢弃登记。返回的日志只读。
+     */
+    public SampledOperationLog withBase(OperationLog replacement) {
+        Objects.requireNonNull(replacement, "replacement");
+        if (replacement.size() != base.size()) {
+            throw new IllegalArgumentException("替换的日志步数不一致: " + replacement.size() + " != " + base.size());
+        }
+        return new SampledOperationLog(replacement, null,
+                Arrays.copyOf(dropSteps, dropEntries), Arrays.copyOf(droppedTotals, dropEntries), dropEntries);
+    }
+
+    /**
+     * 用已知的丢弃登记包装一个只读日志（例如从录制文件恢复）。
+     * dropSteps 需按步号递增，droppedTotals 为截至各项的累计丢弃次数。
+     */
+    static SampledOperationLog restore(OperationLog base, int[] dropSteps, long[] droppedTotals, int dropEntries) {
+        Objects.requireNonNull(base, "base");
+        if (dropEntries < 0 || dropEntries > dropSteps.length || dropEntries > droppedTotals.length) {
+            throw new IllegalArgumentException("丢弃登记项数无效: " + dropEntries);
+        }
+        return new SampledOperationLog(base, null,
+                Arrays.copyOf(dropSteps, dropEntries), Arrays.copyOf(droppedTotals, dropEntries), dropEntries);
+    }
+
+    /** 丢弃登记的项数（写录制文件用）。 */
+    int dropEntries() {
+        return dropEntries;
+    }
+
+    /** 第 k 项登记时底层日志的步数。 */
+    int dropStep(int k) {
+        Objects.checkIndex(k, dropEntries);
+        return dropSteps[k];
+    }
+
+    /** 截至第 k 项累计丢弃的比较次数。 */
+    long droppedTotal(int k) {
+        Objects.checkIndex(k, dropEntries);
+        return droppedTotals[k];
+    }
+
+    /**
+     * 被丢弃的比较总数。
+     */
+    public long droppedCompares() {
+        return dropEntries == 0 ? 0 : droppedTotals[dropEntries - 1];
+    }
+
+    // ---- 追加 ----
+
+    @Override
+    public void appendCompare(int index1, int index2) {
+        sink().appendCompare(index1, index2);
+    }
+
+    @Override
+    public void appendSwap(int index1, int index2) {
+        sink().appendSwap(index1, index2);
+    }
+
+    @Override
+    public void appendSet(int index, int oldValue, int newValue) {
+        sink().appendSet(index, oldValue, newValue);
+    }
+
+    @Override
+    public void skipCompares(int count) {
+        if (count <= 0) return;
+        int at = base.size();
+        long total = droppedCompares() + count;
+        if (dropEntries > 0 && dropSteps[dropEntries - 1] == at) {
+            // 同一位置的多次丢弃合并成一项
+            droppedTotals[dropEntries - 1] = total;
+            return;
+        }
+        if (dropEntries == dropSteps.length) {
+            dropSteps = Arrays.copyOf(dropSteps, dropEntries * 2);
+            droppedTotals = Arrays.copyOf(droppedTotals, dropEntries * 2);
+        }
+        dropSteps[dropEntries] = at;
+        droppedTotals[dropEntries] = total;
+        dropEntries++;
+    }
+
+    private OperationSink sink() {
+        if (baseSink == null) {
+            throw new IllegalStateException("只读日志不能追加");
+        }
+        return baseSink;
+    }
+
+    // ---- 统计：真实次数 ----
+
+    @Override
+    public int count(SortOperationType type) {
+        int recorded = base.count(type);
+        return (type.ordinal() == COMPARE) ? saturate(recorded + droppedCompares()) : recorded;
+    }
+
+    @Override
+    public int countBefore(SortOperationType type, int step) {
+        int recorded = base.countBefore(type, step);
+        if (type.ordinal() != COMPARE) return recorded;
+        if (step >= base.size()) return count(type);
+        return saturate(recorded + droppedBefore(step));
+    }
+
+    /**
+     * 在第 step 步之前（即第 step-1 步执行之前）丢弃的比较次数。
+     * 与回放游标语义一致：游标为 c 时，已执行的是 0..c-1 步。
+     */
+    private long droppedBefore(int step) {
+        // 找最后一项 dropSteps < step
+        int lo = 0;
+        int hi = dropEntries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dropSteps[mid] < step) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? 0 : droppedTotals[lo - 1];
+    }
+
+    private static int saturate(long value) {
+        // UI 统计使用 int；比较次数超过 int 上限时封顶显示
+        return (int) Math.min(Integer.MAX_VALUE, value);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        // 底层日志 + 丢弃登记表
+        return base.estimatedBytes() + dropSteps.length * (4L + 8);
+    }
+
+    // ---- 回放：直接转给底层日志 ----
+
+    @Override
+    public int size() {
+        return base.size();
+    }
+
+    @Override
+    public SortOperationType type(int step) {
+        return base.type(step);
+    }
+
+    @Override
+    public int index1(int step) {
+        return base.index1(step);
+    }
+
+    @Override
+    public int index2(int step) {
+        return base.index2(step);
+    }
+
+    @Override
+    public int oldValue(int step) {
+        return base.oldValue(step);
+    }
+
+    @Override
+    public int newValue(int step) {
+        return base.newValue(step);
+    }
+
+    @Override
+    public void apply(int step, int[] array) {
+        base.apply(step, array);
+    }
+
+    @Override
+    public void undo(int step, int[] array) {
+        base.undo(step, array);
+    }
+
+    @Override
+    public void applyRange(int from, int to, int[] array) {
+        base.applyRange(from, to, array);
+    }
+
+    @Override
+    public void undoRange(int from, int to, int[] array) {
+        base.undoRange(from, to, array);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (base instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -54,6 +54,11 @@ public final class SetOperation implements SortOperation {
     @Override
     public String description(int[] arrayBeforeApply) {
         // description 用于 UI 回显：写回/赋值类型操作通常更关注 old -> new
+        return describe(index, oldValue, newValue);
+    }
+
+    // StepPlayer 的惰性回显也复用这里的文案
+    static String describe(int index, int oldValue, int newValue) {
         return "设置: a[" + index + "] " + oldValue + " -> " + newValue;
     }
 }
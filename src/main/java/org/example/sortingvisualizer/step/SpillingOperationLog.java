@@ -0,0 +1,341 @@
+package org.example.sortingvisualizer.step;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 可溢出到磁盘的操作日志：最近的若干段留在堆内（热窗口），更早的段写入临时文件。
+ * <p>
+ * 临时文件按“内存映射追加日志”的方式使用：每次映射一大块区域（{@link #SEGMENTS_PER_REGION} 段），
+ * 段依次写入；回放读取已溢出的段时直接读映射区，由操作系统按需把页面换入，调用方无感知。
+ * 这样平方级算法的超长录制受磁盘空间约束，而不是受 -Xmx 约束。
+ * <p>
+ * 段在磁盘上的布局与堆内一致：{@code types[SEG] | first[SEG] | second[SEG] | third[SEG]}，
+ * 其中 SET 的 first/second/third 依次为 下标/新值/旧值。
+ * 临时文件在 {@link #close()} 时删除；忘记关闭时由 {@link Cleaner} 在日志不可达后兜底清理。
+ */
+public final class SpillingOperationLog implements OperationLog, OperationSink, Closeable {
+
+    /** 最多记录的步数：步号是 int，再多一步 size 就会溢出为负数；留出余量，按步数分配的数组也不会越过数组长度上限。 */
+    public static final int MAX_STEPS = Integer.MAX_VALUE - 8;
+
+    /** 默认堆内热窗口预算：128MB。 */
+    public static final long DEFAULT_HEAP_BUDGET_BYTES = 128L * 1024 * 1024;
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT; // 65536 步/段
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int SEGMENT_BYTES = SEGMENT_SIZE * (1 + 4 + 4 + 4);
+
+    /** 每次映射多少段（约 53MB），减少 map 调用次数。 */
+    private static final int SEGMENTS_PER_REGION = 64;
+
+    /** 计数检查点间隔：countBefore 最多扫描这么多个类型字节。 */
+    private static final int BLOCK_SHIFT = 12;
+    private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+    private static final SortOperationType[] TYPES = SortOperationType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    private static final byte COMPARE = (byte) SortOperationType.COMPARE.ordinal();
+    private static final byte SWAP = (byte) SortOperationType.SWAP.ordinal();
+    private static final byte SET = (byte) SortOperationType.SET.ordinal();
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int maxHotSegments;
+
+    /** 堆内段；下标 < spilledSegments 的段已写入磁盘，对应位置为 null。 */
+    private Segment[] segments = new Segment[16];
+    private int spilledSegments;
+
+    /** blockCounts[block * TYPE_COUNT + type]：该块起点之前各类操作的累计次数。 */
+    private int[] blockCounts = new int[64 * TYPE_COUNT];
+    private final int[] totals = new int[TYPE_COUNT];
+    private int size;
+
+    /** 映射区：regions[r] 覆盖第 r*SEGMENTS_PER_REGION 段起的 SEGMENTS_PER_REGION 段。 */
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private final SpillFile spillFile = new SpillFile();
+    private final Cleaner.Cleanable cleanable;
+
+    public SpillingOperationLog() {
+        this(DEFAULT_HEAP_BUDGET_BYTES);
+    }
+
+    public SpillingOperationLog(long heapBudgetBytes) {
+        // 至少保留 2 段在堆内：正在写入的段 + 最近一段（回退时最常访问）
+        this.maxHotSegments = (int) Math.max(2, Math.min(Integer.MAX_VALUE, heapBudgetBytes / SEGMENT_BYTES));
+        this.cleanable = CLEANER.register(this, spillFile);
+    }
+
+    @Override
+    public void appendCompare(int index1, int index2) {
+        append(COMPARE, index1, index2, 0);
+    }
+
+    @Override
+    public void appendSwap(int index1, int index2) {
+        append(SWAP, index1, index2, 0);
+    }
+
+    @Override
+    public void appendSet(int index, int oldValue, int newValue) {
+        append(SET, index, newValue, oldValue);
+    }
+
+    private void append(byte type, int a, int b, int c) {
+        if (size == MAX_STEPS) {
+            throw new IllegalStateException("录制过长：操作步数已达上限 " + MAX_STEPS);
+        }
+        int seg = size >>> SEGMENT_SHIFT;
+        int offset = size & SEGMENT_MASK;
+        if (offset == 0) {
+            openSegment(seg);
+        }
+        if ((size & BLOCK_MASK) == 0) {
+            int block = size >>> BLOCK_SHIFT;
+            if ((block + 1) * TYPE_COUNT > blockCounts.length) {
+                blockCounts = Arrays.copyOf(blockCounts, blockCounts.length * 2);
+            }
+            System.arraycopy(totals, 0, blockCounts, block * TYPE_COUNT, TYPE_COUNT);
+        }
+        Segment s = segments[seg];
+        s.types[offset] = type;
+        s.first[offset] = a;
+        s.second[offset] = b;
+        s.third[offset] = c;
+        totals[type]++;
+        size++;
+    }
+
+    private void openSegment(int seg) {
+        if (seg == segments.length) {
+            segments = Arrays.copyOf(segments, seg * 2);
+        }
+        // 热窗口已满：把最旧的堆内段写到磁盘，腾出预算
+        while (seg - spilledSegments >= maxHotSegments) {
+            spill(spilledSegments);
+            segments[spilledSegments] = null;
+            spilledSegments++;
+        }
+        segments[seg] = new Segment();
+    }
+
+    private void spill(int seg) {
+        Segment s = segments[seg];
+        ByteBuffer dst = region(seg, true).slice(regionOffset(seg), SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+        dst.put(s.types);
+        dst.asIntBuffer().put(s.first).put(s.second).put(s.third);
+    }
+
+    private MappedByteBuffer region(int seg, boolean create) {
+        int r = seg / SEGMENTS_PER_REGION;
+        if (r == regions.size() && create) {
+            try {
+                long position = (long) r * SEGMENTS_PER_REGION * SEGMENT_BYTES;
+                MappedByteBuffer mapped = spillFile.channel().map(FileChannel.MapMode.READ_WRITE, position,
+                        (long) SEGMENTS_PER_REGION * SEGMENT_BYTES);
+                mapped.order(ByteOrder.nativeOrder());
+                regions.add(mapped);
+            } catch (IOException e) {
+                throw new UncheckedIOException("操作日志溢出到磁盘失败", e);
+            }
+        }
+        return regions.get(r);
+    }
+
+    private static int regionOffset(int seg) {
+        return (seg % SEGMENTS_PER_REGION) * SEGMENT_BYTES;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SortOperationType type(int step) {
+        return TYPES[rawType(step)];
+    }
+
+    private byte rawType(int step) {
+        Objects.checkIndex(step, size);
+        int seg = step >>> SEGMENT_SHIFT;
+        int offset = step & SEGMENT_MASK;
+        if (seg >= spilledSegments) {
+            return segments[seg].types[offset];
+        }
+        return region(seg, false).get(regionOffset(seg) + offset);
+    }
+
+    /** column：0=first，1=second，2=third。 */
+    private int column(int step, int column) {
+        int seg = step >>> SEGMENT_SHIFT;
+        int offset = step & SEGMENT_MASK;
+        if (seg >= spilledSegments) {
+            Segment s = segments[seg];
+            return switch (column) {
+                case 0 -> s.first[offset];
+                case 1 -> s.second[offset];
+                default -> s.third[offset];
+            };
+        }
+        int base = regionOffset(seg) + SEGMENT_SIZE + column * SEGMENT_SIZE * 4;
+        return region(seg, false).getInt(base + offset * 4);
+    }
+
+    @Override
+    public int index1(int step) {
+        Objects.checkIndex(step, size);
+        return column(step, 0);
+    }
+
+    @Override
+    public int index2(int step) {
+        // SET 的 second 列存的是新值，index2 与 index1 相同
+        return (rawType(step) == SET) ? column(step, 0) : column(step, 1);
+    }
+
+    @Override
+    public int oldValue(int step) {
+        return (rawType(step) == SET) ? column(step, 2) : 0;
+    }
+
+    @Override
+    public int newValue(int step) {
+        return (rawType(step) == SET) ? column(step, 1) : 0;
+    }
+
+    @Override
+    public int count(SortOperationType type) {
+        return totals[type.ordinal()];
+    }
+
+    @Override
+    public int countBefore(SortOperationType type, int step) {
+        if (step <= 0) return 0;
+        if (step >= size) return totals[type.ordinal()];
+        byte wanted = (byte) type.ordinal();
+        int block = step >>> BLOCK_SHIFT;
+        int count = blockCounts[block * TYPE_COUNT + wanted];
+        for (int i = block << BLOCK_SHIFT; i < step; i++) {
+            if (rawType(i) == wanted) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void apply(int step, int[] array) {
+        byte type = rawType(step);
+        if (type == SWAP) {
+            swap(array, column(step, 0), column(step, 1));
+        } else if (type == SET) {
+            set(array, column(step, 0), column(step, 1));
+        }
+    }
+
+    @Override
+    public void undo(int step, int[] array) {
+        byte type = rawType(step);
+        if (type == SWAP) {
+            swap(array, column(step, 0), column(step, 1));
+        } else if (type == SET) {
+            set(array, column(step, 0), column(step, 2));
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节）：只统计热窗口，已溢出的段不计入。
+     */
+    @Override
+    public long estimatedBytes() {
+        int hot = ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT) - spilledSegments;
+        return (long) Math.max(0, hot) * SEGMENT_BYTES + blockCounts.length * 4L;
+    }
+
+    /**
+     * 已写入磁盘的字节数。
+     */
+    public long spilledBytes() {
+        return (long) spilledSegments * SEGMENT_BYTES;
+    }
+
+    /**
+     * 关闭并删除临时文件。关闭后不能再读取已溢出的段。
+     */
+    @Override
+    public void close() {
+        regions.clear();
+        cleanable.clean();
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        if (i < 0 || i >= array.length || j < 0 || j >= array.length) {
+            return;
+        }
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void set(int[] array, int index, int value) {
+        if (index < 0 || index >= array.length) {
+            return;
+        }
+        array[index] = value;
+    }
+
+    private static final class Segment {
+        private final byte[] types = new byte[SEGMENT_SIZE];
+        private final int[] first = new int[SEGMENT_SIZE];
+        private final int[] second = new int[SEGMENT_SIZE];
+        private final int[] third = new int[SEGMENT_SIZE];
+    }
+
+    /**
+     * 临时文件句柄：第一次溢出时才创建。单独成类，便于 Cleaner 在日志不可达后清理（不能引用日志本身）。
+     */
+    private static final class SpillFile implements Runnable {
+        private Path path;
+        private FileChannel channel;
+
+        private synchronized FileChannel channel() throws IOException {
+            if (channel == null) {
+                path = Files.createTempFile("sorting-visualizer-ops-", ".bin");
+                path.toFile().deleteOnExit();
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+
+        @Override
+        public synchronized void run() {
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响删除尝试
+            }
+            try {
+                if (path != null) Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // 某些平台在映射未释放前无法删除，交给 deleteOnExit
+            }
+            channel = null;
+            path = null;
+        }
+    }
+}
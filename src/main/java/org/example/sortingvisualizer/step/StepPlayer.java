@@ -1,38 +1,85 @@
 package org.example.sortingvisualizer.step;
 
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 
 public final class StepPlayer {
 
+    /** 默认每隔多少步保存一个关键帧（数组快照）。 */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 4096;
+
+    /** 默认关键帧内存预算：64MB。 */
+    public static final long DEFAULT_CHECKPOINT_BUDGET_BYTES = 64L * 1024 * 1024;
+
     private final int[] workingArray;
-    private final List<SortOperation> operations;
+    private OperationLog log;
 
-    /** 指向“下一步要执行的操作”的位置，范围 [0..operations.size()] */
+    /** 读取 log 的享元视图：next/prev/seek 复用同一个实例，不再为每一步创建操作对象。 */
+    private StepView stepView;
+
+    /** 指向“下一步要执行的操作”的位置，范围 [0..log.size()] */
     private int cursor;
 
-    public StepPlayer(int[] initialArray, List<SortOperation> operations) {
+    /**
+     * 关键帧：checkpoints[k] 是执行完前 k * checkpointInterval 步后的数组。
+     * 只在向前回放经过关键帧位置时顺手保存，因此已保存的关键帧总是 [0..checkpointCount) 的连续前缀。
+     */
+    private int[][] checkpoints;
+    private int checkpointCount;
+    private int checkpointInterval;
+
+    /** 在内存预算内最多能保存多少个关键帧；超出时把间隔翻倍并丢弃一半关键帧。 */
+    private final int maxCheckpoints;
+
+    /** 工作数组的只读视图：渲染端直接读取，不再每步拷贝整个数组。 */
+    private final ArrayView view;
+
+    /** 自上次渲染以来被修改过的下标（由渲染端清空）。 */
+    private final DirtyIndices dirty;
+
+    public StepPlayer(int[] initialArray, OperationLog log) {
+        this(initialArray, log, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_CHECKPOINT_BUDGET_BYTES);
+    }
+
+    public StepPlayer(int[] initialArray, OperationLog log, int checkpointInterval, long checkpointBudgetBytes) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval 必须为正数: " + checkpointInterval);
+        }
         // workingArray：回放/撤销过程中真正被 apply/undo 修改的工作数组
         this.workingArray = (initialArray == null) ? new int[0] : initialArray.clone();
-        // operations：录制得到的操作序列（不可为 null）
-        this.operations = Objects.requireNonNull(operations, "operations");
+        // log：录制得到的操作序列（不可为 null）
+        this.log = Objects.requireNonNull(log, "log");
+        this.stepView = new StepView(new OperationCursor(log));
         // cursor=0 表示“尚未执行任何操作”；cursor=size 表示“已执行完所有操作（完成态）”
         this.cursor = 0;
+
+        // 每个关键帧占用 n 个 int；至少保留 2 个（起点 + 一个中间点），否则关键帧就失去意义
+        long bytesPerCheckpoint = Math.max(1L, workingArray.length * 4L);
+        this.maxCheckpoints = (int) Math.max(2, Math.min(Integer.MAX_VALUE - 8, checkpointBudgetBytes / bytesPerCheckpoint));
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new int[Math.min(16, maxCheckpoints)][];
+        // 第 0 个关键帧就是初始数组
+        this.checkpoints[0] = workingArray.clone();
+        this.checkpointCount = 1;
+
+        this.view = new ArrayView(workingArray);
+        // 初始为“全部变脏”：第一帧需要整体绘制
+        this.dirty = new DirtyIndices(workingArray.length);
     }
 
     public int size() {
         // 总步数（操作条数）
-        return operations.size();
+        return log.size();
     }
 
     public int cursor() {
-        // 当前游标（下一步将执行 operations[cursor]）
+        // 当前游标（下一步将执行第 cursor 步）
         return cursor;
     }
 
     public boolean hasNext() {
         // 只要 cursor < size，就还有下一步
-        return cursor < operations.size();
+        return cursor < log.size();
     }
 
     public boolean hasPrev() {
@@ -40,28 +87,197 @@ public final class StepPlayer {
         return cursor > 0;
     }
 
+    public int checkpointInterval() {
+        // 当前关键帧间隔（超出内存预算后会自动翻倍）
+        return checkpointInterval;
+    }
+
+    /**
+     * 前进一步。
+     * <p>
+     * 返回值是播放器内部复用的视图，只在下一次 next/prev/seek 之前有效；需要保留请自行记录所需字段。
+     */
     public SortOperation next() {
         // 前进一步：把“下一步操作”应用到 workingArray，并把 cursor 向前移动
         if (!hasNext()) {
             return null; // 已到末尾
         }
-        SortOperation op = operations.get(cursor); // 取出本次要执行的操作
-        int[] before = workingArray.clone();       // 拷贝“执行前数组”，用于生成更友好的描述文本
-        op.apply(workingArray);                    // 对工作数组应用操作（可能是 swap/set；compare 不改数组）
-        cursor++;                                  // 游标前进：表示这一步已执行
-        return new DescribedOperation(op, before); // 返回带上下文的操作包装（用于 UI 回显）
+        stepView.capture(cursor, workingArray); // 记下本步涉及位置的“执行前数值”（只读两个 int，不拷贝数组）
+        stepForward();                          // 对工作数组应用操作，cursor 前进（必要时保存关键帧）
+        markDirty(stepView);                    // 登记被修改的下标，供渲染端增量重绘
+        return stepView;                        // 返回带上下文的操作视图（用于 UI 回显）
     }
 
+    /**
+     * 后退一步；返回值与 {@link #next()} 一样是复用的视图。
+     */
     public SortOperation prev() {
         // 后退一步：先把 cursor 回退到“上一步操作”的位置，再对 workingArray 执行 undo
         if (!hasPrev()) {
             return null; // 已在起点
         }
-        cursor--;                            // 回到“上一条操作”的索引
-        SortOperation op = operations.get(cursor);
-        int[] before = workingArray.clone(); // 拷贝“撤销前数组”（用于描述文本）
-        op.undo(workingArray);               // 撤销操作：swap 的 undo 仍是 swap；set 的 undo 写回 oldValue
-        return new DescribedOperation(op, before);
+        cursor--;                                // 回到“上一条操作”的索引
+        stepView.capture(cursor, workingArray);  // 记下“撤销前数值”（用于描述文本）
+        log.undo(cursor, workingArray);          // 撤销操作：swap 的 undo 仍是 swap；set 的 undo 写回 oldValue
+        markDirty(stepView);
+        return stepView;
+    }
+
+    /**
+     * 随机跳转到指定步（游标语义与 {@link #cursor()} 一致）。
+     * <p>
+     * 从“最近的关键帧”和“当前位置”中选代价更小的起点，只重放剩余的差量步数；
+     * 向前重放时会顺手补齐沿途的关键帧，因此反复拖动进度条会越来越快。
+     *
+     * @return 跳转后“最后执行的那一步”（用于高亮/回显）；跳到起点时返回 null
+     */
+    public SortOperation seek(int target) {
+        int size = log.size();
+        if (target < 0) target = 0;
+        if (target > size) target = size;
+
+        // 目标之前最近的、已保存的关键帧
+        int k = Math.min(target / checkpointInterval, checkpointCount - 1);
+        int fromCheckpoint = k * checkpointInterval;
+        // 恢复关键帧需要整体拷贝数组，把这部分代价折算成“步数”参与比较
+        long checkpointCost = (target - fromCheckpoint) + workingArray.length / 8L;
+        long directCost = Math.abs((long) target - cursor);
+
+        if (checkpointCost < directCost) {
+            System.arraycopy(checkpoints[k], 0, workingArray, 0, workingArray.length);
+            cursor = fromCheckpoint;
+            dirty.markAll();
+        }
+        // 差量很小（例如逐帧推进几十步）时逐步执行并登记下标，渲染端只需增量重绘；
+        // 差量较大时登记本身已不划算，直接整段批量重放并标记全部变脏
+        boolean trackDirty = !dirty.isAll() && Math.abs((long) target - cursor) <= dirty.capacity() / 2;
+        // 按段批量重放：每段止于下一个尚未保存的关键帧位置，到达后顺手保存
+        while (cursor < target) {
+            long boundary = (long) checkpointCount * checkpointInterval;
+            int end = (boundary > cursor && boundary <= target) ? (int) boundary : target;
+            if (trackDirty) {
+                applyTracked(cursor, end);
+            } else {
+                log.applyRange(cursor, end, workingArray);
+                dirty.markAll();
+            }
+            cursor = end;
+            if (cursor == boundary) {
+                captureCheckpoint();
+            }
+        }
+        if (cursor > target) {
+            if (trackDirty) {
+                undoTracked(target, cursor);
+            } else {
+                log.undoRange(target, cursor, workingArray);
+                dirty.markAll();
+            }
+            cursor = target;
+        }
+        return lastOperation();
+    }
+
+    /**
+     * 工作数组的只读视图（随回放变化，不拷贝）。
+     */
+    public ArrayView view() {
+        return view;
+    }
+
+    /**
+     * 自上次清空以来被修改过的下标；渲染端绘制后调用 {@link DirtyIndices#clear()}。
+     */
+    public DirtyIndices dirty() {
+        return dirty;
+    }
+
+    /**
+     * 换成与当前日志逐步等价的另一份日志（例如录制结束后压缩得到的日志）。
+     * 游标、工作数组与关键帧都保持不变。
+     */
+    public void replaceLog(OperationLog replacement) {
+        Objects.requireNonNull(replacement, "replacement");
+        if (replacement.size() != log.size()) {
+            throw new IllegalArgumentException("替换的日志步数不一致: " + replacement.size() + " != " + log.size());
+        }
+        this.log = replacement;
+        this.stepView = new StepView(new OperationCursor(replacement));
+    }
+
+    /**
+     * 最后执行的那一步（cursor-1），附带其执行前的数值用于回显。
+     */
+    private SortOperation lastOperation() {
+        if (cursor == 0) {
+            return null;
+        }
+        int step = cursor - 1;
+        stepView.capture(step, workingArray);
+        if (stepView.type == SortOperationType.SWAP) {
+            // 当前数组是交换之后的状态：执行前的两个值正好对调
+            int t = stepView.value1;
+            stepView.value1 = stepView.value2;
+            stepView.value2 = t;
+        }
+        return stepView;
+    }
+
+    private void markDirty(SortOperation op) {
+        // 比较不修改数组，不需要重绘柱高（高亮由渲染端单独处理）
+        if (op.type() != SortOperationType.COMPARE) {
+            dirty.mark(op.index1());
+            dirty.mark(op.index2());
+        }
+    }
+
+    private void applyTracked(int from, int to) {
+        for (int step = from; step < to; step++) {
+            if (log.type(step) != SortOperationType.COMPARE) {
+                log.apply(step, workingArray);
+                dirty.mark(log.index1(step));
+                dirty.mark(log.index2(step));
+            }
+        }
+    }
+
+    private void undoTracked(int from, int to) {
+        for (int step = to - 1; step >= from; step--) {
+            if (log.type(step) != SortOperationType.COMPARE) {
+                log.undo(step, workingArray);
+                dirty.mark(log.index1(step));
+                dirty.mark(log.index2(step));
+            }
+        }
+    }
+
+    private void stepForward() {
+        log.apply(cursor, workingArray);
+        cursor++;
+        // 恰好走到下一个尚未保存的关键帧位置时保存一份快照
+        if (cursor % checkpointInterval == 0 && cursor / checkpointInterval == checkpointCount) {
+            captureCheckpoint();
+        }
+    }
+
+    private void captureCheckpoint() {
+        if (checkpointCount == maxCheckpoints) {
+            // 超出预算：间隔翻倍，只保留偶数号关键帧（仍然是连续前缀）
+            int kept = 0;
+            for (int i = 0; i < checkpointCount; i += 2) {
+                checkpoints[kept++] = checkpoints[i];
+            }
+            Arrays.fill(checkpoints, kept, checkpointCount, null);
+            checkpointCount = kept;
+            checkpointInterval *= 2;
+            if (cursor % checkpointInterval != 0 || cursor / checkpointInterval != checkpointCount) {
+                return; // 当前位置在新间隔下不是关键帧
+            }
+        }
+        if (checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, Math.min(maxCheckpoints, checkpoints.length * 2));
+        }
+        checkpoints[checkpointCount++] = workingArray.clone();
     }
 
     public int[] currentArray() {
@@ -69,47 +285,79 @@ public final class StepPlayer {
         return workingArray.clone();
     }
 
-    private static final class DescribedOperation implements SortOperation {
-        private final SortOperation delegate;
-        private final int[] arrayBeforeApply;
+    /**
+     * next/prev/seek 返回的“当前步”视图：整个播放器只有这一个实例，每一步原地改写。
+     * <p>
+     * 只记录本步涉及的两个下标在执行前的数值，描述文本在 {@link #description(int[])} 被调用时才生成，
+     * 因此逐步回放的热路径既不拷贝数组也不创建对象。
+     */
+    private static final class StepView implements SortOperation {
+        private final OperationCursor op;
+        private SortOperationType type;
+        private int index1;
+        private int index2;
+        private int value1;
+        private int value2;
+        private boolean valuesKnown;
+
+        private StepView(OperationCursor op) {
+            this.op = op;
+        }
 
-        private DescribedOperation(SortOperation delegate, int[] arrayBeforeApply) {
-            // delegate：真实操作（compare/swap/set）
-            this.delegate = delegate;
-            // arrayBeforeApply：执行本步之前的数组快照，用于生成包含具体数值的描述
-            this.arrayBeforeApply = arrayBeforeApply;
+        /**
+         * 指向第 step 步，并记下“本次移动之前”两个下标上的数值（与原先的执行前快照语义一致）。
+         */
+        private StepView capture(int step, int[] arrayBefore) {
+            op.moveTo(step);
+            type = op.type();
+            index1 = op.index1();
+            index2 = op.index2();
+            valuesKnown = index1 >= 0 && index1 < arrayBefore.length && index2 >= 0 && index2 < arrayBefore.length;
+            if (valuesKnown) {
+                value1 = arrayBefore[index1];
+                value2 = arrayBefore[index2];
+            }
+            return this;
         }
 
         @Override
         public SortOperationType type() {
-            return delegate.type();
+            return type;
         }
 
         @Override
         public int index1() {
-            return delegate.index1();
+            return index1;
         }
 
         @Override
         public int index2() {
-            return delegate.index2();
+            return index2;
         }
 
         @Override
         public void apply(int[] array) {
-            delegate.apply(array);
+            op.apply(array);
         }
 
         @Override
         public void undo(int[] array) {
-            delegate.undo(array);
+            op.undo(array);
         }
 
         @Override
         public String description(int[] ignored) {
-            // 这里忽略调用者传入的数组，统一使用“执行前快照”来生成更稳定的描述
+            // 这里忽略调用者传入的数组，统一使用记录下来的“执行前数值”生成描述
             // 例如：交换时可以显示 a[i]=? 与 a[j]=?（执行前的值）
-            return delegate.description(arrayBeforeApply);
+            return switch (type) {
+                case COMPARE -> valuesKnown
+                        ? CompareOperation.describe(index1, value1, index2, value2)
+                        : CompareOperation.describe(index1, index2);
+                case SWAP -> valuesKnown
+                        ? SwapOperation.describe(index1, value1, index2, value2)
+                        : SwapOperation.describe(index1, index2);
+                case SET -> op.description(null);
+            };
         }
     }
 }
@@ -52,15 +52,25 @@ public final class SwapOperation implements SortOperation {
         // description 用于 UI 文本回显
         // 注意：这里应尽量用“执行前快照”的值，避免执行后数值已变化导致回显难理解
         if (arrayBeforeApply == null) {
-            return "交换: [" + index1 + "] <-> [" + index2 + "]";
+            return describe(index1, index2);
         }
         int v1 = (index1 >= 0 && index1 < arrayBeforeApply.length) ? arrayBeforeApply[index1] : Integer.MIN_VALUE;
         int v2 = (index2 >= 0 && index2 < arrayBeforeApply.length) ? arrayBeforeApply[index2] : Integer.MIN_VALUE;
         if (v1 == Integer.MIN_VALUE || v2 == Integer.MIN_VALUE) {
             // 越界时回退到仅显示下标
-            return "交换: [" + index1 + "] <-> [" + index2 + "]";
+            return describe(index1, index2);
         }
         // 正常情况：显示下标 + 执行前的值
-        return "交换: a[" + index1 + "]=" + v1 + " 与 a[" + index2 + "]=" + v2;
+        return describe(index1, v1, index2, v2);
+    }
+
+    // 仅含下标的描述（StepPlayer 的惰性回显也复用这里的文案）
+    static String describe(int index1, int index2) {
+        return "交换: [" + index1 + "] <-> [" + index2 + "]";
+    }
+
+    // 下标 + 执行前数值的描述
+    static String describe(int index1, int value1, int index2, int value2) {
+        return "交换: a[" + index1 + "]=" + value1 + " 与 a[" + index2 + "]=" + value2;
     }
 }
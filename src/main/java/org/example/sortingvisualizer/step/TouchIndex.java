@@ -0,0 +1,237 @@
+package org.example.sortingvisualizer.step;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 访问倒排索引：数组下标 → 读写过它的步号（升序）。
+ * <p>
+ * 用 CSR（压缩行）结构存储：{@code offsets[i]..offsets[i+1]} 是下标 i 在 {@code steps} 中的区间，
+ * 每次访问只占一个 int。配合 {@link StepPlayer#seek(int)} 可以在几百万步的录制里直接跳到
+ * “下一次访问某个下标”的位置，不必逐步 next() 查找。
+ * <p>
+ * 本类的步号均从 0 开始；第 s 步执行后回放游标为 s+1。
+ * 索引建立后不再变化，可以跨线程共享。
+ */
+public final class TouchIndex {
+
+    /** offsets[i]..offsets[i+1]：下标 i 的访问步号在 steps 中的区间。 */
+    private final int[] offsets;
+    private final int[] steps;
+    /** settled[i]：下标 i 最后一次变成最终值的步号；初始即为最终值时为 -1。 */
+    private final int[] settled;
+
+    private final OperationLog log;
+    private final int[] initialArray;
+
+    private TouchIndex(OperationLog log, int[] initialArray, int[] offsets, int[] steps, int[] settled) {
+        this.log = log;
+        this.initialArray = initialArray;
+        this.offsets = offsets;
+        this.steps = steps;
+        this.settled = settled;
+    }
+
+    /**
+     * 扫描整份日志建立索引（两遍顺序读取，O(步数)）。日志必须已经录制完成。
+     */
+    public static TouchIndex build(OperationLog log, int[] initialArray) {
+        Objects.requireNonNull(log, "log");
+        int[] initial = (initialArray == null) ? new int[0] : initialArray.clone();
+        int n = initial.length;
+        int size = log.size();
+
+        // 第一遍：统计每个下标的访问次数，同时整段重放得到最终数组
+        int[] offsets = new int[n + 1];
+        long total = 0;
+        for (int s = 0; s < size; s++) {
+            int i1 = log.index1(s);
+            int i2 = log.index2(s);
+            if (i1 >= 0 && i1 < n) {
+                offsets[i1 + 1]++;
+                total++;
+            }
+            if (i2 != i1 && i2 >= 0 && i2 < n) {
+                offsets[i2 + 1]++;
+                total++;
+            }
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("录制过长，无法建立访问索引: " + total + " 次访问");
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] finalArray = initial.clone();
+        log.applyRange(0, size, finalArray);
+
+        // 第二遍：按步号顺序填充（天然升序），并逐步重放，记录每个下标最后一次“变成最终值”的步号
+        int[] steps = new int[(int) total];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] working = initial.clone();
+        // Integer.MIN_VALUE 表示“当前不是最终值”
+        int[] settled = new int[n];
+        for (int i = 0; i < n; i++) {
+            settled[i] = (initial[i] == finalArray[i]) ? -1 : Integer.MIN_VALUE;
+        }
+        for (int s = 0; s < size; s++) {
+            int i1 = log.index1(s);
+            int i2 = log.index2(s);
+            if (i1 >= 0 && i1 < n) {
+                steps[fill[i1]++] = s;
+            }
+            if (i2 != i1 && i2 >= 0 && i2 < n) {
+                steps[fill[i2]++] = s;
+            }
+            if (log.type(s) != SortOperationType.COMPARE) {
+                log.apply(s, working);
+                settle(working, finalArray, settled, i1, s);
+                settle(working, finalArray, settled, i2, s);
+            }
+        }
+        return new TouchIndex(log, initial, offsets, steps, settled);
+    }
+
+    private static void settle(int[] working, int[] finalArray, int[] settled, int index, int step) {
+        if (index < 0 || index >= working.length) return;
+        if (working[index] != finalArray[index]) {
+            // 又被改成了别的值：之前的“归位”作废
+            settled[index] = Integer.MIN_VALUE;
+        } else if (settled[index] == Integer.MIN_VALUE) {
+            settled[index] = step;
+        }
+    }
+
+    /** 数组长度。 */
+    public int length() {
+        return settled.length;
+    }
+
+    /** 访问过下标 index 的步数。 */
+    public int touchCount(int index) {
+        checkIndex(index);
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * 第 afterStep 步之后第一次访问下标 index 的步号；没有则返回 -1。
+     * 传入 -1 表示从头查找。
+     */
+    public int nextTouch(int index, int afterStep) {
+        checkIndex(index);
+        int pos = upperBound(offsets[index], offsets[index + 1], afterStep);
+        return (pos < offsets[index + 1]) ? steps[pos] : -1;
+    }
+
+    /**
+     * 第 beforeStep 步之前最后一次访问下标 index 的步号；没有则返回 -1。
+     */
+    public int prevTouch(int index, int beforeStep) {
+        checkIndex(index);
+        int pos = lowerBound(offsets[index], offsets[index + 1], beforeStep);
+        return (pos > offsets[index]) ? steps[pos - 1] : -1;
+    }
+
+    /**
+     * 最终落在下标 index 的元素“归位”的步号：执行完这一步后该位置就是最终值且之后不再改变。
+     * 初始就在最终位置（或从未被修改）时返回 -1。
+     */
+    public int settledStep(int index) {
+        checkIndex(index);
+        return settled[index];
+    }
+
+    /**
+     * 区间 [from, to) 第一次变为非递减的回放游标（即执行完前 c 步后有序，返回 c）；
+     * 初始即有序时返回 0，直到结束都无序时返回 -1。
+     * <p>
+     * 该查询需要从头重放修改操作（比较直接跳过），只维护区间内“逆序相邻对”的个数，
+     * 每步 O(1)，几百万步也只需一次顺序扫描。
+     */
+    public int firstSortedCursor(int from, int to) {
+        int n = initialArray.length;
+        if (from < 0 || to > n || from > to) {
+            throw new IllegalArgumentException("区间越界: [" + from + ", " + to + ")，数组长度 " + n);
+        }
+        int[] working = initialArray.clone();
+        int descents = 0;
+        for (int k = from; k + 1 < to; k++) {
+            if (working[k] > working[k + 1]) descents++;
+        }
+        if (descents == 0) return 0;
+
+        int size = log.size();
+        for (int s = 0; s < size; s++) {
+            if (log.type(s) == SortOperationType.COMPARE) continue;
+            int i1 = log.index1(s);
+            int i2 = log.index2(s);
+            boolean affects = touchesPairs(i1, from, to) || touchesPairs(i2, from, to);
+            if (!affects) {
+                // 区间外的修改也要执行：之后可能被交换进区间
+                log.apply(s, working);
+                continue;
+            }
+            descents -= pairDescents(working, i1, i2, from, to);
+            log.apply(s, working);
+            descents += pairDescents(working, i1, i2, from, to);
+            if (descents == 0) return s + 1;
+        }
+        return -1;
+    }
+
+    /** 下标 index 是否参与区间 [from, to) 内某个相邻对。 */
+    private static boolean touchesPairs(int index, int from, int to) {
+        return index >= from && index < to && to - from >= 2;
+    }
+
+    /**
+     * 受 i1/i2 影响的相邻对（左端为 i1-1、i1、i2-1、i2）中逆序的个数，每个对只计一次。
+     */
+    private static int pairDescents(int[] a, int i1, int i2, int from, int to) {
+        int count = 0;
+        int[] lefts = {i1 - 1, i1, i2 - 1, i2};
+        for (int x = 0; x < lefts.length; x++) {
+            int k = lefts[x];
+            if (k < from || k + 1 >= to) continue;
+            boolean seen = false;
+            for (int y = 0; y < x; y++) {
+                if (lefts[y] == k) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen && a[k] > a[k + 1]) count++;
+        }
+        return count;
+    }
+
+    private void checkIndex(int index) {
+        Objects.checkIndex(index, settled.length);
+    }
+
+    /** [lo, hi) 中第一个 steps[pos] > step 的位置。 */
+    private int upperBound(int lo, int hi, int step) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (steps[mid] <= step) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** [lo, hi) 中第一个 steps[pos] >= step 的位置。 */
+    private int lowerBound(int lo, int hi, int step) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (steps[mid] < step) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.sortingvisualizer.view;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * 聚合渲染：元素比像素列多时，每个像素列画该列元素的 最小值/最大值/平均值，而不是逐个画柱子。
+ * <p>
+ * 每列自下而上：0..最小值 为实心柱（按平均值着色），最小值..最大值 为浅色包络，平均值处一条刻度线。
+ * 列统计由 {@link ColumnAggregator} 增量维护；{@link #drawBar} 只更新统计并登记脏列，
+ * {@link #flush()} 时每个脏列只重画一次，因此每帧的开销与变化的元素数成正比，而不是与 n 成正比。
+ * <p>
+ * 元素不多于像素列（柱宽至少 1px）时，直接按普通画布渲染逐柱绘制。
+ */
+final class AggregateBarRenderer implements BarRenderer {
+
+    private static final Color COLOR_ENVELOPE = Color.web("#d6e6ff");
+    private static final Color COLOR_MEAN = Color.web("#2f6fd6");
+
+    private final Canvas canvas = new Canvas();
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    /** 柱子放得下时的逐柱渲染（共用同一张画布）。 */
+    private final CanvasBarRenderer bars = new CanvasBarRenderer(canvas);
+
+    /** 为 null 表示当前按逐柱渲染。 */
+    private ColumnAggregator aggregator;
+    private BarLayout layout;
+    private Color overrideFill;
+    /** 每列的高亮色；为 null 时按平均值着色。 */
+    private Color[] columnFill;
+    // 待重画的列：标记 + 列表，同一列在一批更新中只登记一次
+    private boolean[] columnDirty;
+    private int[] dirtyColumns;
+    private int dirtyCount;
+
+    @Override
+    public Node node() {
+        return canvas;
+    }
+
+    @Override
+    public void drawAll(int[] array, BarLayout layout, int idx1, int idx2, Color highlight, Color overrideFill, boolean showLabels) {
+        if (layout.barWidth() >= 1) {
+            aggregator = null;
+            bars.drawAll(array, layout, idx1, idx2, highlight, overrideFill, showLabels);
+            return;
+        }
+        if (canvas.getWidth() != layout.width()) canvas.setWidth(layout.width());
+        if (canvas.getHeight() != layout.height()) canvas.setHeight(layout.height());
+
+        int columns = Math.max(1, (int) layout.width());
+        this.aggregator = new ColumnAggregator(array, columns);
+        this.layout = layout;
+        this.overrideFill = overrideFill;
+        this.columnFill = new Color[columns];
+        this.columnDirty = new boolean[columns];
+        this.dirtyColumns = new int[columns];
+        this.dirtyCount = 0;
+        if (highlight != null) {
+            if (idx1 >= 0 && idx1 < array.length) columnFill[aggregator.columnOf(idx1)] = highlight;
+            if (idx2 >= 0 && idx2 < array.length) columnFill[aggregator.columnOf(idx2)] = highlight;
+        }
+
+        gc.clearRect(0, 0, layout.width(), layout.height());
+        for (int c = 0; c < columns; c++) {
+            paintColumn(c);
+        }
+    }
+
+    @Override
+    public void drawBar(int[] array, BarLayout layout, int i, Color fill) {
+        if (aggregator == null) {
+            bars.drawBar(array, layout, i, fill);
+            return;
+        }
+        if (i < 0 || i >= aggregator.length()) return;
+        int c = aggregator.set(i, array[i]);
+        // fill 为 null 表示按数值着色：该列取消高亮
+        columnFill[c] = fill;
+        if (!columnDirty[c]) {
+            columnDirty[c] = true;
+            dirtyColumns[dirtyCount++] = c;
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (aggregator == null) return;
+        for (int k = 0; k < dirtyCount; k++) {
+            int c = dirtyColumns[k];
+            columnDirty[c] = false;
+            paintColumn(c);
+        }
+        dirtyCount = 0;
+    }
+
+    @Override
+    public void clear() {
+        aggregator = null;
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    private void paintColumn(int c) {
+        gc.clearRect(c, 0, 1, layout.height());
+        if (aggregator.count(c) == 0) return;
+
+        int min = aggregator.min(c);
+        int max = aggregator.max(c);
+        int mean = (int) Math.round(aggregator.mean(c));
+        double baseY = layout.baseY();
+        double minTop = baseY - Math.max(0, layout.barHeight(min));
+        double maxTop = baseY - Math.max(0, layout.barHeight(max));
+        double meanTop = baseY - Math.max(0, layout.barHeight(mean));
+
+        Color body = columnFill[c];
+        if (body == null) {
+            body = (overrideFill != null) ? overrideFill : BarPalette.color(mean, layout.maxVal());
+        }
+        // 包络：最小值..最大值
+        if (minTop > maxTop) {
+            gc.setFill(COLOR_ENVELOPE);
+            gc.fillRect(c, maxTop, 1, minTop - maxTop);
+        }
+        // 实心柱：0..最小值（列内所有元素都至少这么高）
+        if (baseY > minTop) {
+            gc.setFill(body);
+            gc.fillRect(c, minTop, 1, baseY - minTop);
+        }
+        // 平均值刻度：高亮/完成态时用同一种颜色，便于看出整列状态
+        gc.setFill((columnFill[c] != null || overrideFill != null) ? body : COLOR_MEAN);
+        gc.fillRect(c, Math.min(meanTop, baseY - 1), 1, 1);
+    }
+}
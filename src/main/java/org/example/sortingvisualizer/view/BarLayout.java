@@ -0,0 +1,117 @@
+package org.example.sortingvisualizer.view;
+
+/**
+ * 柱状图的几何参数：一次整体绘制时算好，增量重绘沿用同一份参数。
+ * <p>
+ * 只在 view 包内使用，渲染器据此把“下标 + 数值”换算成坐标。
+ */
+final class BarLayout {
+
+    private static final double BAR_GAP = 2;
+    private static final double MAX_BAR_WIDTH = 42;
+
+    // 内边距
+    private static final double PADDING_TOP = 10;
+    private static final double PADDING_BOTTOM = 10;
+
+    private final int length;
+    private final double width;
+    private final double height;
+    private final int maxVal;
+    private final double unitPx;
+    private final double barWidth;
+    private final double gap;
+    private final double startX;
+    private final double baseY;
+
+    private BarLayout(int length, double width, double height, int maxVal,
+                      double unitPx, double barWidth, double gap, double startX, double baseY) {
+        this.length = length;
+        this.width = width;
+        this.height = height;
+        this.maxVal = maxVal;
+        this.unitPx = unitPx;
+        this.barWidth = barWidth;
+        this.gap = gap;
+        this.startX = startX;
+        this.baseY = baseY;
+    }
+
+    /**
+     * 按面板尺寸与数组内容计算布局；尺寸太小或数组为空时返回 null（什么都不画）。
+     */
+    static BarLayout compute(double width, double height, int[] array) {
+        if (array == null || array.length == 0) return null;
+        if (width <= 0 || height <= 0) return null;
+
+        // 绘制区域去掉上下内边距
+        double innerHeight = height - PADDING_TOP - PADDING_BOTTOM;
+        if (innerHeight <= 1) return null;
+
+        // 找到最大值用于归一化高度，确保不同数据量下都能充满画布
+        int maxVal = 0;
+        for (int val : array) maxVal = Math.max(maxVal, val);
+        if (maxVal <= 0) maxVal = 100; // 默认防守值
+
+        // 使用浮点数计算单位高度，避免整数除法导致的量化误差
+        double unitPx = innerHeight / (double) maxVal;
+
+        // 柱子多到放不下间距时取消间距，否则数千根柱子会被间距挤出画布
+        int n = array.length;
+        double gap = ((width - (n - 1) * BAR_GAP) / n >= 2) ? BAR_GAP : 0;
+
+        // 计算每个柱子的宽度（考虑间距，并设置最大宽度，避免数据量很小时柱子过粗）
+        double totalGap = (n - 1) * gap;
+        double rawBarWidth = (width - totalGap) / n;
+        double barWidth = Math.min(rawBarWidth, MAX_BAR_WIDTH);
+
+        // 如果柱子总宽度小于画布，则居中显示
+        double totalBarsWidth = n * barWidth + totalGap;
+        double startX = Math.max(0, (width - totalBarsWidth) / 2.0);
+
+        // 基线（面板底部往上 PADDING_BOTTOM 位置）
+        double baseY = height - PADDING_BOTTOM;
+        return new BarLayout(n, width, height, maxVal, unitPx, barWidth, gap, startX, baseY);
+    }
+
+    int length() {
+        return length;
+    }
+
+    double width() {
+        return width;
+    }
+
+    double height() {
+        return height;
+    }
+
+    /** 归一化用的最大值：出现更大的新值时需要整体重绘。 */
+    int maxVal() {
+        return maxVal;
+    }
+
+    double barWidth() {
+        return barWidth;
+    }
+
+    double gap() {
+        return gap;
+    }
+
+    double baseY() {
+        return baseY;
+    }
+
+    /** 第 i 根柱子的左边缘。 */
+    double x(int i) {
+        return startX + i * (barWidth + gap);
+    }
+
+    /** 数值 v 对应的柱高：只要有值至少显示 1px。 */
+    double barHeight(int v) {
+        double barHeight = v * unitPx;
+        if (barHeight < 1 && v > 0) barHeight = 1;
+        return barHeight;
+    }
+}
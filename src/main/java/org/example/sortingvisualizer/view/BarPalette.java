@@ -0,0 +1,54 @@
+package org.example.sortingvisualizer.view;
+
+import javafx.scene.paint.Color;
+
+/**
+ * 柱子配色查找表：按“数值/最大值”量化成 {@value #LEVELS} 档，启动时一次算好。
+ * <p>
+ * 渲染时不再逐柱调用 {@link Color#hsb}，每根柱子只是一次数组下标访问；
+ * 同时提供预乘好的 ARGB 整数，供直接写像素的渲染器使用。
+ */
+final class BarPalette {
+
+    static final int LEVELS = 256;
+
+    private static final Color[] COLORS = new Color[LEVELS];
+    private static final int[] ARGB = new int[LEVELS];
+
+    static {
+        for (int level = 0; level < LEVELS; level++) {
+            double t = level / (double) (LEVELS - 1);
+            // Apple-ish：整体更明亮，避免“发黑”；同时保留轻微的深浅差异
+            double hue = 211; // 接近系统蓝
+            double saturation = 0.48;
+            double brightness = 0.78 + 0.16 * t; // 0.78..0.94
+            COLORS[level] = Color.hsb(hue, saturation, brightness);
+            ARGB[level] = toArgb(COLORS[level]);
+        }
+    }
+
+    private BarPalette() {
+    }
+
+    static Color color(int value, int maxValue) {
+        return COLORS[level(value, maxValue)];
+    }
+
+    static int argb(int value, int maxValue) {
+        return ARGB[level(value, maxValue)];
+    }
+
+    static int toArgb(Color color) {
+        int a = (int) Math.round(color.getOpacity() * 255);
+        int r = (int) Math.round(color.getRed() * 255);
+        int g = (int) Math.round(color.getGreen() * 255);
+        int b = (int) Math.round(color.getBlue() * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static int level(int value, int maxValue) {
+        if (maxValue <= 0 || value <= 0) return 0;
+        if (value >= maxValue) return LEVELS - 1;
+        return (int) ((long) value * (LEVELS - 1) / maxValue);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.sortingvisualizer.view;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * 柱状图渲染策略：{@link VisualizerPane} 负责数组、布局与高亮状态，渲染器只负责“画出来”。
+ * <p>
+ * 渲染器产出一个节点挂在面板下；整体绘制之后，面板通过 {@link #drawBar} 只重画变化的柱子。
+ */
+interface BarRenderer {
+
+    /** 渲染结果所在的节点（由面板挂到自己的子节点中）。 */
+    Node node();
+
+    /**
+     * 整体绘制。
+     *
+     * @param array 当前数组
+     * @param layout 本次布局
+     * @param idx1 高亮下标1（没有时为 -1）
+     * @param idx2 高亮下标2（没有时为 -1）
+     * @param highlight 高亮色（为 null 时不高亮）
+     * @param overrideFill 统一填充色（例如完成态）；为 null 时按数值着色
+     * @param showLabels 是否显示数值标签
+     */
+    void drawAll(int[] array, BarLayout layout, int idx1, int idx2, Color highlight, Color overrideFill, boolean showLabels);
+
+    /**
+     * 重画第 i 根柱子（数值已写入 array，几何沿用 layout）。
+     *
+     * @param fill 高亮色；为 null 时按数值着色（即没有高亮），由渲染器自己查表
+     */
+    void drawBar(int[] array, BarLayout layout, int i, Color fill);
+
+    /**
+     * 在该布局下能否用 {@link #drawBar} 单独重画一根柱子；返回 false 时面板改为整帧重画。
+     */
+    default boolean canDrawBar(BarLayout layout) {
+        return true;
+    }
+
+    /**
+     * 一批 {@link #drawBar} 之后调用：需要合并重画的渲染器在这里真正落笔。
+     */
+    default void flush() {
+    }
+
+    /** 清空画面（数组为空或面板尺寸不足时）。 */
+    void clear();
+
+    /**
+     * 渲染器被换下时调用：释放后台线程等资源。
+     */
+    default void dispose() {
+    }
+}
@@ -3,6 +3,7 @@ package org.example.sortingvisualizer.view;
 import java.util.List;
 
 import org.example.sortingvisualizer.model.PerformanceMetrics;
+import org.example.sortingvisualizer.model.SpeedupMetrics;
 
 import javafx.beans.value.ChangeListener;
 import javafx.geometry.Insets;
@@ -28,6 +29,13 @@ import javafx.util.Duration;
 public final class BenchmarkViewBuilder {
 
     public TabPane buildResults(List<PerformanceMetrics> metrics, int size, String type) {
+        return buildResults(metrics, null, size, type);
+    }
+
+    /**
+     * 同 {@link #buildResults(List, int, String)}，speedups 非空时额外加一页“并行加速比”。
+     */
+    public TabPane buildResults(List<PerformanceMetrics> metrics, List<SpeedupMetrics> speedups, int size, String type) {
         TabPane tabPane = new TabPane();
 
         String typeText = (type == null || type.isBlank()) ? "数据" : type;
@@ -46,6 +54,14 @@ public final class BenchmarkViewBuilder {
         tableTab.setClosable(false);
 
         tabPane.getTabs().addAll(summaryTab, timeTab, memoryTab, tableTab);
+
+        if (speedups != null && !speedups.isEmpty()) {
+            // 加速比在更大的数据上测量（规模太小时并行算法直接顺序排序），单独标注数据量
+            int speedupSize = speedups.get(0).dataSize();
+            Tab speedupTab = new Tab("[" + typeText + ", n=" + speedupSize + "] 并行加速比", createSpeedupChart(speedups));
+            speedupTab.setClosable(false);
+            tabPane.getTabs().add(speedupTab);
+        }
         return tabPane;
     }
 
@@ -142,6 +158,27 @@ public final class BenchmarkViewBuilder {
         return barChart;
     }
 
+    private BarChart<String, Number> createSpeedupChart(List<SpeedupMetrics> speedups) {
+        CategoryAxis xAxis = new CategoryAxis();
+        xAxis.setLabel("线程数");
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("加速比 (相对归并排序)");
+
+        BarChart<String, Number> barChart = new BarChart<>(xAxis, yAxis);
+        barChart.setTitle("并行归并排序加速比 (n=" + speedups.get(0).dataSize() + ")");
+        barChart.setLegendVisible(false);
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        for (SpeedupMetrics m : speedups) {
+            XYChart.Data<String, Number> data = new XYChart.Data<>(m.parallelism() + " 线程", m.getSpeedup());
+            attachTooltip(data, m.parallelism() + " 线程\n"
+                    + String.format(java.util.Locale.ROOT, "%.2f ms, %.2fx", m.getTimeElapsedMillis(), m.getSpeedup()));
+            series.getData().add(data);
+        }
+        barChart.getData().add(series);
+        return barChart;
+    }
+
     private TableView<PerformanceMetrics> createDetailTable(List<PerformanceMetrics> metrics) {
         TableView<PerformanceMetrics> table = new TableView<>();
 
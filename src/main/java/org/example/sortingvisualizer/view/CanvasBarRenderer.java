@@ -0,0 +1,127 @@
+package org.example.sortingvisualizer.view;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+/**
+ * 画布渲染：所有柱子画在同一个 {@link Canvas} 上，场景图里始终只有一个节点。
+ * <p>
+ * 柱子颜色来自 {@link BarPalette} 查找表，连续相同颜色时不重复设置画笔；
+ * 柱子窄到看不出圆角/描边时退化为 fillRect。单根柱子重画时先擦掉它所在的整列，
+ * 列与列按整数像素首尾相接，擦除不会碰到相邻柱子。
+ * 柱宽不足 1 像素时多根柱子挤在同一像素列里，单独擦除/重画会留下残影或抹掉邻居，此时不支持单柱重画。
+ */
+final class CanvasBarRenderer implements BarRenderer {
+
+    private static final Color COLOR_STROKE = Color.web("#e6e6e6");
+    private static final Color COLOR_LABEL = Color.web("#333333");
+    private static final Font LABEL_FONT = Font.font(11);
+    /** 柱宽不足该值时不画圆角与描边（看不出来，且 fillRect 快得多）。 */
+    private static final double DETAIL_MIN_WIDTH = 4;
+    /** 柱宽不足该值时不画数值标签（与节点渲染一致）。 */
+    private static final double LABEL_MIN_WIDTH = 16;
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+
+    // 复用的画笔状态：避免每根柱子都 setFill
+    private Color currentFill;
+    private boolean showLabels;
+
+    CanvasBarRenderer() {
+        this(new Canvas());
+    }
+
+    /**
+     * 画到给定画布上（例如与聚合渲染共用一张画布）。
+     */
+    CanvasBarRenderer(Canvas canvas) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+    }
+
+    @Override
+    public Node node() {
+        return canvas;
+    }
+
+    @Override
+    public void drawAll(int[] array, BarLayout layout, int idx1, int idx2, Color highlight, Color overrideFill, boolean showLabels) {
+        this.showLabels = showLabels;
+        if (canvas.getWidth() != layout.width()) canvas.setWidth(layout.width());
+        if (canvas.getHeight() != layout.height()) canvas.setHeight(layout.height());
+        gc.clearRect(0, 0, layout.width(), layout.height());
+        gc.setStroke(COLOR_STROKE);
+        gc.setLineWidth(0.5);
+        gc.setFont(LABEL_FONT);
+        currentFill = null;
+
+        for (int i = 0; i < array.length; i++) {
+            Color fill;
+            if ((i == idx1 || i == idx2) && highlight != null) {
+                fill = highlight;
+            } else if (overrideFill != null) {
+                fill = overrideFill;
+            } else {
+                fill = BarPalette.color(array[i], layout.maxVal());
+            }
+            paintBar(array[i], layout, i, fill);
+        }
+    }
+
+    @Override
+    public boolean canDrawBar(BarLayout layout) {
+        return layout.barWidth() >= 1;
+    }
+
+    @Override
+    public void drawBar(int[] array, BarLayout layout, int i, Color fill) {
+        if (i < 0 || i >= layout.length()) return;
+        // 擦除整列（含两侧各一半间距），再画新柱子
+        double left = columnLeft(layout, i);
+        gc.clearRect(left, 0, columnLeft(layout, i + 1) - left, layout.height());
+        paintBar(array[i], layout, i, (fill != null) ? fill : BarPalette.color(array[i], layout.maxVal()));
+    }
+
+    @Override
+    public void clear() {
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    private void paintBar(int v, BarLayout layout, int i, Color fill) {
+        double barHeight = layout.barHeight(v);
+        if (barHeight <= 0) return;
+        double y = layout.baseY() - barHeight;
+        // 柱子左右边缘对齐到整数像素：抗锯齿不会把颜色渗到相邻列，按列擦除时不留残影
+        double left = Math.floor(layout.x(i));
+        double width = Math.max(1, Math.floor(layout.x(i) + layout.barWidth()) - left);
+        setFill(fill);
+
+        if (width >= DETAIL_MIN_WIDTH) {
+            double arc = Math.min(10, width);
+            gc.fillRoundRect(left, y, width, barHeight, arc, arc);
+            gc.strokeRoundRect(left, y, width, barHeight, arc, arc);
+            if (showLabels && width >= LABEL_MIN_WIDTH) {
+                setFill(COLOR_LABEL);
+                gc.fillText(String.valueOf(v), left + 2, Math.max(y - 2, 8), width - 2);
+            }
+        } else {
+            gc.fillRect(left, y, width, barHeight);
+        }
+    }
+
+    private void setFill(Color fill) {
+        if (fill != currentFill) {
+            gc.setFill(fill);
+            currentFill = fill;
+        }
+    }
+
+    private static double columnLeft(BarLayout layout, int i) {
+        // 第 i 列从上一根柱子右侧间距的中点开始；相邻两列共享同一条整数边界
+        return Math.floor(layout.x(i) - layout.gap() / 2);
+    }
+}
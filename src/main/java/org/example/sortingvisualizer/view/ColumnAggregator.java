@@ -0,0 +1,119 @@
+package org.example.sortingvisualizer.view;
+
+import java.util.Arrays;
+
+/**
+ * 像素列聚合：把 n 个元素按下标连续地分到 columns 列，维护每列的最小值/最大值/平均值。
+ * <p>
+ * 每列一棵自底向上的线段树（最小值、最大值各一棵），叶子是该列的元素；
+ * 单个元素写入只更新所在列的 O(log(n/columns)) 个节点，列的最小/最大值就是树根，平均值由列和得出。
+ * 所有列的树放在同一个扁平数组里，列 c 的节点从 {@code c * 2 * leafCap} 开始，根在偏移 1。
+ */
+final class ColumnAggregator {
+
+    private final int length;
+    private final int columns;
+    /** 每列叶子数（2 的幂，不小于最大列宽）。 */
+    private final int leafCap;
+    private final int[] minTree;
+    private final int[] maxTree;
+    private final long[] sums;
+    private final int[] counts;
+
+    ColumnAggregator(int[] array, int columns) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("columns 必须为正数: " + columns);
+        }
+        this.length = array.length;
+        this.columns = columns;
+        int widest = (length + columns - 1) / columns;
+        int cap = 1;
+        while (cap < widest) cap <<= 1;
+        this.leafCap = cap;
+        long nodes = 2L * cap * columns;
+        if (nodes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("聚合列过多: " + columns + " 列 × " + cap + " 叶");
+        }
+        this.minTree = new int[(int) nodes];
+        this.maxTree = new int[(int) nodes];
+        this.sums = new long[columns];
+        this.counts = new int[columns];
+
+        // 空叶子：不影响最小/最大值
+        Arrays.fill(minTree, Integer.MAX_VALUE);
+        Arrays.fill(maxTree, Integer.MIN_VALUE);
+        for (int i = 0; i < length; i++) {
+            int c = columnOf(i);
+            int leaf = base(c) + leafCap + (i - start(c));
+            minTree[leaf] = array[i];
+            maxTree[leaf] = array[i];
+            sums[c] += array[i];
+            counts[c]++;
+        }
+        // 自底向上一次建好所有内部节点
+        for (int c = 0; c < columns; c++) {
+            int base = base(c);
+            for (int p = leafCap - 1; p >= 1; p--) {
+                minTree[base + p] = Math.min(minTree[base + 2 * p], minTree[base + 2 * p + 1]);
+                maxTree[base + p] = Math.max(maxTree[base + 2 * p], maxTree[base + 2 * p + 1]);
+            }
+        }
+    }
+
+    int length() {
+        return length;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    /** 元素 index 所在的列。 */
+    int columnOf(int index) {
+        return (int) ((long) index * columns / length);
+    }
+
+    /**
+     * 把元素 index 改成 newValue（旧值就在叶子上），返回所在的列。
+     */
+    int set(int index, int newValue) {
+        int c = columnOf(index);
+        int base = base(c);
+        int p = leafCap + (index - start(c));
+        int oldValue = minTree[base + p];
+        minTree[base + p] = newValue;
+        maxTree[base + p] = newValue;
+        sums[c] += (long) newValue - oldValue;
+        for (p >>= 1; p >= 1; p >>= 1) {
+            minTree[base + p] = Math.min(minTree[base + 2 * p], minTree[base + 2 * p + 1]);
+            maxTree[base + p] = Math.max(maxTree[base + 2 * p], maxTree[base + 2 * p + 1]);
+        }
+        return c;
+    }
+
+    /** 列中元素个数（列比元素多时可能为 0）。 */
+    int count(int column) {
+        return counts[column];
+    }
+
+    int min(int column) {
+        return minTree[base(column) + 1];
+    }
+
+    int max(int column) {
+        return maxTree[base(column) + 1];
+    }
+
+    double mean(int column) {
+        return (counts[column] == 0) ? 0 : sums[column] / (double) counts[column];
+    }
+
+    private int base(int column) {
+        return column * 2 * leafCap;
+    }
+
+    private int start(int column) {
+        // 第一个满足 columnOf(i) == column 的下标：ceil(column * length / columns)
+        return (int) (((long) column * length + columns - 1) / columns);
+    }
+}
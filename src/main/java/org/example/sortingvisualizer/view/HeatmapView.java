@@ -0,0 +1,102 @@
+package org.example.sortingvisualizer.view;
+
+import org.example.sortingvisualizer.step.AccessHeatmap;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.VBox;
+
+/**
+ * 访问热力图视图：把 {@link AccessHeatmap} 的时间分桶矩阵画成一张小图，放在可视化面板旁边。
+ * <p>
+ * 横轴是数组下标（左 → 右），纵轴是时间（上 → 下）；颜色越亮表示该时段对该区间的访问越多。
+ * 图像按矩阵尺寸逐像素生成（最多 128x128），再由 ImageView 放大显示，因此构建开销与数据量无关。
+ */
+public final class HeatmapView extends VBox {
+
+    private static final double IMAGE_WIDTH = 200;
+    private static final double IMAGE_HEIGHT = 300;
+
+    private final ImageView imageView = new ImageView();
+    private final Label summaryLabel = new Label();
+
+    public HeatmapView() {
+        super(6);
+        setPadding(new Insets(8));
+        setPrefWidth(IMAGE_WIDTH + 16);
+
+        imageView.setFitWidth(IMAGE_WIDTH);
+        imageView.setFitHeight(IMAGE_HEIGHT);
+        // 最近邻放大：保持色块边界清晰，避免插值把热点糊开
+        imageView.setSmooth(false);
+        summaryLabel.setWrapText(true);
+        summaryLabel.setMaxWidth(IMAGE_WIDTH);
+
+        getChildren().addAll(new Label("访问热力图（横：下标，纵：时间）"), imageView, summaryLabel);
+    }
+
+    /**
+     * 显示一份热力图；heatmap 为 null 时清空。
+     */
+    public void show(AccessHeatmap heatmap) {
+        if (heatmap == null || heatmap.operations() == 0) {
+            imageView.setImage(null);
+            summaryLabel.setText("无访问记录");
+            return;
+        }
+        imageView.setImage(render(heatmap));
+        summaryLabel.setText(buildSummary(heatmap));
+    }
+
+    private static WritableImage render(AccessHeatmap heatmap) {
+        int columns = heatmap.columns();
+        int rows = heatmap.rows();
+        WritableImage image = new WritableImage(columns, rows);
+        PixelWriter writer = image.getPixelWriter();
+
+        // 对数归一化：少数热点（例如冒泡排序的末尾）不至于把其余区域压成一片黑
+        double scale = Math.log1p(heatmap.maxCell());
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                long v = heatmap.cell(r, c);
+                double t = (scale <= 0) ? 0 : Math.log1p(v) / scale;
+                writer.setArgb(c, r, heat(t));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 黑 → 红 → 黄 → 白 的热度色阶，t ∈ [0, 1]。
+     */
+    private static int heat(double t) {
+        if (t < 0) t = 0;
+        if (t > 1) t = 1;
+        int red = (int) Math.round(255 * Math.min(1.0, t * 3));
+        int green = (int) Math.round(255 * Math.min(1.0, Math.max(0.0, t * 3 - 1)));
+        int blue = (int) Math.round(255 * Math.max(0.0, t * 3 - 2));
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    private static String buildSummary(AccessHeatmap heatmap) {
+        long reads = 0;
+        long writes = 0;
+        long swaps = 0;
+        for (int i = 0; i < heatmap.length(); i++) {
+            reads += heatmap.reads(i);
+            writes += heatmap.writes(i);
+            swaps += heatmap.swaps(i);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("读: ").append(reads).append("  写: ").append(writes).append("  交换: ").append(swaps);
+        int hottest = heatmap.hottestIndex();
+        if (hottest >= 0) {
+            sb.append("\n最热下标: ").append(hottest).append("（").append(heatmap.total(hottest)).append(" 次）");
+        }
+        sb.append("\n每行 ").append(heatmap.rowSpan()).append(" 步，共 ").append(heatmap.rows()).append(" 行");
+        return sb.toString();
+    }
+}
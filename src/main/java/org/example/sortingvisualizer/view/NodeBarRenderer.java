@@ -0,0 +1,100 @@
+package org.example.sortingvisualizer.view;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+/**
+ * 节点渲染：每根柱子一个 {@link Rectangle}（可选一个 {@link Text} 标签）。
+ * <p>
+ * 圆角、描边由场景图负责，效果最好；但节点数随数组长度线性增长，适合几百根柱子以内。
+ */
+final class NodeBarRenderer implements BarRenderer {
+
+    private static final Color COLOR_STROKE = Color.web("#e6e6e6");
+    private static final Color COLOR_LABEL = Color.web("#333333");
+    private static final Font LABEL_FONT = Font.font(11);
+
+    private final Group group = new Group();
+
+    // 上一次整体绘制的节点：增量重绘只改这些节点的几何/颜色，不重建场景图
+    private Rectangle[] bars;
+    private Text[] labels;
+
+    @Override
+    public Node node() {
+        return group;
+    }
+
+    @Override
+    public void drawAll(int[] array, BarLayout layout, int idx1, int idx2, Color highlight, Color overrideFill, boolean showLabels) {
+        group.getChildren().clear();
+        bars = new Rectangle[array.length];
+        labels = new Text[array.length];
+        double barWidth = layout.barWidth();
+
+        for (int i = 0; i < array.length; i++) {
+            int v = array[i];
+            double barHeight = layout.barHeight(v);
+            double x = layout.x(i);
+            double y = layout.baseY() - barHeight;
+
+            Rectangle rect = new Rectangle(x, y, barWidth, barHeight);
+
+            // Apple-ish：圆角 + 细描边 + 轻微区分度
+            double arc = Math.min(10, barWidth);
+            rect.setArcWidth(arc);
+            rect.setArcHeight(arc);
+            rect.setStroke(COLOR_STROKE);
+            rect.setStrokeWidth(0.5);
+
+            if ((i == idx1 || i == idx2) && highlight != null) {
+                rect.setFill(highlight);
+            } else if (overrideFill != null) {
+                rect.setFill(overrideFill);
+            } else {
+                rect.setFill(BarPalette.color(v, layout.maxVal()));
+            }
+
+            group.getChildren().add(rect);
+            bars[i] = rect;
+
+            if (showLabels && barWidth >= 16) {
+                Text label = new Text(String.valueOf(v));
+                label.setFill(COLOR_LABEL);
+                label.setFont(LABEL_FONT);
+                label.setX(x + 2);
+                label.setY(Math.max(y - 2, 8));
+                group.getChildren().add(label);
+                labels[i] = label;
+            }
+        }
+    }
+
+    @Override
+    public void drawBar(int[] array, BarLayout layout, int i, Color fill) {
+        if (bars == null || i < 0 || i >= bars.length) return;
+        Rectangle rect = bars[i];
+        int v = array[i];
+        double barHeight = layout.barHeight(v);
+        double y = layout.baseY() - barHeight;
+        rect.setY(y);
+        rect.setHeight(barHeight);
+        rect.setFill((fill != null) ? fill : BarPalette.color(v, layout.maxVal()));
+        Text label = labels[i];
+        if (label != null) {
+            label.setText(String.valueOf(v));
+            label.setY(Math.max(y - 2, 8));
+        }
+    }
+
+    @Override
+    public void clear() {
+        group.getChildren().clear();
+        bars = null;
+        labels = null;
+    }
+}
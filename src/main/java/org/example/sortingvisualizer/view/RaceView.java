@@ -0,0 +1,96 @@
+package org.example.sortingvisualizer.view;
+
+import org.example.sortingvisualizer.playback.PlaybackSnapshot;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+/**
+ * 竞速视图：每个算法一条赛道（标题 + 可视化面板 + 进度条 + 计数），按两列网格排列。
+ * <p>
+ * 与 {@link BenchmarkViewBuilder} 一样不依赖 Controller 状态；赛道内容由调用方通过 {@link Lane#update} 推送。
+ */
+public final class RaceView extends GridPane {
+
+    private static final int COLUMNS = 2;
+    private static final double LANE_MIN_HEIGHT = 140;
+
+    private int laneCount;
+
+    public RaceView() {
+        setHgap(12);
+        setVgap(12);
+        setPadding(new Insets(10));
+    }
+
+    /**
+     * 追加一条赛道并返回它的句柄。
+     */
+    public Lane addLane(String title) {
+        Lane lane = new Lane(title);
+        add(lane.box, laneCount % COLUMNS, laneCount / COLUMNS);
+        GridPane.setHgrow(lane.box, Priority.ALWAYS);
+        GridPane.setVgrow(lane.box, Priority.ALWAYS);
+        laneCount++;
+        return lane;
+    }
+
+    /**
+     * 一条赛道的 UI。
+     */
+    public static final class Lane {
+        private final String title;
+        private final VBox box = new VBox(4);
+        private final Label titleLabel = new Label();
+        private final VisualizerPane pane = new VisualizerPane();
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label statsLabel = new Label("-");
+        private boolean finished;
+
+        private Lane(String title) {
+            this.title = title;
+            titleLabel.setText(title);
+            pane.setShowLabels(false);
+            // 多条赛道同时刷新：每条赛道只占一个画布节点，赛道比数据窄时按列聚合
+            pane.setRenderMode(VisualizerPane.RenderMode.AGGREGATE);
+            pane.setMinHeight(LANE_MIN_HEIGHT);
+            VBox.setVgrow(pane, Priority.ALWAYS);
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            box.getChildren().addAll(titleLabel, pane, progressBar, statsLabel);
+            // 缩放时按面板自己持有的画面重绘
+            pane.widthProperty().addListener((obs, oldVal, newVal) -> pane.redraw());
+            pane.heightProperty().addListener((obs, oldVal, newVal) -> pane.redraw());
+        }
+
+        /**
+         * 推送一次回放更新。
+         *
+         * @param snapshot 赛道快照
+         * @param highlight 本步高亮色（为 null 时不高亮）
+         * @param finishColor 到达终点时的整体颜色
+         * @param stats 计数文本（例如“比较 12 / 交换 3 / 写入 0”）
+         */
+        public void update(PlaybackSnapshot snapshot, Color highlight, Color finishColor, String stats) {
+            boolean done = snapshot.cursor() == snapshot.size();
+            if (done) {
+                pane.renderFinalState(snapshot.state(), finishColor);
+            } else if (snapshot.operation() != null) {
+                pane.renderState(snapshot.state(), snapshot.dirty(),
+                        snapshot.operation().index1(), snapshot.operation().index2(), highlight);
+            } else {
+                pane.renderState(snapshot.state(), snapshot.dirty(), -1, -1, null);
+            }
+            progressBar.setProgress(snapshot.size() == 0 ? 1 : snapshot.cursor() / (double) snapshot.size());
+            statsLabel.setText("步骤 " + snapshot.cursor() + "/" + snapshot.size() + "  " + stats);
+            if (done != finished) {
+                finished = done;
+                titleLabel.setText(done ? title + "（完成）" : title);
+            }
+        }
+    }
+}
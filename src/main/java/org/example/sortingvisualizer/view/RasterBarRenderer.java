@@ -0,0 +1,454 @@
+package org.example.sortingvisualizer.view;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * 后台光栅化渲染：柱子由专门的渲染线程直接写进 {@link PixelBuffer} 的像素，
+ * JavaFX 应用线程只负责“交换并显示”画好的图像。
+ * <p>
+ * 工作方式：
+ * <ul>
+ *   <li>FX 线程的 {@link #drawAll}/{@link #drawBar} 只把“整帧数据”或“单个下标的新值/颜色”登记到待处理区，立即返回</li>
+ *   <li>渲染线程取走待处理数据，更新自己私有的数组副本（元素多于像素列时同样用 {@link ColumnAggregator} 聚合），
+ *       再把整帧画进后台缓冲</li>
+ *   <li>画好后通过 {@link Platform#runLater} 请求交换：FX 线程通知图像已更新并换上这一帧；
+ *       交换完成前渲染线程不会开始画下一帧（最多一帧在途）</li>
+ *   <li>被换下的缓冲不能马上重画：JavaFX 渲染线程可能还在上传上一个脉冲里的它。
+ *       它先“退役”，等两个脉冲之后（此时上一个脉冲的渲染必然已结束，新的脉冲只显示新缓冲）
+ *       才由 {@link AnimationTimer} 还给渲染线程</li>
+ * </ul>
+ * 因此最多同时存在 {@value #SURFACES} 块缓冲：一块显示中、一块退役中、一块供渲染线程绘制。
+ * 画面是纯色柱子（没有圆角、描边和数值标签）；换取的是大数据量回放时 FX 线程几乎不做绘制工作，界面操作不卡顿。
+ */
+final class RasterBarRenderer implements BarRenderer {
+
+    private static final int ARGB_ENVELOPE = BarPalette.toArgb(Color.web("#d6e6ff"));
+    private static final int ARGB_MEAN = BarPalette.toArgb(Color.web("#2f6fd6"));
+    /** 没有高亮：按数值着色（drawBar 传入 null 时）。 */
+    private static final int NO_HIGHLIGHT = 0;
+    /** 同时存在的缓冲上限：显示 + 退役 + 绘制。 */
+    private static final int SURFACES = 3;
+    /** 换下的缓冲至少经过这么多个脉冲才能重画。 */
+    private static final int RETIRE_PULSES = 2;
+
+    private final ImageView imageView = new ImageView();
+    private final Object lock = new Object();
+
+    // ---- 以下字段由 lock 保护：FX 线程写入、渲染线程取走 ----
+    /** 待处理的整帧数据；为 null 表示只有增量变化。 */
+    private Frame pendingFrame;
+    /** 清空画面的请求。 */
+    private boolean pendingClear;
+    private Changes pendingChanges = new Changes();
+    /** 已提交一帧等待 FX 线程交换：此时渲染线程不动任何缓冲。 */
+    private boolean awaitingSwap;
+    private boolean disposed;
+    private Surface front;
+    /** 画好、等待交换的缓冲。 */
+    private Surface back;
+    /** 可以直接重画的缓冲。 */
+    private final ArrayDeque<Surface> spare = new ArrayDeque<>();
+    /** 已换下、JavaFX 可能仍在读取的缓冲（按换下的先后）。 */
+    private final ArrayDeque<Retired> retired = new ArrayDeque<>();
+    /** 当前存在的缓冲数（显示 + 退役 + 空闲 + 绘制中）。 */
+    private int surfaces;
+
+    // ---- 以下字段只由 FX 线程访问 ----
+    /** 脉冲计数：每个脉冲开头由 {@link #releaser} 加一。 */
+    private long pulse;
+    private boolean releaserRunning;
+    /** 把退役满 {@value #RETIRE_PULSES} 个脉冲的缓冲还给渲染线程；没有退役缓冲时停止，不空转。 */
+    private final AnimationTimer releaser = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulse++;
+            synchronized (lock) {
+                boolean released = false;
+                while (!retired.isEmpty() && retired.peek().pulse() + RETIRE_PULSES <= pulse) {
+                    spare.add(retired.poll().surface());
+                    released = true;
+                }
+                if (released) lock.notifyAll();
+                if (retired.isEmpty()) {
+                    stop();
+                    releaserRunning = false;
+                }
+            }
+        }
+    };
+
+    private Thread renderThread;
+
+    // ---- 以下字段只由渲染线程访问 ----
+    private Changes workingChanges = new Changes();
+    private Model model;
+
+    @Override
+    public Node node() {
+        return imageView;
+    }
+
+    @Override
+    public void drawAll(int[] array, BarLayout layout, int idx1, int idx2, Color highlight, Color overrideFill, boolean showLabels) {
+        Map<Integer, Integer> highlights = new HashMap<>();
+        if (highlight != null) {
+            int argb = BarPalette.toArgb(highlight);
+            if (idx1 >= 0 && idx1 < array.length) highlights.put(idx1, argb);
+            if (idx2 >= 0 && idx2 < array.length) highlights.put(idx2, argb);
+        }
+        Frame frame = new Frame(array.clone(), layout, highlights,
+                (overrideFill == null) ? NO_HIGHLIGHT : BarPalette.toArgb(overrideFill));
+        synchronized (lock) {
+            // 整帧数据覆盖之前尚未处理的所有变化
+            pendingFrame = frame;
+            pendingClear = false;
+            pendingChanges.clear();
+            lock.notifyAll();
+        }
+        ensureStarted();
+    }
+
+    @Override
+    public void drawBar(int[] array, BarLayout layout, int i, Color fill) {
+        int v = array[i];
+        int argb = (fill == null) ? NO_HIGHLIGHT : BarPalette.toArgb(fill);
+        synchronized (lock) {
+            pendingChanges.add(i, v, argb);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            pendingFrame = null;
+            pendingChanges.clear();
+            pendingClear = true;
+            lock.notifyAll();
+        }
+        imageView.setImage(null);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock) {
+            disposed = true;
+            lock.notifyAll();
+        }
+        releaser.stop();
+        releaserRunning = false;
+    }
+
+    private void ensureStarted() {
+        if (renderThread != null) return;
+        renderThread = new Thread(this::renderLoop, "bar-raster");
+        // 守护线程：窗口关闭时不阻止 JVM 退出
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    private void renderLoop() {
+        while (true) {
+            Frame frame;
+            boolean clear;
+            Surface target;
+            synchronized (lock) {
+                // 没有空闲缓冲且已达上限时，等退役的缓冲被放回
+                while (!disposed && (awaitingSwap
+                        || (pendingFrame == null && !pendingClear && pendingChanges.size == 0)
+                        || (spare.isEmpty() && surfaces >= SURFACES))) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (disposed) return;
+                frame = pendingFrame;
+                clear = pendingClear;
+                pendingFrame = null;
+                pendingClear = false;
+                // 交换两份变化列表：FX 线程继续往空的那份里登记
+                Changes taken = pendingChanges;
+                pendingChanges = workingChanges;
+                workingChanges = taken;
+                target = spare.poll();
+                if (target == null) surfaces++; // 下面新建一块
+            }
+
+            if (clear) {
+                model = null;
+            }
+            if (frame != null) {
+                model = new Model(frame);
+            }
+            if (model != null) {
+                model.apply(workingChanges);
+            }
+            workingChanges.clear();
+            if (model == null) {
+                // 这一轮没画：缓冲放回（新建名额退回）
+                synchronized (lock) {
+                    if (target != null) spare.add(target);
+                    else surfaces--;
+                }
+                continue;
+            }
+
+            // 尺寸变化时换一块新的缓冲（旧的前台缓冲仍在显示，直到交换；尺寸不对的缓冲直接丢弃）
+            int width = Math.max(1, (int) Math.ceil(model.layout.width()));
+            int height = Math.max(1, (int) Math.ceil(model.layout.height()));
+            if (target == null || target.width != width || target.height != height) {
+                target = new Surface(width, height);
+            }
+            model.rasterize(target);
+
+            synchronized (lock) {
+                if (disposed) return;
+                back = target;
+                awaitingSwap = true;
+            }
+            Platform.runLater(this::swap);
+        }
+    }
+
+    private void swap() {
+        // FX 线程：通知图像内容已更新，换上刚画好的一帧；原前台缓冲退役，过两个脉冲再重画
+        Surface ready;
+        boolean stale;
+        synchronized (lock) {
+            if (disposed || !awaitingSwap) return;
+            ready = back;
+            // 画好之后又被清空：这一帧不再显示
+            stale = pendingClear;
+        }
+        if (!stale) {
+            ready.pixels.updateBuffer(pb -> null);
+            imageView.setImage(ready.image);
+        }
+        synchronized (lock) {
+            back = null;
+            if (stale) {
+                // 从未交给 JavaFX：可以直接重画
+                spare.add(ready);
+            } else {
+                if (front != null) retired.add(new Retired(front, pulse));
+                front = ready;
+            }
+            awaitingSwap = false;
+            lock.notifyAll();
+        }
+        if (!releaserRunning && !stale) {
+            releaserRunning = true;
+            releaser.start();
+        }
+    }
+
+    /** 换下的缓冲及其换下时的脉冲号。 */
+    private record Retired(Surface surface, long pulse) {
+    }
+
+    /**
+     * 一块可显示的像素缓冲（预乘 ARGB，行优先）。
+     */
+    private static final class Surface {
+        private final int width;
+        private final int height;
+        private final IntBuffer buffer;
+        private final PixelBuffer<IntBuffer> pixels;
+        private final WritableImage image;
+
+        private Surface(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            this.pixels = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+            this.image = new WritableImage(pixels);
+        }
+    }
+
+    /**
+     * FX 线程登记的整帧数据（数组已拷贝，渲染线程独占）。
+     */
+    private record Frame(int[] values, BarLayout layout, Map<Integer, Integer> highlights, int overrideArgb) {
+    }
+
+    /**
+     * 增量变化列表：下标、新值、高亮色（{@link #NO_HIGHLIGHT} 表示按数值着色）。
+     */
+    private static final class Changes {
+        private int[] indices = new int[64];
+        private int[] values = new int[64];
+        private int[] argbs = new int[64];
+        private int size;
+
+        private void add(int index, int value, int argb) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                argbs = Arrays.copyOf(argbs, size * 2);
+            }
+            indices[size] = index;
+            values[size] = value;
+            argbs[size] = argb;
+            size++;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * 渲染线程私有的画面模型：数组副本 + 高亮 + 可选的列聚合。
+     */
+    private static final class Model {
+        private final int[] values;
+        private final BarLayout layout;
+        private final Map<Integer, Integer> highlights;
+        private final int overrideArgb;
+        /** 元素多于像素列时按列聚合；否则为 null，逐柱绘制。 */
+        private final ColumnAggregator aggregator;
+
+        // 每个像素列的绘制参数（行号）：实心柱顶、包络顶、平均值刻度、颜色；bodyArgb 为 0 表示空列
+        private int[] bodyTop = new int[0];
+        private int[] envelopeTop = new int[0];
+        private int[] meanRow = new int[0];
+        private int[] bodyArgb = new int[0];
+        private int[] row = new int[0];
+
+        private Model(Frame frame) {
+            this.values = frame.values();
+            this.layout = frame.layout();
+            this.highlights = new HashMap<>(frame.highlights());
+            this.overrideArgb = frame.overrideArgb();
+            this.aggregator = (layout.barWidth() < 1)
+                    ? new ColumnAggregator(values, Math.max(1, (int) layout.width()))
+                    : null;
+        }
+
+        private void apply(Changes changes) {
+            for (int k = 0; k < changes.size; k++) {
+                int i = changes.indices[k];
+                if (i < 0 || i >= values.length) continue;
+                values[i] = changes.values[k];
+                if (aggregator != null) aggregator.set(i, values[i]);
+                if (changes.argbs[k] == NO_HIGHLIGHT) {
+                    highlights.remove(i);
+                } else {
+                    highlights.put(i, changes.argbs[k]);
+                }
+            }
+        }
+
+        private void rasterize(Surface surface) {
+            int width = surface.width;
+            int height = surface.height;
+            if (bodyTop.length != width) {
+                bodyTop = new int[width];
+                envelopeTop = new int[width];
+                meanRow = new int[width];
+                bodyArgb = new int[width];
+                row = new int[width];
+            }
+            Arrays.fill(bodyArgb, 0);
+            Arrays.fill(meanRow, -1);
+            if (aggregator != null) {
+                columnsFromAggregator(width);
+            } else {
+                columnsFromBars(width);
+            }
+
+            // 行优先逐行填充，再整行写入缓冲；基线以下（底部内边距）留空
+            IntBuffer buffer = surface.buffer;
+            int baseRow = (int) Math.round(layout.baseY());
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int argb = 0;
+                    if (bodyArgb[x] != 0 && y < baseRow) {
+                        if (y == meanRow[x]) {
+                            argb = (overrideArgb != NO_HIGHLIGHT) ? bodyArgb[x] : ARGB_MEAN;
+                        } else if (y >= bodyTop[x]) {
+                            argb = bodyArgb[x];
+                        } else if (y >= envelopeTop[x]) {
+                            argb = ARGB_ENVELOPE;
+                        }
+                    }
+                    row[x] = argb;
+                }
+                buffer.position(y * width);
+                buffer.put(row, 0, width);
+            }
+            buffer.rewind();
+        }
+
+        private void columnsFromBars(int width) {
+            int maxVal = layout.maxVal();
+            for (int i = 0; i < values.length; i++) {
+                // 与画布渲染一致：柱子左右边缘对齐到整数像素
+                int left = (int) Math.floor(layout.x(i));
+                int right = Math.max(left + 1, (int) Math.floor(layout.x(i) + layout.barWidth()));
+                int top = topRow(values[i]);
+                int argb = colorOf(i, values[i], maxVal);
+                for (int x = Math.max(0, left); x < Math.min(width, right); x++) {
+                    bodyTop[x] = top;
+                    envelopeTop[x] = top;
+                    bodyArgb[x] = argb;
+                }
+            }
+        }
+
+        private void columnsFromAggregator(int width) {
+            int maxVal = layout.maxVal();
+            int columns = Math.min(width, aggregator.columns());
+            for (int c = 0; c < columns; c++) {
+                if (aggregator.count(c) == 0) continue;
+                int mean = (int) Math.round(aggregator.mean(c));
+                bodyTop[c] = topRow(aggregator.min(c));
+                envelopeTop[c] = topRow(aggregator.max(c));
+                meanRow[c] = Math.min(topRow(mean), (int) layout.baseY() - 1);
+                bodyArgb[c] = (overrideArgb != NO_HIGHLIGHT) ? overrideArgb : BarPalette.argb(mean, maxVal);
+            }
+            // 高亮：整列使用高亮色
+            for (Map.Entry<Integer, Integer> entry : highlights.entrySet()) {
+                int c = aggregator.columnOf(entry.getKey());
+                if (c < columns && aggregator.count(c) > 0) bodyArgb[c] = entry.getValue();
+            }
+        }
+
+        private int colorOf(int i, int v, int maxVal) {
+            Integer highlight = highlights.get(i);
+            if (highlight != null) return highlight;
+            if (overrideArgb != NO_HIGHLIGHT) return overrideArgb;
+            return BarPalette.argb(v, maxVal);
+        }
+
+        private int topRow(int v) {
+            // 柱顶所在行；基线以下（非正数）时为基线行，即不画实心部分
+            double top = layout.baseY() - Math.max(0, layout.barHeight(v));
+            return (int) Math.round(top);
+        }
+    }
+}
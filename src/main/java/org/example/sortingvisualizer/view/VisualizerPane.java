@@ -1,32 +1,85 @@
 package org.example.sortingvisualizer.view;
 
+import org.example.sortingvisualizer.step.ArrayView;
+import org.example.sortingvisualizer.step.DirtyIndices;
+
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 
 /**
  * 排序可视化面板
  * 负责绘制数组状态
+ * <p>
+ * 具体怎么画由 {@link RenderMode} 选择的渲染器决定：面板只维护数组、布局与高亮状态。
  */
 public class VisualizerPane extends Pane {
 
+    /**
+     * 渲染方式。
+     */
+    public enum RenderMode {
+        /** 每根柱子一个场景图节点：效果最好，适合几百根柱子以内。 */
+        NODES("节点"),
+        /** 所有柱子画在一张画布上：节点数恒为 1，适合上万根柱子。 */
+        CANVAS("画布"),
+        /** 元素多于像素列时按列聚合（最小/最大/平均），适合百万级数组。 */
+        AGGREGATE("聚合"),
+        /** 后台线程光栅化到像素缓冲，FX 线程只负责显示：大数据量回放时界面操作不卡顿。 */
+        RASTER("后台光栅");
+
+        private final String displayName;
+
+        RenderMode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
     private int[] array;
-    private static final int BAR_GAP = 2;
-    private static final double MAX_BAR_WIDTH = 42;
     private boolean showLabels = true;
 
-    // 颜色常量
-    private static final Color COLOR_DEFAULT = Color.web("#7db3ff");
-    private static final Color COLOR_STROKE = Color.web("#e6e6e6");
+    private RenderMode renderMode = RenderMode.NODES;
+    private BarRenderer renderer = new NodeBarRenderer();
 
-    // 内边距
-    private static final double PADDING_TOP = 10;
-    private static final double PADDING_BOTTOM = 10;
+    // 上一次整体绘制的布局与高亮状态：增量重绘沿用同一份布局，只重画变化的柱子
+    private BarLayout layout;
+    private int highlight1 = -1;
+    private int highlight2 = -1;
+    private Color drawnOverrideFill;
+    /** 数组中等于 layout.maxVal() 的元素个数：降为 0 说明最大值变了。 */
+    private int maxCount;
+    /** layout.maxVal() 是否来自数据（全为非正数时用的是默认值，不跟踪最大值变化）。 */
+    private boolean maxFromData;
 
     public VisualizerPane() {
         this.getStyleClass().add("visualizer-pane");
+        this.getChildren().add(renderer.node());
+    }
+
+    /**
+     * 切换渲染方式：换掉渲染器节点后按当前画面整体重绘。
+     */
+    public void setRenderMode(RenderMode mode) {
+        if (mode == null || mode == renderMode) return;
+        this.getChildren().remove(renderer.node());
+        renderer.dispose();
+        renderMode = mode;
+        renderer = switch (mode) {
+            case NODES -> new NodeBarRenderer();
+            case CANVAS -> new CanvasBarRenderer();
+            case AGGREGATE -> new AggregateBarRenderer();
+            case RASTER -> new RasterBarRenderer();
+        };
+        this.getChildren().add(renderer.node());
+        draw(highlight1, highlight2, null, drawnOverrideFill);
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
     }
 
     /**
@@ -47,20 +100,33 @@ public class VisualizerPane extends Pane {
      */
     public void highlight(int index1, int index2, Color color) {
         if (array == null) return;
-        draw(index1, index2, color);
+        if (!canPatch(array.length)) {
+            draw(index1, index2, color);
+            return;
+        }
+        // 只把高亮从旧位置移到新位置，其余柱子不动
+        moveHighlight(index1, index2, color);
+        renderer.flush();
     }
 
     public void updateArray(int[] newArray) {
-        this.array = (newArray == null) ? new int[0] : newArray.clone();
-        draw();
+        renderState(newArray, -1, -1, null);
     }
 
     /**
      * 一次性渲染数组与高亮（避免 updateArray + highlight 的双重重绘）。
+     * <p>
+     * 与已画出的数组逐个比较，只重画数值变化的柱子。
      */
     public void renderState(int[] newArray, int index1, int index2, Color highlightColor) {
-        this.array = (newArray == null) ? new int[0] : newArray.clone();
-        draw(index1, index2, highlightColor, null);
+        int[] source = (newArray == null) ? new int[0] : newArray;
+        if (!canPatch(source.length) || !patchAll(source)) {
+            this.array = source.clone();
+            draw(index1, index2, highlightColor, null);
+            return;
+        }
+        moveHighlight(index1, index2, highlightColor);
+        renderer.flush();
     }
 
     /**
@@ -71,105 +137,152 @@ public class VisualizerPane extends Pane {
         draw(-1, -1, null, fillColor);
     }
 
-    public void setShowLabels(boolean show) {
-        this.showLabels = show;
-        draw();
+    /**
+     * 渲染“完成态”：直接读取回放视图，复用内部数组，不分配新数组。
+     */
+    public void renderFinalState(ArrayView state, Color fillColor) {
+        copyFrom(state);
+        draw(-1, -1, null, fillColor);
     }
 
-    private void draw() {
-        draw(-1, -1, null, null);
+    /**
+     * 增量渲染：只重画数值变化的柱子，再把高亮从上一次的位置移到 index1/index2。
+     * <p>
+     * 通常只看 dirty 中的下标；dirty 退化为“全部变脏”时逐个比较整个数组，仍然只重画变化的列。
+     * 只有数组长度变化、最大值变化（需要重新归一化）或上一次是完成态时才整体绘制；
+     * 尺寸变化由 {@link #redraw()} 整体绘制。
+     */
+    public void renderState(ArrayView state, DirtyIndices dirty, int index1, int index2, Color highlightColor) {
+        if (!canPatch(state.length()) || !(dirty.isAll() ? patchAll(state) : patchDirty(state, dirty))) {
+            copyFrom(state);
+            draw(index1, index2, highlightColor, null);
+            return;
+        }
+        moveHighlight(index1, index2, highlightColor);
+        renderer.flush();
     }
 
-    private void draw(int idx1, int idx2, Color highlightColor) {
-        draw(idx1, idx2, highlightColor, null);
+    private void copyFrom(ArrayView state) {
+        if (array == null || array.length != state.length()) {
+            array = new int[state.length()];
+        }
+        state.copyTo(array);
     }
 
-    private void draw(int idx1, int idx2, Color highlightColor, Color overrideFillColor) {
-        this.getChildren().clear();
-        if (array == null || array.length == 0) return;
+    private boolean canPatch(int length) {
+        // 有上一次的布局、长度不变、不是完成态且渲染器能单独重画柱子，才能在其基础上增量重绘
+        return layout != null && array != null && array.length == length && drawnOverrideFill == null
+                && renderer.canDrawBar(layout);
+    }
 
-        double width = this.getWidth();
-        double height = this.getHeight();
-        if (width <= 0 || height <= 0) return;
+    private boolean patchDirty(ArrayView state, DirtyIndices dirty) {
+        for (int k = 0; k < dirty.size(); k++) {
+            int i = dirty.get(k);
+            if (!patch(i, state.get(i))) return false;
+        }
+        return maxStillPresent();
+    }
 
-        // 绘制区域去掉上下内边距
-        double innerHeight = height - PADDING_TOP - PADDING_BOTTOM;
-        if (innerHeight <= 1) return;
+    private boolean patchAll(ArrayView state) {
+        for (int i = 0; i < array.length; i++) {
+            int v = state.get(i);
+            if (v != array[i] && !patch(i, v)) return false;
+        }
+        return maxStillPresent();
+    }
 
-        // 找到最大值用于归一化高度，确保不同数据量下都能充满画布
-        int maxVal = 0;
-        for (int val : array) maxVal = Math.max(maxVal, val);
-        if (maxVal <= 0) maxVal = 100; // 默认防守值
+    private boolean patchAll(int[] source) {
+        for (int i = 0; i < array.length; i++) {
+            int v = source[i];
+            if (v != array[i] && !patch(i, v)) return false;
+        }
+        return maxStillPresent();
+    }
 
-        // 使用浮点数计算单位高度，避免整数除法导致的量化误差
-        // 这样可以充分利用垂直空间，而不是被 floor 截断
-        double unitPx = innerHeight / (double) maxVal;
+    /**
+     * 把下标 i 改成 v 并重画这一列；新值超出归一化上限时返回 false（需要整体重绘）。
+     */
+    private boolean patch(int i, int v) {
+        int old = array[i];
+        if (old == v) return true;
+        int maxVal = layout.maxVal();
+        if (v > maxVal) return false;
+        array[i] = v;
+        if (old == maxVal) maxCount--;
+        if (v == maxVal) maxCount++;
+        // 高亮稍后统一重设，这里先按数值着色
+        renderer.drawBar(array, layout, i, null);
+        return true;
+    }
 
-        // 计算每个柱子的宽度（考虑间距，并设置最大宽度，避免数据量很小时柱子过粗）
-        double totalGap = Math.max(0, (array.length - 1)) * BAR_GAP;
-        double rawBarWidth = (width - totalGap) / array.length;
-        double barWidth = Math.min(Math.max(1, rawBarWidth), MAX_BAR_WIDTH);
+    private boolean maxStillPresent() {
+        // 最大值的所有副本都被覆盖：最大值变小了，柱高要按新的最大值重新归一化
+        return !maxFromData || maxCount > 0;
+    }
 
-        // 如果柱子总宽度小于画布，则居中显示
-        double totalBarsWidth = array.length * barWidth + totalGap;
-        double startX = Math.max(0, (width - totalBarsWidth) / 2.0);
+    private void moveHighlight(int index1, int index2, Color highlightColor) {
+        // 先恢复旧高亮，再设置新高亮（变化的柱子已按数值着色）
+        int old1 = highlight1;
+        int old2 = highlight2;
+        highlight1 = -1;
+        highlight2 = -1;
+        restoreFill(old1);
+        restoreFill(old2);
+        if (highlightColor != null) {
+            setFill(index1, highlightColor);
+            setFill(index2, highlightColor);
+            highlight1 = index1;
+            highlight2 = index2;
+        }
+    }
 
-        // 基线（面板底部往上 PADDING_BOTTOM 位置）
-        double baseY = height - PADDING_BOTTOM;
+    private void restoreFill(int i) {
+        if (i >= 0 && i < array.length) {
+            renderer.drawBar(array, layout, i, null);
+        }
+    }
 
-        for (int i = 0; i < array.length; i++) {
-            int v = array[i];
-            // 不再强制限制值域到 100，而是根据 maxVal 归一化
-
-            // 高度计算保留浮点精度，最后再决定渲染高度
-            double barHeight = v * unitPx;
-            if (barHeight < 1 && v > 0) barHeight = 1; // 只要有值至少显示1px
-
-            // x 坐标：居中 + 间距
-            double x = startX + i * (barWidth + BAR_GAP);
-            double y = baseY - barHeight;
-
-            Rectangle rect = new Rectangle(x, y, barWidth, barHeight);
-
-            // Apple-ish：圆角 + 细描边 + 轻微区分度
-            double arc = Math.min(10, barWidth);
-            rect.setArcWidth(arc);
-            rect.setArcHeight(arc);
-            rect.setStroke(COLOR_STROKE);
-            rect.setStrokeWidth(0.5);
-
-            if ((i == idx1 || i == idx2) && highlightColor != null) {
-                rect.setFill(highlightColor);
-            } else if (overrideFillColor != null) {
-                rect.setFill(overrideFillColor);
-            } else {
-                rect.setFill(colorForValue(v, maxVal));
-            }
-
-            this.getChildren().add(rect);
-
-            if (showLabels && barWidth >= 16) {
-                Text label = new Text(String.valueOf(v));
-                label.setFill(Color.web("#333333"));
-                label.setFont(Font.font(11));
-                double labelX = x + 2;
-                double labelY = y - 2;
-                label.setX(labelX);
-                label.setY(Math.max(labelY, 8));
-                this.getChildren().add(label);
-            }
+    private void setFill(int i, Color color) {
+        if (i >= 0 && i < array.length) {
+            renderer.drawBar(array, layout, i, color);
         }
     }
 
-    private Color colorForValue(int value, int maxValue) {
-        if (maxValue <= 0) {
-            return COLOR_DEFAULT;
+    /**
+     * 按当前尺寸重绘当前画面（例如窗口缩放后）。
+     */
+    public void redraw() {
+        draw();
+    }
+
+    public void setShowLabels(boolean show) {
+        this.showLabels = show;
+        draw();
+    }
+
+    private void draw() {
+        draw(-1, -1, null, null);
+    }
+
+    private void draw(int idx1, int idx2, Color highlightColor) {
+        draw(idx1, idx2, highlightColor, null);
+    }
+
+    private void draw(int idx1, int idx2, Color highlightColor, Color overrideFillColor) {
+        // 没有布局时，下一次 renderState 会整体绘制
+        layout = BarLayout.compute(this.getWidth(), this.getHeight(), array);
+        if (layout == null) {
+            renderer.clear();
+            return;
+        }
+        highlight1 = (highlightColor != null) ? idx1 : -1;
+        highlight2 = (highlightColor != null) ? idx2 : -1;
+        drawnOverrideFill = overrideFillColor;
+        maxCount = 0;
+        for (int v : array) {
+            if (v == layout.maxVal()) maxCount++;
         }
-        double t = Math.min(1.0, Math.max(0.0, value / (double) maxValue));
-        // Apple-ish：整体更明亮，避免“发黑”；同时保留轻微的深浅差异
-        double hue = 211; // 接近系统蓝
-        double saturation = 0.48;
-        double brightness = 0.78 + 0.16 * t; // 0.78..0.94
-        return Color.hsb(hue, saturation, brightness);
+        maxFromData = maxCount > 0;
+        renderer.drawAll(array, layout, idx1, idx2, highlightColor, overrideFillColor, showLabels);
     }
 }